@@ -0,0 +1,27 @@
+/**
+ * A workload that is roughly in order of start time and makes its processes as they are
+ * needed, such as a trace file or a generator.  The Platform reads one of these a bounded number
+ * of processes ahead of the clock, so a workload of any length streams through in the same
+ * memory.  A queue of processes can be in any order instead; the Platform indexes the whole of
+ * it by start time up front.
+ *
+ * Processes that are out of order by less than the Platform's stream look-ahead still arrive at
+ * their start times.  One that is further out of order than that stops the simulation, see
+ * Platform.setStreamLookahead.
+ *
+ * A stream can only be read in order, one process at a time, so it is not a Queue: there is
+ * nothing to iterate over or add to, only the next process to look at or take.
+ */
+public interface ArrivalStream {
+
+    /**
+     * @return the next process, without taking it, or null if there are no more
+     */
+    Process peek();
+
+    /**
+     * Takes the next process.
+     * @return the process taken, or null if there are no more
+     */
+    Process poll();
+}
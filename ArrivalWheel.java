@@ -0,0 +1,199 @@
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Processes waiting to arrive, in a hierarchical timing wheel keyed by start time, so they
+ * can be added in any order, at any time, and still come out at the right tick.  The same wheel
+ * keyed by wake time holds the processes blocked for I/O.
+ *
+ * Each of the LEVELS wheels has 64 slots, and each level's slots are 64 times as wide as the
+ * level below: a slot of level 0 is a single tick, a slot of level 1 is 64 ticks, and so on, so
+ * six levels cover every int tick.  A process goes in the lowest level whose slot holds only
+ * its own part of the future; as the clock reaches a higher level slot, the processes in it
+ * are spread out over the levels below.  Each process is moved at most LEVELS times, so adding
+ * and releasing a process is O(1) amortized however many are waiting or how far ahead they
+ * are.  A bitmap per level finds the next occupied slot without looking at the empty ones.
+ *
+ * Processes due at the same tick come out in the order they went in.  A process whose tick has
+ * already passed comes out at the next release.
+ */
+public class ArrivalWheel {
+    static final int LEVELS = 6;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private final ArrayDeque<Process>[][] slots = new ArrayDeque[LEVELS][SLOTS];  // Created the first time a slot is used
+    private final long[] occupied = new long[LEVELS];  // Per level, a bit for each slot with something in it
+    private long current = 0;       // Every process that starts before this tick has been released
+    private int size = 0;
+    private final ToLongFunction<Process> time;     // The tick each process is due
+
+    /**
+     * A wheel of processes due at their start time.
+     */
+    public ArrivalWheel() {
+        this(Process::getStartTime);
+    }
+
+    /**
+     * @param time gives the tick each process is due
+     */
+    public ArrivalWheel(ToLongFunction<Process> time) {
+        this.time = time;
+    }
+
+    /**
+     * Adds a process to arrive when it is due, or at the next release if that has passed.
+     */
+    public void add(Process p) {
+        long tick = Math.max(this.time.applyAsLong(p), this.current);
+        int level = (63 - Long.numberOfLeadingZeros((tick ^ this.current) | 1)) / SLOT_BITS;
+        int slot = (int) (tick >>> (level * SLOT_BITS)) & (SLOTS - 1);
+        ArrayDeque<Process> queue = this.slots[level][slot];
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            this.slots[level][slot] = queue;
+        }
+        queue.addLast(p);
+        this.occupied[level] |= 1L << slot;
+        this.size++;
+    }
+
+    /**
+     * Hands every process due by the given tick to the action, earliest first, and moves the
+     * wheel on so anything added from now on arrives after the tick.
+     */
+    public void release(int tick, Consumer<Process> action) {
+        if (this.size == 0) {
+            this.current = Math.max(this.current, (long) tick + 1);
+            return;
+        }
+        while (this.size > 0) {
+            int level = lowestOccupiedLevel();
+            long next = slotStart(level, Long.numberOfTrailingZeros(this.occupied[level]));
+            if (next > tick) {
+                break;
+            }
+            advanceTo(next);
+            if (level == 0) {
+                int slot = (int) next & (SLOTS - 1);
+                ArrayDeque<Process> queue = this.slots[0][slot];
+                Process p;
+                while ((p = queue.pollFirst()) != null) {
+                    // anything the action adds that is already due joins the end of this slot
+                    this.size--;
+                    action.accept(p);
+                }
+                this.occupied[0] &= ~(1L << slot);
+            }
+        }
+        if (this.current <= tick) {
+            advanceTo((long) tick + 1);
+        }
+    }
+
+    /**
+     * @return a tick at or before the next arrival, and exactly it when the arrival is in the same
+     *         64 tick slot of level 1 as the clock; Long.MAX_VALUE if nothing is waiting
+     */
+    public long getNextArrival() {
+        if (this.size == 0) {
+            return Long.MAX_VALUE;
+        }
+        int level = lowestOccupiedLevel();
+        return slotStart(level, Long.numberOfTrailingZeros(this.occupied[level]));
+    }
+
+    public int size() { return this.size; }
+    public boolean isEmpty() { return this.size == 0; }
+
+    /**
+     * Writes the waiting processes for a checkpoint, slot by slot in the order they will come out
+     * of each slot.
+     */
+    void save(CheckpointOutput out) throws IOException {
+        out.writeLong(this.current);
+        out.writeInt(this.size);
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                if (this.slots[level][slot] != null) {
+                    for (Process p : this.slots[level][slot]) {
+                        out.writeProcess(p);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes only where the wheel's clock is, for a checkpoint of processes that can be added
+     * back from where they came from.
+     */
+    void saveClock(CheckpointOutput out) throws IOException {
+        out.writeLong(this.current);
+    }
+
+    /**
+     * Sets an empty wheel's clock to what saveClock wrote, ready for its processes to be added
+     * back in the order they were first added.
+     */
+    void restoreClock(CheckpointInput in) throws IOException {
+        this.current = in.readLong();
+    }
+
+    /**
+     * Fills an empty wheel with what save wrote.  Adding the processes back at the same clock puts
+     * each one in the slot it came from, behind the same processes as before.
+     */
+    void restore(CheckpointInput in) throws IOException {
+        this.current = in.readLong();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            add(in.readProcess());
+        }
+    }
+
+    private int lowestOccupiedLevel() {
+        int level = 0;
+        while (this.occupied[level] == 0) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * @return the first tick covered by a slot of the given level, in the current rotation
+     */
+    private long slotStart(int level, int slot) {
+        int shift = level * SLOT_BITS;
+        long above = this.current >>> (shift + SLOT_BITS) << (shift + SLOT_BITS);
+        return above | ((long) slot << shift);
+    }
+
+    /**
+     * Moves the clock on to a tick no later than the start of any occupied slot, spreading out any
+     * higher level slot that starts there over the levels below.
+     */
+    private void advanceTo(long tick) {
+        this.current = tick;
+        for (int level = LEVELS - 1; level > 0; level--) {
+            int shift = level * SLOT_BITS;
+            if ((tick & ((1L << shift) - 1)) != 0) {
+                continue;
+            }
+            int slot = (int) (tick >>> shift) & (SLOTS - 1);
+            if ((this.occupied[level] & (1L << slot)) != 0) {
+                ArrayDeque<Process> queue = this.slots[level][slot];
+                this.occupied[level] &= ~(1L << slot);
+                Process p;
+                while ((p = queue.pollFirst()) != null) {
+                    this.size--;
+                    add(p);
+                }
+            }
+        }
+    }
+}
@@ -1,10 +1,108 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 public class Assign4 {
     private final static int CPU_COUNT = 1;
+    // run the demos with the event driven simulation instead of the tick by tick one
+    private static boolean eventDriven = false;
 
     public static void main(String[] args) {
+        // -events goes with any of the other modes, so it is taken out before they are looked at
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        eventDriven = options.removeIf(option -> option.equals("-events"));
+        args = options.toArray(new String[0]);
+        if (args.length > 0 && args[0].equals("-sweep")) {
+            demoSweep();
+            return;
+        }
+        if (args.length > 1 && args[0].equals("-generate")) {
+            long count = args.length > 2 ? Long.parseLong(args[2]) : 1000000;
+            long seed = args.length > 3 ? Long.parseLong(args[3]) : 3100;
+            demoGenerate(Paths.get(args[1]), count, seed);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("-edf")) {
+            demoEdf();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("-io")) {
+            long count = args.length > 1 ? Long.parseLong(args[1]) : 100000;
+            long seed = args.length > 2 ? Long.parseLong(args[2]) : 3100;
+            demoIo(count, seed);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("-costs")) {
+            int switchCost = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+            int coldPenalty = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+            demoCosts(switchCost, coldPenalty);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("-wide")) {
+            int cpus = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+            int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            demoWide(cpus, threads);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("-executor")) {
+            int count = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+            demoExecutor(count);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("-monitor")) {
+            long count = args.length > 1 ? Long.parseLong(args[1]) : 2000000;
+            demoMonitor(count);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("-shares")) {
+            demoShares();
+            return;
+        }
+        if (args.length > 3 && (args[0].equals("-checkpoint") || args[0].equals("-resume"))) {
+            int interval = args.length > 4 ? Integer.parseInt(args[4]) : 1000000;
+            demoCheckpoint(Paths.get(args[1]), args[2], Paths.get(args[3]), interval, args[0].equals("-resume"));
+            return;
+        }
+        if (args.length > 3 && args[0].equals("-record")) {
+            demoRecord(Paths.get(args[1]), args[2], Paths.get(args[3]));
+            return;
+        }
+        if (args.length > 3 && args[0].equals("-log")) {
+            demoLog(Paths.get(args[1]), args[2], Paths.get(args[3]));
+            return;
+        }
+        if (args.length > 1 && args[0].equals("-replay")) {
+            demoReplay(Paths.get(args[1]), args.length > 2 ? args[2] : null);
+            return;
+        }
+        if (args.length > 2 && args[0].equals("-diff")) {
+            demoDiff(Paths.get(args[1]), Paths.get(args[2]));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("-verify")) {
+            int runs = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+            long seed = args.length > 2 ? Long.parseLong(args[2]) : 3100;
+            demoVerify(runs, seed);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("-trace")) {
+            demoTrace(Paths.get(args[1]));
+            return;
+        }
+
         System.out.println("---------------------------------------------------------");
         demoFCFS();
         System.out.println();
@@ -32,14 +130,14 @@ public class Assign4 {
     private static void demoFCFS() {
         Platform platform = new Platform(CPU_COUNT);
         Queue<Process> processes = new LinkedList<>();
-        processes.add(new Process("P1", 0, 24, 48));
-        processes.add(new Process("P2", 0, 3, 6));
-        processes.add(new Process("P3", 0, 3, 6));
+        processes.add(new StandaloneProcess("P1", 0, 24, 48));
+        processes.add(new StandaloneProcess("P2", 0, 3, 6));
+        processes.add(new StandaloneProcess("P3", 0, 3, 6));
 
 
         System.out.println("Starting First Come, First Served CPU scheduling simulation");
         Scheduler scheduler = new SchedulerFCFS(platform);
-        platform.simulate(scheduler, processes);
+        simulate(platform, scheduler, processes);
         System.out.printf("Number of context switches: %d\n", scheduler.getNumberOfContextSwitches());
         System.out.println("FCFS CPU scheduling simulation complete");
     }
@@ -50,14 +148,14 @@ public class Assign4 {
     private static void demoSJF() {
         Platform platform = new Platform(CPU_COUNT);
         Queue<Process> processes = new LinkedList<>();
-        processes.add(new Process("P1", 0, 6, 6));
-        processes.add(new Process("P2", 0, 8, 8));
-        processes.add(new Process("P3", 0, 7, 7));
-        processes.add(new Process("P4", 0, 3, 3));
+        processes.add(new StandaloneProcess("P1", 0, 6, 6));
+        processes.add(new StandaloneProcess("P2", 0, 8, 8));
+        processes.add(new StandaloneProcess("P3", 0, 7, 7));
+        processes.add(new StandaloneProcess("P4", 0, 3, 3));
 
         System.out.println("Starting Shortest Job First CPU scheduling simulation");
         Scheduler scheduler = new SchedulerSJF(platform);
-        platform.simulate(scheduler, processes);
+        simulate(platform, scheduler, processes);
         System.out.printf("Number of context switches: %d\n", scheduler.getNumberOfContextSwitches());
         System.out.println("SJF CPU scheduling simulation complete");
     }
@@ -68,14 +166,14 @@ public class Assign4 {
     private static void demoSRTF() {
         Platform platform = new Platform(CPU_COUNT);
         Queue<Process> processes = new LinkedList<>();
-        processes.add(new Process("P1", 0, 8, 8));
-        processes.add(new Process("P2", 1, 4, 4));
-        processes.add(new Process("P3", 2, 9, 9));
-        processes.add(new Process("P4", 3, 5, 5));
+        processes.add(new StandaloneProcess("P1", 0, 8, 8));
+        processes.add(new StandaloneProcess("P2", 1, 4, 4));
+        processes.add(new StandaloneProcess("P3", 2, 9, 9));
+        processes.add(new StandaloneProcess("P4", 3, 5, 5));
 
         System.out.println("Starting Shortest Remaining Time First CPU scheduling simulation");
         Scheduler scheduler = new SchedulerSRTF(platform);
-        platform.simulate(scheduler, processes);
+        simulate(platform, scheduler, processes);
         System.out.printf("Number of context switches: %d\n", scheduler.getNumberOfContextSwitches());
         System.out.println("SRTF CPU scheduling simulation complete");
     }
@@ -86,15 +184,15 @@ public class Assign4 {
     private static void demoPriority() {
         Platform platform = new Platform(CPU_COUNT);
         Queue<Process> processes = new LinkedList<>();
-        processes.add(new Process("P1", 0, 10, 10, 3));
-        processes.add(new Process("P2", 0, 1, 1, 1));
-        processes.add(new Process("P3", 0, 2, 2, 4));
-        processes.add(new Process("P4", 0, 1, 1,5 ));
-        processes.add(new Process("P5", 0, 5, 5, 2));
+        processes.add(new StandaloneProcess("P1", 0, 10, 10, 3));
+        processes.add(new StandaloneProcess("P2", 0, 1, 1, 1));
+        processes.add(new StandaloneProcess("P3", 0, 2, 2, 4));
+        processes.add(new StandaloneProcess("P4", 0, 1, 1,5 ));
+        processes.add(new StandaloneProcess("P5", 0, 5, 5, 2));
 
         System.out.println("Starting Priority CPU scheduling simulation");
         Scheduler scheduler = new SchedulerPriority(platform);
-        platform.simulate(scheduler, processes);
+        simulate(platform, scheduler, processes);
         System.out.printf("Number of context switches: %d\n", scheduler.getNumberOfContextSwitches());
         System.out.println("Priority CPU scheduling simulation complete");
     }
@@ -105,14 +203,554 @@ public class Assign4 {
     private static void demoRR() {
         Platform platform = new Platform(CPU_COUNT);
         Queue<Process> processes = new LinkedList<>();
-        processes.add(new Process("P1", 0, 24, 24));
-        processes.add(new Process("P2", 0, 3, 3));
-        processes.add(new Process("P3", 0, 3, 3));
+        processes.add(new StandaloneProcess("P1", 0, 24, 24));
+        processes.add(new StandaloneProcess("P2", 0, 3, 3));
+        processes.add(new StandaloneProcess("P3", 0, 3, 3));
 
         System.out.println("Starting Round Robin CPU scheduling simulation");
         Scheduler scheduler = new SchedulerRR(platform, 4);
-        platform.simulate(scheduler, processes);
+        simulate(platform, scheduler, processes);
         System.out.printf("Number of context switches: %d\n", scheduler.getNumberOfContextSwitches());
         System.out.println("RR CPU scheduling simulation complete");
     }
+
+    /**
+     * Compares all of the schedulers, over a range of RR time quanta and CPU counts, on the
+     * demo workloads.  Every configuration runs in parallel on its own Platform.
+     */
+    private static void demoSweep() {
+        SweepRunner sweep = new SweepRunner();
+        sweep.addScheduler("FCFS", SchedulerFCFS::new);
+        sweep.addScheduler("SJF", SchedulerSJF::new);
+        sweep.addScheduler("SRTF", SchedulerSRTF::new);
+        sweep.addScheduler("Priority", SchedulerPriority::new);
+        for (int quantum = 1; quantum <= 8; quantum++) {
+            final int q = quantum;
+            sweep.addScheduler("RR q=" + q, platform -> new SchedulerRR(platform, q));
+        }
+        sweep.addScheduler("MLFQ", SchedulerMLFQ::new);
+        sweep.addScheduler("CFS", SchedulerCFS::new);
+        sweep.addScheduler("Stride", SchedulerStride::new);
+        sweep.addScheduler("Lottery", SchedulerLottery::new);
+        sweep.addScheduler("EDF", SchedulerEDF::new);
+        // the same algorithms again, with a ready queue per cpu
+        sweep.addScheduler("FCFS/cpu", platform -> new MultiQueueScheduler(platform, SchedulerFCFS::new));
+        sweep.addScheduler("SRTF/cpu", platform -> new MultiQueueScheduler(platform, SchedulerSRTF::new));
+        sweep.addScheduler("RR q=4/cpu", platform -> new MultiQueueScheduler(platform, p -> new SchedulerRR(p, 4)));
+        sweep.addWorkload("Bursty", () -> {
+            Queue<Process> processes = new LinkedList<>();
+            processes.add(new StandaloneProcess("P1", 0, 24, 48));
+            processes.add(new StandaloneProcess("P2", 0, 3, 6));
+            processes.add(new StandaloneProcess("P3", 0, 3, 6));
+            return processes;
+        });
+        sweep.addWorkload("Staggered", () -> {
+            Queue<Process> processes = new LinkedList<>();
+            processes.add(new StandaloneProcess("P1", 0, 8, 8));
+            processes.add(new StandaloneProcess("P2", 1, 4, 4));
+            processes.add(new StandaloneProcess("P3", 2, 9, 9));
+            processes.add(new StandaloneProcess("P4", 3, 5, 5));
+            return processes;
+        });
+        sweep.addWorkload("Prioritized", () -> {
+            Queue<Process> processes = new LinkedList<>();
+            processes.add(new StandaloneProcess("P1", 0, 10, 10, 3));
+            processes.add(new StandaloneProcess("P2", 0, 1, 1, 1));
+            processes.add(new StandaloneProcess("P3", 0, 2, 2, 4));
+            processes.add(new StandaloneProcess("P4", 0, 1, 1,5 ));
+            processes.add(new StandaloneProcess("P5", 0, 5, 5, 2));
+            return processes;
+        });
+        sweep.setCpuCounts(1, 2, 4);
+        sweep.setEventDriven(eventDriven);
+
+        System.out.printf("Starting sweep of %d %sCPU scheduling simulations\n", sweep.size(), eventDriven ? "event driven " : "");
+        SweepRunner.printTable(sweep.run(), System.out);
+        System.out.println("Sweep complete");
+    }
+
+    /**
+     * What context switches cost: the same schedulers on 4 cpus, first with free switches, then
+     * paying for every switch and for a cold cache whenever a process comes back to a different
+     * cpu, or to the same one after more than 200 ticks away.  Schedulers that switch less, or keep
+     * processes on the cpu they last ran on, lose less of the cpu to overhead.
+     */
+    private static void demoCosts(int switchCost, int coldPenalty) {
+        for (int cost = 0; cost < 2; cost++) {
+            SweepRunner sweep = new SweepRunner();
+            sweep.addScheduler("FCFS", SchedulerFCFS::new);
+            sweep.addScheduler("SRTF", SchedulerSRTF::new);
+            sweep.addScheduler("RR q=1", platform -> new SchedulerRR(platform, 1));
+            sweep.addScheduler("RR q=4", platform -> new SchedulerRR(platform, 4));
+            sweep.addScheduler("RR q=16", platform -> new SchedulerRR(platform, 16));
+            sweep.addScheduler("MLFQ", SchedulerMLFQ::new);
+            sweep.addScheduler("CFS", SchedulerCFS::new);
+            sweep.addScheduler("Stride", SchedulerStride::new);
+            sweep.addScheduler("RR q=4/cpu", platform -> new MultiQueueScheduler(platform, p -> new SchedulerRR(p, 4)));
+            sweep.addScheduler("CFS/cpu", platform -> new MultiQueueScheduler(platform, SchedulerCFS::new));
+            sweep.addStream("Mixed", () -> {
+                WorkloadGenerator processes = new WorkloadGenerator(3100, 20000);
+                processes.setPoissonArrivals(20);
+                processes.setBimodalBursts(3, 40, 0.2);
+                processes.setMeanBurstsPerProcess(4);
+                processes.setExponentialIo(30, 0.5);
+                return processes;
+            });
+            sweep.setCpuCounts(4);
+            sweep.setEventDriven(eventDriven);
+            if (cost > 0) {
+                sweep.setContextSwitchCost(switchCost);
+                sweep.setCacheAffinity(200, coldPenalty);
+                System.out.printf("Switches cost %d ticks, cold caches %d more\n", switchCost, coldPenalty);
+            }
+            else {
+                System.out.println("Switches are free");
+            }
+            SweepRunner.printCosts(sweep.run(), System.out);
+        }
+    }
+
+    /**
+     * A wide machine: RR with a queue per cpu on the given number of cpus, simulated on one thread
+     * and then with the cpus shared out over several.  Both runs come out the same, only the time
+     * they take differs.
+     */
+    private static void demoWide(int cpus, int threads) {
+        String sequential = null;
+        for (int parallelism : new int[] { 1, threads }) {
+            Platform platform = new Platform(cpus);
+            platform.setEventSink(null);
+            platform.setParallelism(parallelism);
+            Scheduler scheduler = new MultiQueueScheduler(platform, p -> new SchedulerRR(p, 4));
+            WorkloadGenerator processes = new WorkloadGenerator(3100, 200L * cpus);
+            processes.setPoissonArrivals(50.0 / cpus);
+            processes.setBimodalBursts(3, 40, 0.2);
+            processes.setMeanBurstsPerProcess(4);
+            processes.setExponentialIo(30, 0.5);
+
+            System.out.printf("Starting RR q=4/cpu simulation on %d cpus with %d threads\n", cpus, parallelism);
+            long start = System.nanoTime();
+            simulate(platform, scheduler, processes);
+            long millis = (System.nanoTime() - start) / 1000000;
+            String result = String.format("Context switches: %d, steals: %d, migrations: %d, complete at time %d, utilization %.1f%%",
+                    scheduler.getNumberOfContextSwitches(), scheduler.getNumberOfSteals(), scheduler.getNumberOfMigrations(),
+                    platform.getClockCounter(), platform.getMetrics().getUtilization() * 100);
+            System.out.println(result);
+            System.out.printf("Simulation took %d ms\n", millis);
+            if (sequential == null) {
+                sequential = result;
+            }
+            else {
+                System.out.println(result.equals(sequential) ? "Same as on one thread" : "Differs from one thread");
+            }
+        }
+    }
+
+    /**
+     * Real tasks: the same tasks, most of them short, run by a SchedulerExecutor with 4 slots under
+     * several schedulers.  The tasks sleep rather than compute, so they take as long as expected
+     * however many cores there are.  What each scheduler did is then compared with what the
+     * simulator predicts for the tasks as they actually ran; RR does worse than predicted, as the
+     * simulation can preempt a long task and the executor can't.
+     */
+    private static void demoExecutor(int count) {
+        String[] names = { "FCFS", "SJF", "Priority", "RR" };
+        for (String name : names) {
+            SchedulerExecutor executor = new SchedulerExecutor(4, platform -> createScheduler(name, platform));
+            executor.setWorkloadLimit(count);
+            Random random = new Random(3100);
+            for (int i = 0; i < count; i++) {
+                int millis = random.nextInt(5) == 0 ? 20 : 2;
+                executor.submit(() -> sleep(millis), 1 + random.nextInt(3), millis);
+            }
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.HOURS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            Platform platform = new Platform(4);
+            platform.setEventSink(null);
+            Scheduler scheduler = createScheduler(name, platform);
+            simulate(platform, scheduler, executor.getWorkload());
+            LatencyHistogram real = executor.getMetrics().getOverall().getTurnaround();
+            LatencyHistogram predicted = platform.getMetrics().getOverall().getTurnaround();
+            System.out.printf("%-8s ran %d tasks, turnaround mean %.1f ms, p99 %d ms; simulated mean %.1f ms, p99 %d ms\n", name,
+                    real.getCount(), real.getMean(), real.getPercentile(99), predicted.getMean(), predicted.getPercentile(99));
+        }
+    }
+
+    private static void sleep(int millis) {
+        try {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Watching a simulation while it runs: RR with a queue per cpu on 16 cpus simulates a long
+     * workload on a thread of its own, with the platform's counters registered as an MBean, and
+     * this thread reads them through the MBean server every half second, as JConsole would.  Its
+     * Flight Recorder events are recorded too if it is run with -XX:StartFlightRecording.
+     */
+    private static void demoMonitor(long count) {
+        Platform platform = new Platform(16);
+        platform.setEventSink(null);
+        Scheduler scheduler = new MultiQueueScheduler(platform, p -> new SchedulerRR(p, 4));
+        WorkloadGenerator processes = new WorkloadGenerator(3100, count);
+        processes.setPoissonArrivals(50.0 / 16);
+        processes.setBimodalBursts(3, 40, 0.2);
+        processes.setMeanBurstsPerProcess(4);
+        processes.setExponentialIo(30, 0.5);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = platform.getCounters().register("monitor");
+            System.out.printf("Starting RR q=4/cpu simulation of %d processes on 16 cpus, watched as %s\n", count, name);
+            Thread simulation = new Thread(() -> simulate(platform, scheduler, processes), "simulation");
+            simulation.start();
+            do {
+                simulation.join(500);
+                int clock = (Integer) server.getAttribute(name, "Clock");
+                long[] busy = (long[]) server.getAttribute(name, "BusyTicks");
+                long busyTotal = 0;
+                for (long ticks : busy) {
+                    busyTotal += ticks;
+                }
+                System.out.printf("Time %d: %d ready, %d blocked, %.0f decisions/s, %d preemptions, utilization %.1f%%\n",
+                        clock, server.getAttribute(name, "ReadyQueueDepth"), server.getAttribute(name, "Blocked"),
+                        server.getAttribute(name, "DecisionsPerSecond"), server.getAttribute(name, "Preemptions"),
+                        clock > 0 ? busyTotal * 100.0 / ((long) clock * busy.length) : 0.0);
+            } while (simulation.isAlive());
+            platform.getCounters().unregister();
+        }
+        catch (JMException e) {
+            System.out.printf("Unable to watch the simulation: %s\n", e.getMessage());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.printf("RR q=4/cpu simulation complete at time %d, utilization %.1f%%\n",
+                platform.getClockCounter(), platform.getMetrics().getUtilization() * 100);
+    }
+
+    /**
+     * Real time: three periodic tasks using 96% of a cpu, with deadlines at the end of each
+     * period, under EDF, rate monotonic priorities and RR.
+     */
+    private static void demoEdf() {
+        String[] names = { "EDF", "Priority", "RR" };
+        int[][] tasks = { { 1, 4 }, { 2, 6 }, { 3, 8 } };    // burst, period
+        for (String name : names) {
+            Platform platform = new Platform(CPU_COUNT);
+            platform.setEventSink(null);
+            Scheduler scheduler = createScheduler(name, platform);
+            Queue<Process> processes = new LinkedList<>();
+            for (int i = 0; i < tasks.length; i++) {
+                int burst = tasks[i][0];
+                int period = tasks[i][1];
+                // a shorter period is a higher priority, as in rate monotonic scheduling
+                Process p = new StandaloneProcess("T" + (i + 1), 0, burst, burst * (48 / period), period);
+                p.setDeadline(period, period);
+                processes.add(p);
+            }
+
+            System.out.printf("Starting %s CPU scheduling simulation of periodic tasks\n", name);
+            simulate(platform, scheduler, processes);
+            System.out.printf("Number of context switches: %d\n", scheduler.getNumberOfContextSwitches());
+            System.out.printf("Number of deadline misses: %d of %d\n",
+                    platform.getMetrics().getDeadlineMisses(), platform.getMetrics().getDeadlineJobs());
+            System.out.printf("%s CPU scheduling simulation complete\n", name);
+        }
+    }
+
+    /**
+     * Proportional share: three tenants with 1, 2 and 3 shares of a cpu, all wanting it the whole
+     * time.  When the first of them finishes, the cpu each has had is compared with its share.
+     */
+    private static void demoShares() {
+        String[] names = { "Stride", "Lottery" };
+        int[] shares = { 100, 200, 300 };
+        for (String name : names) {
+            Platform platform = new Platform(CPU_COUNT);
+            Scheduler scheduler = name.equals("Stride") ? new SchedulerStride(platform) : new SchedulerLottery(platform);
+            Queue<Process> processes = new LinkedList<>();
+            Process[] tenants = new Process[shares.length];
+            for (int i = 0; i < shares.length; i++) {
+                tenants[i] = new StandaloneProcess("T" + (i + 1), 0, 6000, 6000);
+                tenants[i].setShares(shares[i]);
+                processes.add(tenants[i]);
+            }
+            int[] used = new int[shares.length];
+            platform.setEventSink(new EventSink() {
+                public void onEvent(SchedulingEvent event, int tick, int cpu, int processId, String processName) {
+                    if (event == SchedulingEvent.EXECUTION_COMPLETE && used[0] + used[1] + used[2] == 0) {
+                        for (int i = 0; i < tenants.length; i++) {
+                            used[i] = tenants[i].getElapsedTotal();
+                        }
+                    }
+                }
+
+                public void onMessage(int tick, String message) {
+                }
+            });
+
+            System.out.printf("Starting %s CPU scheduling simulation of tenants with shares 1:2:3\n", name);
+            simulate(platform, scheduler, processes);
+            int total = used[0] + used[1] + used[2];
+            for (int i = 0; i < tenants.length; i++) {
+                System.out.printf("%s: share %5.1f%%, had %5.1f%% of the cpu\n", tenants[i].getName(),
+                        100.0 * shares[i] / 600, 100.0 * used[i] / total);
+            }
+            System.out.printf("Number of context switches: %d\n", scheduler.getNumberOfContextSwitches());
+            System.out.printf("%s CPU scheduling simulation complete\n", name);
+        }
+    }
+
+    /**
+     * CPU and I/O overlap: a generated workload where most processes block for I/O between their
+     * bursts, under every scheduler.  How much of the cpu's idle time is spent waiting on I/O
+     * shows how well each one keeps the cpu busy while others are blocked.
+     */
+    private static void demoIo(long count, long seed) {
+        String[] names = { "FCFS", "SJF", "SRTF", "Priority", "RR", "MLFQ", "CFS", "Stride", "Lottery", "EDF" };
+        for (String name : names) {
+            Platform platform = new Platform(CPU_COUNT);
+            platform.setEventSink(null);
+            Scheduler scheduler = createScheduler(name, platform);
+            WorkloadGenerator processes = new WorkloadGenerator(seed, count);
+            processes.setPoissonArrivals(50);
+            processes.setBimodalBursts(3, 40, 0.2);
+            processes.setMeanBurstsPerProcess(4);
+            processes.setPriorityMix(1, 3, 6);
+            processes.setExponentialIo(30, 0.7);
+
+            System.out.printf("Starting %s CPU scheduling simulation of %d processes doing I/O\n", name, count);
+            simulate(platform, scheduler, processes);
+            System.out.printf("Number of context switches: %d\n", scheduler.getNumberOfContextSwitches());
+            platform.getMetrics().print(name, System.out);
+            System.out.printf("%s CPU scheduling simulation complete at time %d\n", name, platform.getClockCounter());
+        }
+    }
+
+    /**
+     * Runs every scheduler over a workload streamed from a trace file.  Only the totals and the
+     * latency percentiles are reported, a trace is usually far too long to print every scheduling event.
+     */
+    private static void demoTrace(Path trace) {
+        String[] names = { "FCFS", "SJF", "SRTF", "Priority", "RR", "MLFQ", "CFS", "Stride", "Lottery", "EDF" };
+        for (String name : names) {
+            Platform platform = new Platform(CPU_COUNT);
+            platform.setEventSink(null);
+            Scheduler scheduler = createScheduler(name, platform);
+            try (TraceReader processes = TraceReader.open(trace)) {
+                System.out.printf("Starting %s CPU scheduling simulation of %s\n", name, trace);
+                simulate(platform, scheduler, processes);
+                System.out.printf("Number of context switches: %d\n", scheduler.getNumberOfContextSwitches());
+                if (platform.getMetrics().getDeadlineJobs() > 0) {
+                    System.out.printf("Number of deadline misses: %d\n", platform.getMetrics().getDeadlineMisses());
+                }
+                platform.getMetrics().print(name, System.out);
+                System.out.printf("%s CPU scheduling simulation complete at time %d\n", name, platform.getClockCounter());
+            }
+            catch (IOException e) {
+                System.out.printf("Unable to read %s: %s\n", trace, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Replays a trace with one scheduler, writing a checkpoint every so many ticks, or picks up
+     * such a run from its last checkpoint.  Interrupting a run and resuming it gives the same
+     * results as letting it finish.
+     */
+    private static void demoCheckpoint(Path trace, String name, Path checkpoint, int interval, boolean resume) {
+        Platform platform = new Platform(CPU_COUNT);
+        platform.setEventSink(null);
+        platform.setCheckpoint(checkpoint, interval);
+        Scheduler scheduler = createScheduler(name, platform);
+        try (TraceReader processes = TraceReader.open(trace)) {
+            if (resume) {
+                System.out.printf("Resuming %s CPU scheduling simulation of %s from %s\n", name, trace, checkpoint);
+                platform.resume(scheduler, processes, checkpoint);
+            }
+            else {
+                System.out.printf("Starting %s CPU scheduling simulation of %s, checkpointing to %s\n", name, trace, checkpoint);
+                simulate(platform, scheduler, processes);
+            }
+            System.out.printf("Number of context switches: %d\n", scheduler.getNumberOfContextSwitches());
+            platform.getMetrics().print(name, System.out);
+            System.out.printf("%s CPU scheduling simulation complete at time %d\n", name, platform.getClockCounter());
+        }
+        catch (IOException e) {
+            System.out.printf("Unable to run from %s: %s\n", checkpoint, e.getMessage());
+        }
+    }
+
+    /**
+     * Replays a workload trace with one scheduler, recording every scheduling event in a binary
+     * event trace rather than printing it.
+     */
+    private static void demoRecord(Path trace, String name, Path events) {
+        Platform platform = new Platform(CPU_COUNT);
+        Scheduler scheduler = createScheduler(name, platform);
+        try (TraceReader processes = TraceReader.open(trace); EventTraceWriter sink = new EventTraceWriter(events)) {
+            platform.setEventSink(sink);
+            simulate(platform, scheduler, processes);
+            System.out.printf("Recorded %d %s events from %s in %s\n", sink.getCount(), name, trace, events);
+        }
+        catch (IOException e) {
+            System.out.printf("Unable to record %s: %s\n", events, e.getMessage());
+        }
+    }
+
+    /**
+     * Replays a workload trace with one scheduler, writing the full log to a text file.  The
+     * log goes through an AsyncEventSink, so writing it is done on another thread and doesn't
+     * hold up the simulation.
+     */
+    private static void demoLog(Path trace, String name, Path log) {
+        Platform platform = new Platform(CPU_COUNT);
+        Scheduler scheduler = createScheduler(name, platform);
+        try (TraceReader processes = TraceReader.open(trace);
+             FileChannel channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            AsyncEventSink sink = new AsyncEventSink(channel, 1 << 16, AsyncEventSink.OverflowPolicy.BLOCK, scheduler);
+            platform.setEventSink(sink);
+            long started = System.nanoTime();
+            try {
+                simulate(platform, scheduler, processes);
+            }
+            finally {
+                sink.close();
+            }
+            System.out.printf("Logged %s simulation of %s to %s in %d ms\n", name, trace, log,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        }
+        catch (IOException e) {
+            System.out.printf("Unable to log to %s: %s\n", log, e.getMessage());
+        }
+    }
+
+    /**
+     * Prints a recorded event trace in the usual log format, only the events of one process
+     * if a name is given.
+     */
+    private static void demoReplay(Path events, String processName) {
+        try (EventTraceReader reader = new EventTraceReader(events)) {
+            reader.replay(new ConsoleEventSink(), r -> processName == null || processName.equals(r.getProcessName()));
+        }
+        catch (IOException e) {
+            System.out.printf("Unable to read %s: %s\n", events, e.getMessage());
+        }
+    }
+
+    /**
+     * Reports the first event where two recorded runs differ.
+     */
+    private static void demoDiff(Path a, Path b) {
+        try {
+            EventTraceDiff diff = EventTraceDiff.compare(a, b);
+            if (diff.isSame()) {
+                System.out.printf("%s and %s are the same\n", a, b);
+            }
+            else {
+                System.out.printf("%s and %s differ after %d events\n", a, b, diff.getIndex());
+                System.out.printf("  %s: %s\n", a, diff.getLeft());
+                System.out.printf("  %s: %s\n", b, diff.getRight());
+            }
+        }
+        catch (IOException e) {
+            System.out.printf("Unable to compare %s and %s: %s\n", a, b, e.getMessage());
+        }
+    }
+
+    /**
+     * @return the scheduler the trace demos use for a name, RR if the name isn't known
+     */
+    static Scheduler createScheduler(String name, Platform platform) {
+        switch (name) {
+            case "FCFS": return new SchedulerFCFS(platform);
+            case "SJF": return new SchedulerSJF(platform);
+            case "SRTF": return new SchedulerSRTF(platform);
+            case "Priority": return new SchedulerPriority(platform);
+            case "MLFQ": return new SchedulerMLFQ(platform);
+            case "CFS": return new SchedulerCFS(platform);
+            case "Stride": return new SchedulerStride(platform);
+            case "Lottery": return new SchedulerLottery(platform);
+            case "EDF": return new SchedulerEDF(platform);
+            default: return new SchedulerRR(platform, 4);
+        }
+    }
+
+    /**
+     * Checks random simulations against the tick by tick loop on one thread, and against
+     * themselves resumed from a checkpoint, as the schedulers and the platform change: every
+     * scheduler, with and without a queue per cpu, I/O and switching costs.  Before those, the
+     * schedules SimulationCheck pins for small workloads have to be unchanged.  After them, every
+     * process has to have one response time recorded, however long switching to it takes.  Exits
+     * with status 1 if any of them didn't match.
+     */
+    private static void demoVerify(int runs, long seed) {
+        SimulationCheck check = new SimulationCheck(seed, runs);
+        int schedules = check.checkSchedules();
+        System.out.printf("Pinned schedules: %d of %d didn't match\n", schedules, SimulationCheck.getScheduleCount());
+        int eventDriven = check.checkEventDriven();
+        System.out.printf("Event driven: %d of %d runs didn't match\n", eventDriven, runs);
+        int resume = check.checkResume();
+        System.out.printf("Resumed from a checkpoint: %d of %d runs didn't match\n", resume, runs);
+        int parallel = check.checkParallel();
+        System.out.printf("On several threads: %d of %d runs didn't match\n", parallel, runs);
+        int responseTimes = check.checkResponseTimes();
+        System.out.printf("Response times: %d of %d runs didn't match\n", responseTimes, runs + 1);
+        if (check.getFirstMismatch() != null) {
+            System.out.printf("First mismatch: %s\n", check.getFirstMismatch());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Writes a synthetic trace with a mix of short interactive and long batch jobs, arriving in
+     * bursts, which can then be replayed with -trace.
+     */
+    private static void demoGenerate(Path trace, long count, long seed) {
+        WorkloadGenerator generator = new WorkloadGenerator(seed, count);
+        generator.setBurstyArrivals(48, 4);
+        generator.setBimodalBursts(3, 60, 0.15);
+        generator.setMeanBurstsPerProcess(3);
+        generator.setPriorityMix(1, 3, 6);
+        try {
+            generator.writeTrace(trace);
+            System.out.printf("Wrote %d processes to %s\n", count, trace);
+        }
+        catch (IOException e) {
+            System.out.printf("Unable to write %s: %s\n", trace, e.getMessage());
+        }
+    }
+
+    /**
+     * Runs the simulation with whichever engine was selected on the command line
+     */
+    private static void simulate(Platform platform, Scheduler scheduler, Queue<Process> processes) {
+        if (eventDriven) {
+            platform.simulateEventDriven(scheduler, processes);
+        }
+        else {
+            platform.simulate(scheduler, processes);
+        }
+    }
+
+    private static void simulate(Platform platform, Scheduler scheduler, ArrivalStream processes) {
+        if (eventDriven) {
+            platform.simulateEventDriven(scheduler, processes);
+        }
+        else {
+            platform.simulate(scheduler, processes);
+        }
+    }
 }
@@ -0,0 +1,262 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * EventSink that keeps I/O off the simulation thread.  Events are copied into a bounded ring
+ * buffer of primitive slots, and a background thread drains the buffer in batches, renders
+ * the same text as ConsoleEventSink and writes it through a buffered channel.  Each batch is
+ * written out as soon as it is rendered, so a run that dies loses at most what was still in
+ * the ring.  While the ring is empty the writer sleeps until the next event wakes it.
+ *
+ * Given the scheduler being simulated, the writer words each event the way that scheduler
+ * does, as ConsoleEventSink does through the Platform.  It asks the scheduler itself rather
+ * than the Platform, which forgets the scheduler when the simulation ends, possibly before the
+ * writer has caught up.
+ *
+ * The ring buffer has a single producer; all events must be reported from the simulation thread.
+ * The channel belongs to the caller and is not closed by close().
+ */
+public class AsyncEventSink implements EventSink, AutoCloseable {
+
+    /**
+     * What happens to an event that arrives while the ring buffer is full.
+     */
+    public enum OverflowPolicy {
+        BLOCK,      // Wait for the writer to free a slot
+        DROP,       // Throw the event away
+        COUNT       // Throw the event away, and write how many were lost when the sink closes
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;   // Size of the channel write buffer
+    private static final long FULL_PARK_NANOS = 100_000; // How long the producer naps while it waits for a free slot
+
+    private final WritableByteChannel channel;
+    private final OverflowPolicy policy;
+    private final Scheduler scheduler;  // Asked for the text of each event, null for the usual text
+    private final int mask;
+    // One slot per record; event is the ordinal of a SchedulingEvent, or -1 for a plain message
+    private final int[] events;
+    private final int[] ticks;
+    private final int[] cpus;
+    private final int[] processIds;
+    private final String[] texts;       // Process name for events, the whole message otherwise
+
+    private volatile long head = 0;     // Next slot the producer writes
+    private volatile long tail = 0;     // Next slot the writer reads
+    private volatile boolean closed = false;
+    private volatile IOException failure = null;
+    private long dropped = 0;
+
+    private final Thread writer;
+
+    /**
+     * @param channel where the rendered text is written
+     * @param capacity number of records the ring buffer holds, rounded up to a power of 2
+     * @param policy what to do with events that arrive while the buffer is full
+     */
+    public AsyncEventSink(WritableByteChannel channel, int capacity, OverflowPolicy policy) {
+        this(channel, capacity, policy, null);
+    }
+
+    /**
+     * @param channel where the rendered text is written
+     * @param capacity number of records the ring buffer holds, rounded up to a power of 2
+     * @param policy what to do with events that arrive while the buffer is full
+     * @param scheduler the scheduler whose events these are; its describe is called on the
+     *        writer thread
+     */
+    public AsyncEventSink(WritableByteChannel channel, int capacity, OverflowPolicy policy, Scheduler scheduler) {
+        this.channel = channel;
+        this.policy = policy;
+        this.scheduler = scheduler;
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.events = new int[size];
+        this.ticks = new int[size];
+        this.cpus = new int[size];
+        this.processIds = new int[size];
+        this.texts = new String[size];
+
+        this.writer = new Thread(this::drain, "event-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void onEvent(SchedulingEvent event, int tick, int cpu, int processId, String processName) {
+        offer(event.ordinal(), tick, cpu, processId, processName);
+    }
+
+    @Override
+    public void onMessage(int tick, String message) {
+        offer(-1, tick, -1, -1, message);
+    }
+
+    /**
+     * @return number of events thrown away because the buffer was full
+     */
+    public long getDroppedCount() { return this.dropped; }
+
+    /**
+     * Waits for the writer to drain everything already reported, flushes it to the channel
+     * and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        LockSupport.unpark(this.writer);
+        try {
+            this.writer.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (this.failure != null) {
+            throw new UncheckedIOException(this.failure);
+        }
+    }
+
+    /**
+     * Copies a record into the next free slot.  Only the simulation thread calls this.
+     */
+    private void offer(int event, int tick, int cpu, int processId, String text) {
+        long h = this.head;
+        if (h - this.tail > this.mask) {
+            if (this.policy != OverflowPolicy.BLOCK || !waitForSpace(h)) {
+                this.dropped++;
+                return;
+            }
+        }
+        int slot = (int) (h & this.mask);
+        this.events[slot] = event;
+        this.ticks[slot] = tick;
+        this.cpus[slot] = cpu;
+        this.processIds[slot] = processId;
+        this.texts[slot] = text;
+        // the volatile write publishes the slot to the writer
+        this.head = h + 1;
+        // the writer sleeps once it has caught up, so the first event after that wakes it; it
+        // reads head after writing tail, so either it sees this slot or this sees it caught up
+        if (this.tail == h) {
+            LockSupport.unpark(this.writer);
+        }
+    }
+
+    /**
+     * @return true once there is a free slot, false if the writer is gone and never will free one
+     */
+    private boolean waitForSpace(long h) {
+        int spins = 0;
+        while (h - this.tail > this.mask) {
+            if (this.failure != null || !this.writer.isAlive()) {
+                return false;
+            }
+            if (++spins < 100) {
+                Thread.onSpinWait();
+            }
+            else {
+                LockSupport.unpark(this.writer);
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Body of the writer thread.  Takes everything published since the last pass as one batch,
+     * writes it to the channel, and sleeps when there is nothing left until offer or close
+     * wakes it.
+     */
+    private void drain() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        StringBuilder line = new StringBuilder(128);
+        SchedulingEvent[] kinds = SchedulingEvent.values();
+        try {
+            while (true) {
+                boolean finishing = this.closed;
+                long t = this.tail;
+                long h = this.head;
+                if (t == h) {
+                    if (finishing) {
+                        break;
+                    }
+                    LockSupport.park(this);
+                    continue;
+                }
+                for (; t < h; t++) {
+                    int slot = (int) (t & this.mask);
+                    line.setLength(0);
+                    line.append("Time ");
+                    appendPadded(line, this.ticks[slot]);
+                    line.append(" : ");
+                    int event = this.events[slot];
+                    if (event < 0) {
+                        line.append(this.texts[slot]);
+                    }
+                    else if (this.scheduler != null) {
+                        line.append(this.scheduler.describe(kinds[event], this.texts[slot]));
+                    }
+                    else {
+                        line.append(kinds[event].describe(this.texts[slot]));
+                    }
+                    line.append('\n');
+                    this.texts[slot] = null;
+                    write(line, buffer, encoder);
+                }
+                // hands the whole batch of slots back to the producer at once
+                this.tail = h;
+                flush(buffer);
+            }
+            if (this.policy == OverflowPolicy.COUNT && this.dropped > 0) {
+                line.setLength(0);
+                line.append("Dropped ").append(this.dropped).append(" events\n");
+                write(line, buffer, encoder);
+                flush(buffer);
+            }
+        }
+        catch (IOException e) {
+            this.failure = e;
+        }
+    }
+
+    /**
+     * Same as the %3d used by ConsoleEventSink, without going through String.format
+     */
+    private static void appendPadded(StringBuilder line, int value) {
+        if (value >= 0 && value < 100) {
+            line.append(value < 10 ? "  " : " ");
+        }
+        line.append(value);
+    }
+
+    private void write(CharSequence text, ByteBuffer buffer, CharsetEncoder encoder) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(text);
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (!result.isOverflow()) {
+                break;
+            }
+            flush(buffer);
+        }
+        encoder.reset();
+    }
+
+    private void flush(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            this.channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,86 @@
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads back what a CheckpointOutput wrote.  Every reference to the same process id comes back
+ * as the same Process object, rebuilt with the state it had when the checkpoint was taken.
+ */
+public class CheckpointInput extends DataInputStream {
+    private final Map<Integer, Process> processes = new HashMap<>();    // Rebuilt so far, by id
+
+    public CheckpointInput(InputStream in) {
+        super(in);
+    }
+
+    /**
+     * @return the process written by CheckpointOutput.writeProcess, might be null
+     */
+    public Process readProcess() throws IOException {
+        int id = readInt();
+        if (id == -1) {
+            return null;
+        }
+        if (id < 0) {
+            return readArrival();
+        }
+        Process p = this.processes.get(id);
+        if (p == null) {
+            p = readArrival();
+            p.setId(id);
+            this.processes.put(id, p);
+        }
+        return p;
+    }
+
+    /**
+     * @return a new process with the state written by CheckpointOutput.writeArrival
+     */
+    public Process readArrival() throws IOException {
+        String name = readUTF();
+        int startTime = readInt();
+        int burstTime = readInt();
+        int totalTime = readInt();
+        int priority = readInt();
+        Process p = new StandaloneProcess(name, startTime, burstTime, totalTime, priority);
+        int elapsedBurst = readInt();
+        p.setElapsed(elapsedBurst, readInt());
+        p.setLastCpu(readInt());
+        p.setState(readByte());
+        p.setVirtualTime(readLong());
+        p.setShares(readInt());
+        int relativeDeadline = readInt();
+        p.setDeadline(readInt(), relativeDeadline);
+        p.setIoTime(readInt());
+        p.setWakeTime(readInt());
+        int cacheCpu = readInt();
+        p.setCache(cacheCpu, readInt());
+        p.setFirstRunTime(readInt());
+        return p;
+    }
+
+    /**
+     * Reads processes written by CheckpointOutput.writeProcesses, adding them to the collection
+     * in the order they were written.
+     */
+    public void readProcesses(Collection<Process> into) throws IOException {
+        int count = readInt();
+        for (int i = 0; i < count; i++) {
+            into.add(readProcess());
+        }
+    }
+
+    /**
+     * @return values written by CheckpointOutput.writeInts
+     */
+    public int[] readInts() throws IOException {
+        int[] values = new int[readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readInt();
+        }
+        return values;
+    }
+}
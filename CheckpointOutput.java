@@ -0,0 +1,92 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * Collects the state of a simulation in memory, for the Platform to write out as a checkpoint.
+ * Processes are referred to by id; the first time one is written its whole state goes with it,
+ * so a process held by several structures is only stored once and comes back as one object.
+ */
+public class CheckpointOutput extends DataOutputStream {
+    private final BitSet written = new BitSet();    // Ids of the processes already stored in full
+
+    public CheckpointOutput() {
+        super(new ByteArrayOutputStream(64 * 1024));
+    }
+
+    /**
+     * Writes a reference to a process, which may be null.  A process that hasn't arrived yet has
+     * no id, so it is written in full every time.
+     */
+    public void writeProcess(Process p) throws IOException {
+        if (p == null) {
+            writeInt(-1);
+            return;
+        }
+        if (p.getId() < 0) {
+            writeInt(-2);
+            writeArrival(p);
+            return;
+        }
+        writeInt(p.getId());
+        if (this.written.get(p.getId())) {
+            return;
+        }
+        this.written.set(p.getId());
+        writeArrival(p);
+    }
+
+    /**
+     * Writes the whole state of a process that hasn't arrived yet, and so has no id to be
+     * referred to by.  Each call writes a separate process.
+     */
+    public void writeArrival(Process p) throws IOException {
+        writeUTF(p.getName());
+        writeInt(p.getStartTime());
+        writeInt(p.getBurstTime());
+        writeInt(p.getTotalTime());
+        writeInt(p.getPriority());
+        writeInt(p.getElapsedBurst());
+        writeInt(p.getElapsedTotal());
+        writeInt(p.getLastCpu());
+        writeByte(p.getState());
+        writeLong(p.getVirtualTime());
+        writeInt(p.getShares());
+        writeInt(p.getRelativeDeadline());
+        writeInt(p.getPeriod());
+        writeInt(p.getIoTime());
+        writeInt(p.getWakeTime());
+        writeInt(p.getCacheCpu());
+        writeInt(p.getLeftCpuTime());
+        writeInt(p.getFirstRunTime());
+    }
+
+    /**
+     * Writes the number of processes and then each of them, in the collection's iteration order.
+     */
+    public void writeProcesses(Collection<Process> processes) throws IOException {
+        writeInt(processes.size());
+        for (Process p : processes) {
+            writeProcess(p);
+        }
+    }
+
+    /**
+     * Writes a length and then the values.
+     */
+    public void writeInts(int[] values) throws IOException {
+        writeInt(values.length);
+        for (int value : values) {
+            writeInt(value);
+        }
+    }
+
+    /**
+     * @return everything written so far
+     */
+    public byte[] toByteArray() {
+        return ((ByteArrayOutputStream) this.out).toByteArray();
+    }
+}
@@ -0,0 +1,131 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes the checkpoints of a running simulation in the background, so the simulation only
+ * stops long enough to copy its state into memory.  Each checkpoint goes to a temporary file
+ * next to the real one and then replaces it in a single move, so a crash part way through a
+ * write leaves the previous checkpoint intact.  One thread, started with the first checkpoint,
+ * writes them all, one at a time: a checkpoint taken before the last one is on disk waits for
+ * it.
+ *
+ * The file holds, in the big-endian order of DataOutputStream:
+ *
+ *   header     int magic, int version, scheduler class name, boolean event driven,
+ *              int clock count, int processes arrived, long processes taken from the
+ *              workload, int cpu count
+ *   running    the process on each cpu, see CheckpointOutput.writeProcess, then the ticks
+ *              each cpu still has to spend switching before its process runs
+ *   metrics    see SimulationMetrics.save
+ *   arrivals   see ArrivalWheel.saveClock; the processes still to arrive aren't written,
+ *              resume takes them from the workload again
+ *   blocked    the processes waiting for I/O or their next release, see ArrivalWheel.save,
+ *              then int how many of them are doing I/O
+ *   scheduler  whatever the scheduler's saveState writes
+ */
+class CheckpointWriter implements AutoCloseable {
+    static final int MAGIC = 0x43505553;        // "CPUS"
+    static final int VERSION = 10;
+
+    private final Path path;
+    private final Path temporary;
+    private Thread writer = null;               // Started with the first checkpoint
+    private byte[] pending = null;              // The checkpoint being written, if any; guarded by this
+    private boolean closed = false;             // Guarded by this
+    private volatile IOException failure = null;
+
+    CheckpointWriter(Path path) {
+        this.path = path;
+        this.temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    }
+
+    /**
+     * Starts writing a checkpoint, once the last one has been written.
+     * @throws UncheckedIOException if an earlier checkpoint couldn't be written
+     */
+    void write(byte[] checkpoint) {
+        await();
+        synchronized (this) {
+            this.pending = checkpoint;
+            notifyAll();
+        }
+        if (this.writer == null) {
+            this.writer = new Thread(this::work, "checkpoint-writer");
+            this.writer.setDaemon(true);
+            this.writer.start();
+        }
+    }
+
+    /**
+     * Waits for the last checkpoint to be written, and stops the writer.
+     * @throws UncheckedIOException if it couldn't be
+     */
+    @Override
+    public void close() {
+        try {
+            await();
+        }
+        finally {
+            synchronized (this) {
+                this.closed = true;
+                notifyAll();
+            }
+        }
+    }
+
+    private synchronized void await() {
+        while (this.pending != null) {
+            try {
+                wait();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (this.failure != null) {
+            throw new UncheckedIOException("Unable to write checkpoint " + this.path, this.failure);
+        }
+    }
+
+    /**
+     * Body of the writer thread: writes each checkpoint it is handed until it is closed.
+     */
+    private void work() {
+        while (true) {
+            byte[] checkpoint;
+            synchronized (this) {
+                while (this.pending == null && !this.closed) {
+                    try {
+                        wait();
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (this.pending == null) {
+                    return;
+                }
+                checkpoint = this.pending;
+            }
+            store(checkpoint);
+            synchronized (this) {
+                this.pending = null;
+                notifyAll();
+            }
+        }
+    }
+
+    private void store(byte[] checkpoint) {
+        try {
+            Files.write(this.temporary, checkpoint);
+            Files.move(this.temporary, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e) {
+            this.failure = e;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+import java.util.Comparator;
+
+/**
+ * Orders processes by virtual runtime, then by id so processes with the same virtual runtime
+ * are all kept and run in the order they arrived.  Shared by SchedulerCFS and SchedulerStride,
+ * whose passes are kept as virtual runtimes.
+ */
+class CompareVirtualTime implements Comparator<Process> {
+
+    public int compare(Process p1, Process p2) {
+        int a = Long.compare(p1.getVirtualTime(), p2.getVirtualTime());
+        if (a != 0) {
+            return a;
+        }
+        return Integer.compare(p1.getId(), p2.getId());
+    }
+}
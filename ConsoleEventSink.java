@@ -0,0 +1,25 @@
+/**
+ * EventSink that prints each event to the console in the same format Platform has always used.
+ * Given the Platform, it words each event the way the scheduler being simulated does.
+ */
+public class ConsoleEventSink implements EventSink {
+    private final Platform platform;    // Asked for the text of each event, null for the usual text
+
+    public ConsoleEventSink() {
+        this(null);
+    }
+
+    public ConsoleEventSink(Platform platform) {
+        this.platform = platform;
+    }
+
+    @Override
+    public void onEvent(SchedulingEvent event, int tick, int cpu, int processId, String processName) {
+        onMessage(tick, this.platform != null ? this.platform.describe(event, processName) : event.describe(processName));
+    }
+
+    @Override
+    public void onMessage(int tick, String message) {
+        System.out.printf("Time %3d : %s\n", tick, message);
+    }
+}
@@ -0,0 +1,20 @@
+/**
+ * Receives the events reported during a simulation.  The Platform hands every event over
+ * as primitives, so a sink that doesn't render text never pays for building it.
+ */
+public interface EventSink {
+    /**
+     * Called for every scheduling event.
+     * @param event the kind of event
+     * @param tick the clock count at which the event happened
+     * @param cpu the index of the CPU the scheduler was updating
+     * @param processId the id the Platform gave the process when it arrived
+     * @param processName the name of the process, only needed for rendering text
+     */
+    void onEvent(SchedulingEvent event, int tick, int cpu, int processId, String processName);
+
+    /**
+     * Called for free-form messages reported through Logger.log(String).
+     */
+    void onMessage(int tick, String message);
+}
@@ -0,0 +1,67 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Finds the first event where two event traces part ways, to check that a change to a
+ * scheduler or to the simulation doesn't change what happens.  Both traces are streamed, so
+ * traces of any length can be compared.  Events match when they have the same time, kind, cpu,
+ * process id and name, or for plain messages the same time and text.
+ */
+public class EventTraceDiff {
+    private final long index;       // Events that matched before the first difference, -1 if none
+    private final String left;      // The first differing event of each trace, or "end of trace"
+    private final String right;
+
+    private EventTraceDiff(long index, String left, String right) {
+        this.index = index;
+        this.left = left;
+        this.right = right;
+    }
+
+    public static EventTraceDiff compare(Path a, Path b) throws IOException {
+        try (EventTraceReader left = new EventTraceReader(a); EventTraceReader right = new EventTraceReader(b)) {
+            long matched = 0;
+            while (true) {
+                boolean moreLeft = left.next();
+                boolean moreRight = right.next();
+                if (!moreLeft && !moreRight) {
+                    return new EventTraceDiff(-1, null, null);
+                }
+                if (!moreLeft || !moreRight || !same(left, right)) {
+                    return new EventTraceDiff(matched, describe(left, moreLeft), describe(right, moreRight));
+                }
+                matched++;
+            }
+        }
+    }
+
+    /**
+     * @return true if the traces hold exactly the same events
+     */
+    public boolean isSame() { return this.index < 0; }
+
+    /**
+     * @return number of events the traces have in common before the first difference
+     */
+    public long getIndex() { return this.index; }
+
+    /**
+     * @return the first event of each trace that differs, in the usual log format
+     */
+    public String getLeft() { return this.left; }
+    public String getRight() { return this.right; }
+
+    private static boolean same(EventTraceReader a, EventTraceReader b) {
+        return a.getTick() == b.getTick() && a.getEvent() == b.getEvent() && a.getCpu() == b.getCpu()
+                && a.getProcessId() == b.getProcessId() && Objects.equals(a.getMessage(), b.getMessage());
+    }
+
+    private static String describe(EventTraceReader r, boolean more) {
+        if (!more) {
+            return "end of trace";
+        }
+        String cpu = r.getCpu() < 0 ? "" : String.format(" (cpu %d, process %d)", r.getCpu(), r.getProcessId());
+        return String.format("Time %3d : %s%s", r.getTick(), r.getMessage(), cpu);
+    }
+}
@@ -0,0 +1,172 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Streams back the events recorded by an EventTraceWriter, one at a time.  The file is read
+ * through a fixed size buffer, and only the names of processes that haven't completed yet are
+ * remembered, so a trace of any length can be replayed or filtered in the same memory.
+ *
+ * Call next to move to each event in turn; the getters describe the current one.
+ */
+public class EventTraceReader implements AutoCloseable {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final SchedulingEvent[] EVENTS = SchedulingEvent.values();
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Map<Integer, String> names = new HashMap<>();    // Processes that haven't completed
+    private long index = -1;
+    private int tick = 0;
+    private SchedulingEvent event;      // Null for a plain message
+    private int cpu;
+    private int processId;
+    private String text;                // Process name for events, the whole message otherwise
+
+    public EventTraceReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.buffer.flip();
+        if (!fill(EventTraceWriter.HEADER_SIZE) || this.buffer.getInt() != EventTraceWriter.MAGIC) {
+            this.channel.close();
+            throw new IOException(path + " is not an event trace file");
+        }
+        int version = this.buffer.getInt();
+        if (version != EventTraceWriter.VERSION) {
+            this.channel.close();
+            throw new IOException("Unsupported event trace version " + version);
+        }
+    }
+
+    /**
+     * Moves on to the next event.
+     * @return false once there are no more
+     */
+    public boolean next() throws IOException {
+        if (this.event == SchedulingEvent.EXECUTION_COMPLETE) {
+            this.names.remove(this.processId);
+        }
+        while (fill(EventTraceWriter.RECORD_SIZE)) {
+            int type = this.buffer.get() & 0xFF;
+            this.tick += this.buffer.get() & 0xFF;
+            int cpu = this.buffer.getShort() & 0xFFFF;
+            int value = this.buffer.getInt();
+            switch (type) {
+                case EventTraceWriter.CLOCK:
+                    this.tick += value;
+                    break;
+                case EventTraceWriter.NAME:
+                    this.names.put(value, readText(cpu));
+                    break;
+                case EventTraceWriter.MESSAGE:
+                    this.index++;
+                    this.event = null;
+                    this.cpu = -1;
+                    this.processId = -1;
+                    this.text = readText(value);
+                    return true;
+                default:
+                    if (type >= EVENTS.length) {
+                        throw new IOException("Unknown event type " + type + " after event " + this.index);
+                    }
+                    this.index++;
+                    this.event = EVENTS[type];
+                    this.cpu = cpu == EventTraceWriter.NO_CPU ? -1 : cpu;
+                    this.processId = value;
+                    this.text = this.names.get(value);
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return number of events before the current one
+     */
+    public long getIndex() { return this.index; }
+    public int getTick() { return this.tick; }
+
+    /**
+     * @return the kind of event, null if it is a plain message
+     */
+    public SchedulingEvent getEvent() { return this.event; }
+    public int getCpu() { return this.cpu; }
+    public int getProcessId() { return this.processId; }
+    public String getProcessName() { return this.event == null ? null : this.text; }
+
+    /**
+     * @return the event as Platform has always printed it, without the time
+     */
+    public String getMessage() {
+        return this.event == null ? this.text : this.event.describe(this.text);
+    }
+
+    /**
+     * Passes every remaining event the filter accepts on to a sink; the filter sees the reader
+     * positioned at each event.  Replaying into a ConsoleEventSink prints the text log, and into
+     * an EventTraceWriter makes a smaller trace.
+     * @return number of events passed on
+     */
+    public long replay(EventSink sink, Predicate<EventTraceReader> filter) throws IOException {
+        long passed = 0;
+        while (next()) {
+            if (filter.test(this)) {
+                if (this.event == null) {
+                    sink.onMessage(this.tick, this.text);
+                }
+                else {
+                    sink.onEvent(this.event, this.tick, this.cpu, this.processId, this.text);
+                }
+                passed++;
+            }
+        }
+        return passed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    private String readText(int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            if (!fill(1)) {
+                throw new EOFException("Event trace ends part way through a name or message");
+            }
+            int n = Math.min(length - offset, this.buffer.remaining());
+            this.buffer.get(bytes, offset, n);
+            offset += n;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Makes sure at least the given number of bytes are in the buffer.
+     * @return false if the file ends first
+     */
+    private boolean fill(int needed) throws IOException {
+        if (this.buffer.remaining() >= needed) {
+            return true;
+        }
+        this.buffer.compact();
+        while (this.buffer.position() < needed) {
+            if (this.channel.read(this.buffer) < 0) {
+                this.buffer.flip();
+                if (this.buffer.hasRemaining()) {
+                    throw new EOFException("Event trace ends part way through a record");
+                }
+                return false;
+            }
+        }
+        this.buffer.flip();
+        return true;
+    }
+}
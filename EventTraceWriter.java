@@ -0,0 +1,146 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * EventSink that records scheduling events in a compact binary file, for EventTraceReader to
+ * stream back.  Every event is one fixed size record holding the clock as a delta from the
+ * previous record, so a typical event takes 8 bytes rather than the 30 or so of its text, and
+ * nothing is formatted while the simulation runs.  A process's name is written once, just
+ * before its first event.
+ *
+ *   header   int magic, int version
+ *   record   byte type, unsigned byte tick delta, unsigned short cpu, int process id
+ *
+ *   type 0..n     a SchedulingEvent, by ordinal
+ *   type CLOCK    the clock moved by more than a tick delta holds; the process id field
+ *                 holds the whole delta, which may be negative
+ *   type NAME     names the process in the process id field; the cpu field holds the length
+ *                 of the name, which follows in UTF-8
+ *   type MESSAGE  a plain message; the process id field holds the length of the text, which
+ *                 follows in UTF-8
+ *
+ * A cpu field of 0xFFFF means no cpu.  Events must be reported from a single thread.
+ */
+public class EventTraceWriter implements EventSink, AutoCloseable {
+    static final int MAGIC = 0x43505545;        // "CPUE"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_SIZE = 8;
+    static final int CLOCK = 0xFD;
+    static final int NAME = 0xFE;
+    static final int MESSAGE = 0xFF;
+    static final int NO_CPU = 0xFFFF;
+    static final int MAX_TICK_DELTA = 0xFF;
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final BitSet named = new BitSet();  // Processes whose name has been written and are still running
+    private int lastTick = 0;
+    private long count = 0;
+
+    /**
+     * Creates the trace file, replacing any file already there.
+     */
+    public EventTraceWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer.putInt(MAGIC).putInt(VERSION);
+    }
+
+    @Override
+    public void onEvent(SchedulingEvent event, int tick, int cpu, int processId, String processName) {
+        try {
+            if (processId >= 0 && !this.named.get(processId)) {
+                byte[] name = processName.getBytes(StandardCharsets.UTF_8);
+                if (name.length > 0xFFFF) {
+                    throw new IOException("Process name is too long for the event trace format: " + processName);
+                }
+                record(NAME, tick, name.length, processId);
+                put(name);
+                this.named.set(processId);
+            }
+            record(event.ordinal(), tick, cpu, processId);
+            if (event == SchedulingEvent.EXECUTION_COMPLETE && processId >= 0) {
+                // the reader forgets the name at this point, so it is written again if the id comes back
+                this.named.clear(processId);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void onMessage(int tick, String message) {
+        try {
+            byte[] text = message.getBytes(StandardCharsets.UTF_8);
+            record(MESSAGE, tick, NO_CPU, text.length);
+            put(text);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return number of events and messages written so far
+     */
+    public long getCount() { return this.count; }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        }
+        finally {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Writes one record, preceded by a CLOCK record if the clock moved too far to fit in it.
+     */
+    private void record(int type, int tick, int cpu, int value) throws IOException {
+        if (this.buffer.remaining() < 2 * RECORD_SIZE) {
+            flush();
+        }
+        int delta = tick - this.lastTick;
+        if (delta < 0 || delta > MAX_TICK_DELTA) {
+            this.buffer.put((byte) CLOCK).put((byte) 0).putShort((short) NO_CPU).putInt(delta);
+            delta = 0;
+        }
+        this.buffer.put((byte) type).put((byte) delta).putShort((short) (cpu < 0 ? NO_CPU : cpu)).putInt(value);
+        this.lastTick = tick;
+        if (type != NAME) {
+            this.count++;
+        }
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!this.buffer.hasRemaining()) {
+                flush();
+            }
+            int length = Math.min(bytes.length - offset, this.buffer.remaining());
+            this.buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    private void flush() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+}
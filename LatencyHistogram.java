@@ -0,0 +1,133 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Fixed size histogram of non-negative values with logarithmic buckets.  Each power of two
+ * range is split into 32 equal sub-buckets, so any value is reported to within about 3%
+ * while the whole histogram stays at a couple of thousand counters however many values are
+ * recorded.  Recording a value is a few shifts and an increment.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // values below SUB_BUCKETS get a bucket each; every power of two above that gets SUB_BUCKETS
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count = 0;
+    private long total = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+
+    /**
+     * Adds a value to the histogram; negative values are counted as 0.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        this.counts[bucketOf(value)]++;
+        this.count++;
+        this.total += value;
+        this.min = Math.min(this.min, value);
+        this.max = Math.max(this.max, value);
+    }
+
+    /**
+     * Adds everything recorded in another histogram to this one.
+     */
+    public void add(LatencyHistogram other) {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            this.counts[bucket] += other.counts[bucket];
+        }
+        this.count += other.count;
+        this.total += other.total;
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+    }
+
+    /**
+     * Writes the histogram for a checkpoint.  Only buckets with something in them are written,
+     * which is usually a small fraction of them.
+     */
+    void save(DataOutput out) throws IOException {
+        int used = 0;
+        for (long c : this.counts) {
+            used += c != 0 ? 1 : 0;
+        }
+        out.writeInt(used);
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            if (this.counts[bucket] != 0) {
+                out.writeShort(bucket);
+                out.writeLong(this.counts[bucket]);
+            }
+        }
+        out.writeLong(this.count);
+        out.writeLong(this.total);
+        out.writeLong(this.min);
+        out.writeLong(this.max);
+    }
+
+    /**
+     * Replaces the contents of the histogram with what save wrote.
+     */
+    void restore(DataInput in) throws IOException {
+        Arrays.fill(this.counts, 0);
+        int used = in.readInt();
+        for (int i = 0; i < used; i++) {
+            int bucket = in.readUnsignedShort();
+            this.counts[bucket] = in.readLong();
+        }
+        this.count = in.readLong();
+        this.total = in.readLong();
+        this.min = in.readLong();
+        this.max = in.readLong();
+    }
+
+    public long getCount() { return this.count; }
+    public long getMin() { return this.count == 0 ? 0 : this.min; }
+    public long getMax() { return this.max; }
+    public double getMean() { return this.count == 0 ? 0 : (double) this.total / this.count; }
+
+    /**
+     * @param percentile between 0 and 100, e.g. 99.9
+     * @return the smallest value that at least that percentage of the recorded values are at or
+     *         below, to within the bucket resolution
+     */
+    public long getPercentile(double percentile) {
+        if (this.count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * this.count);
+        rank = Math.max(1, Math.min(rank, this.count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += this.counts[bucket];
+            if (seen >= rank) {
+                return Math.min(Math.max(highestValueIn(bucket), this.min), this.max);
+            }
+        }
+        return this.max;
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);        // >= SUB_BUCKET_BITS
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) - SUB_BUCKETS;                // the bits below the leading one
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long sub = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+}
@@ -3,4 +3,10 @@
  */
 public interface Logger {
     void log(String message);
+
+    /**
+     * Report a structured scheduling event about a process.  The logger fills in the time
+     * and CPU, and nothing is formatted unless the event actually gets rendered as text.
+     */
+    void log(SchedulingEvent event, Process p);
 }
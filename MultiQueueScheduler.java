@@ -0,0 +1,217 @@
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * Gives every CPU of the platform its own ready queue by running a separate instance of
+ * another scheduling algorithm per CPU.  New processes go to the least loaded CPU, and a CPU
+ * that runs out of work steals the next process from the CPU with the most waiting.
+ */
+public class MultiQueueScheduler implements Scheduler {
+
+    // one scheduler, and so one ready queue, per cpu
+    private Scheduler[] queues;
+    // the process each cpu ended up with after its last update
+    private Process[] running;
+    // the number of processes taken from another cpu's queue
+    private int steals = 0;
+    // per cpu, the number of times a process ran on it after running on a different cpu, kept
+    // apart so cpus updated on different threads don't share a counter
+    private int[] migrations;
+
+    /**
+     * @param platform the reference to platform
+     * @param factory builds the scheduler used for each cpu's queue, e.g. SchedulerRR::new
+     */
+    public MultiQueueScheduler(Platform platform, Function<Platform, Scheduler> factory) {
+        queues = new Scheduler[platform.getCpuCount()];
+        for (int cpu = 0; cpu < queues.length; cpu++) {
+            queues[cpu] = factory.apply(platform);
+        }
+        running = new Process[queues.length];
+        migrations = new int[queues.length];
+    }
+
+    /**
+     * @return the context switches of all the cpu queues together
+     */
+    @Override
+    public int getNumberOfContextSwitches() {
+        int total = 0;
+        for (Scheduler queue : queues) {
+            total += queue.getNumberOfContextSwitches();
+        }
+        return total;
+    }
+
+    @Override
+    public int getNumberOfSteals() {
+        return steals;
+    }
+
+    @Override
+    public int getNumberOfMigrations() {
+        int total = 0;
+        for (int count : migrations) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Puts the new process on the cpu with the fewest processes, counting the one running.
+     *
+     * @param p the process to add
+     */
+    @Override
+    public void notifyNewProcess(Process p) {
+        int best = 0;
+        int bestLoad = Integer.MAX_VALUE;
+        for (int cpu = 0; cpu < queues.length; cpu++) {
+            int load = queues[cpu].getReadyCount() + (running[cpu] != null ? 1 : 0);
+            if (load < bestLoad) {
+                best = cpu;
+                bestLoad = load;
+            }
+        }
+        queues[best].notifyNewProcess(p);
+    }
+
+    /**
+     * Without a cpu index there is no way to tell which queue to use, so this is the first cpu.
+     */
+    @Override
+    public Process update(Process cpu) {
+        return update(cpu, 0);
+    }
+
+    /**
+     * Updates the queue belonging to the cpu.  If that leaves the cpu idle with nothing in its
+     * own queue, it steals from the busiest other queue and schedules again.
+     *
+     * @param cpu the process currently running on the cpu
+     * @param cpuIndex which cpu is being updated
+     * @return the process running on the cpu, might be null
+     */
+    @Override
+    public Process update(Process cpu, int cpuIndex) {
+        Scheduler own = queues[cpuIndex];
+        Process next = own.update(cpu, cpuIndex);
+        if (next == null && own.getReadyCount() == 0 && stealInto(cpuIndex)) {
+            next = own.update(null, cpuIndex);
+        }
+        if (next != null) {
+            if (next.getLastCpu() != -1 && next.getLastCpu() != cpuIndex) {
+                migrations[cpuIndex]++;
+            }
+            next.setLastCpu(cpuIndex);
+        }
+        running[cpuIndex] = next;
+        return next;
+    }
+
+    /**
+     * An update only steals when it leaves the cpu idle with nothing in its own queue.  That can't
+     * happen while there is something in the queue, or while the running process is more than a
+     * tick from the end of its burst, so then the update only touches the cpu's own queue.
+     */
+    @Override
+    public boolean isLocalUpdate(Process cpu, int cpuIndex) {
+        if (queues[cpuIndex].getReadyCount() > 0) {
+            return true;
+        }
+        return cpu != null && cpu.getTicksToBurstEnd() > 1 && cpu.getTicksToExecutionEnd() > 1;
+    }
+
+    /**
+     * Moves the next process from the queue with the most waiting over to the given cpu.
+     * @return true if something was stolen
+     */
+    private boolean stealInto(int thief) {
+        int victim = busiestOther(thief);
+        if (victim < 0) {
+            return false;
+        }
+        Process p = queues[victim].steal();
+        if (p == null) {
+            return false;
+        }
+        queues[thief].notifyNewProcess(p);
+        steals++;
+        return true;
+    }
+
+    /**
+     * @return the cpu, other than the given one, with the most waiting in its queue; -1 if
+     *         every other queue is empty
+     */
+    private int busiestOther(int thief) {
+        int busiest = -1;
+        int most = 0;
+        for (int cpu = 0; cpu < queues.length; cpu++) {
+            int waiting = queues[cpu].getReadyCount();
+            if (cpu != thief && waiting > most) {
+                busiest = cpu;
+                most = waiting;
+            }
+        }
+        return busiest;
+    }
+
+    @Override
+    public int getReadyCount() {
+        int total = 0;
+        for (Scheduler queue : queues) {
+            total += queue.getReadyCount();
+        }
+        return total;
+    }
+
+    @Override
+    public Process steal() {
+        int victim = busiestOther(-1);
+        return victim < 0 ? null : queues[victim].steal();
+    }
+
+    /**
+     * Writes the steal and migration counts and then each cpu's queue, using the state saving of
+     * the scheduler the queues were built with.
+     */
+    @Override
+    public void saveState(CheckpointOutput out) throws IOException {
+        out.writeInt(steals);
+        out.writeInt(getNumberOfMigrations());
+        out.writeInt(queues.length);
+        for (int cpu = 0; cpu < queues.length; cpu++) {
+            out.writeProcess(running[cpu]);
+            queues[cpu].saveState(out);
+        }
+    }
+
+    @Override
+    public void restoreState(CheckpointInput in) throws IOException {
+        steals = in.readInt();
+        migrations = new int[queues.length];
+        migrations[0] = in.readInt();
+        int count = in.readInt();
+        if (count != queues.length) {
+            throw new IOException("Checkpoint has " + count + " cpu queues, the platform has " + queues.length);
+        }
+        for (int cpu = 0; cpu < queues.length; cpu++) {
+            running[cpu] = in.readProcess();
+            queues[cpu].restoreState(in);
+        }
+    }
+
+    /**
+     * A cpu is quiet for as long as its own queue says so, except that an idle cpu with an
+     * empty queue has to wake up right away if there is anything it could steal.
+     */
+    @Override
+    public int getQuietTicks(Process cpu, int cpuIndex) {
+        int quiet = queues[cpuIndex].getQuietTicks(cpu, cpuIndex);
+        if (cpu == null && queues[cpuIndex].getReadyCount() == 0 && busiestOther(cpuIndex) >= 0) {
+            return 0;
+        }
+        return quiet;
+    }
+}
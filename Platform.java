@@ -1,4 +1,23 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
 
 /**
  * The simulation of the OS takes place here.  The specific scheduling
@@ -6,12 +25,168 @@ import java.util.Queue;
  * code is unaware of the scheduling specifics.
  */
 public class Platform implements Logger {
+    private static final int MIN_SHARDED_CPUS = 32;    // Fewest CPUs in a row worth sharing out over threads
+    private static final int SAMPLE_TICKS = 64;         // Ticks between samples of the counters
+    private static final int STREAM_LOOKAHEAD = 4096;   // Processes read ahead of the clock from a stream by default
+
+    // Looked up once, so whether a Flight Recorder event is turned on can be asked every tick
+    // without making one; an event object is only made when it is going to be used
+    private static final EventType ARRIVAL_BATCH = EventType.getEventType(ArrivalBatchEvent.class);
+    private static final EventType SCHEDULING_DECISION = EventType.getEventType(SchedulingDecisionEvent.class);
+    private static final EventType PREEMPTION = EventType.getEventType(PreemptionEvent.class);
+
     private int cpuCount;
     private Process[] running;
     private int clockCounter;
+    private int currentCpu;         // The CPU the scheduler is currently being updated for
+    private int nextProcessId;      // Id given to the next process that arrives
+    private EventSink sink = new ConsoleEventSink(this);
+    private SimulationMetrics metrics = new SimulationMetrics(0);   // Of the current, or last, simulation
+    private int switchCost = 0;         // Ticks a CPU spends switching to a different process
+    private int warmWindow = 0;         // Ticks a process's cache stays warm after it leaves a CPU
+    private int coldPenalty = 0;        // Extra ticks a process with a cold cache takes to get going
+    private int[] stall;                // Per CPU, ticks before its process makes progress again
+    private boolean[] ran;              // Per CPU, whether its process made progress in the tick just gone
+    private Path checkpointPath;        // Where checkpoints are written, null for none
+    private int checkpointInterval;     // Ticks between checkpoints
+    private ArrivalWheel arrivals;      // Processes yet to arrive, other than those still in the stream
+    private ArrivalStream stream;       // The workload, when it is a stream read as the clock reaches it
+    private long taken;                 // Processes taken from the workload so far
+    private int streamLookahead = STREAM_LOOKAHEAD; // Processes kept waiting in the wheel ahead of a stream
+    private ArrivalWheel blocked;       // Processes blocked for I/O or their next release, keyed by when they wake
+    private int blockedForIo;           // Of those, the ones doing I/O
+    private Scheduler scheduler;        // Of the simulation that is running
+    private int parallelism = 1;        // Threads the CPUs of a tick are shared out over
+    private CpuShards shards;           // Of the simulation that is running, null if it runs on one thread
+    private boolean[] completed;        // Per CPU, whether its process completed a burst this tick
+    private Process[] chosen;           // Per CPU, what the scheduler chose for it this tick
+    private final Consumer<Process> arrive = this::arrive;
+    private final Consumer<Process> wake = this::wake;
+    private final IntConsumer updateCpu = this::updateCpu;
+    private final SimulationCounters counters;  // Sampled from the simulation as it runs
+    private long decisions;             // Scheduler updates since the simulation started or resumed
+    private long preemptions;           // Processes taken off a CPU before their burst completed, likewise
+    private int nextSample;             // Clock count at which the counters are next sampled
 
     public Platform(int cpuCount) {
         this.cpuCount = cpuCount;
+        this.counters = new SimulationCounters(cpuCount);
+    }
+
+    public int getCpuCount() { return this.cpuCount; }
+
+    /**
+     * @return the current clock count; once a simulation is done, the number of ticks it took
+     */
+    public int getClockCounter() { return this.clockCounter; }
+
+    /**
+     * Lets a scheduler tell whether the process it is updating a CPU for has had any time on it.
+     * Without switching costs that is always true of a running process, as it is of any process
+     * when the scheduler is used outside a simulation.
+     * @return true if the process on the CPU ran in the tick just gone, false if the CPU was
+     *         still switching to it or has none
+     */
+    public boolean hasRun(int cpu) { return this.ran == null || this.ran[cpu]; }
+
+    /**
+     * @return latency and utilization of the current simulation, or the last one once it is done
+     */
+    public SimulationMetrics getMetrics() { return this.metrics; }
+
+    /**
+     * @return counters of the current simulation, or the last one, that can be read while it runs
+     */
+    public SimulationCounters getCounters() { return this.counters; }
+
+    /**
+     * Sets where scheduling events are reported.  Passing null turns reporting off entirely,
+     * in which case logging an event costs a single null check.
+     */
+    public void setEventSink(EventSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * @return the text for an event, in the words of the scheduler being simulated
+     */
+    public String describe(SchedulingEvent event, String processName) {
+        return this.scheduler != null ? this.scheduler.describe(event, processName) : event.describe(processName);
+    }
+
+    /**
+     * Charges for context switches: every time a CPU is given a different process, it spends the
+     * given number of ticks switching before the process makes any progress.  The default of 0
+     * makes switches free.
+     */
+    public void setContextSwitchCost(int ticks) {
+        if (ticks < 0) {
+            throw new IllegalArgumentException("Context switch cost can't be negative");
+        }
+        this.switchCost = ticks;
+    }
+
+    /**
+     * Models each CPU's cache.  A process put back on the CPU it last ran on, within warmWindow
+     * ticks of leaving it, finds its cache warm and runs at full speed; one that moves to another
+     * CPU, has been away longer, or has never run spends coldPenalty extra ticks warming the cache
+     * first.  The default penalty of 0 turns the model off.
+     */
+    public void setCacheAffinity(int warmWindow, int coldPenalty) {
+        if (warmWindow < 0 || coldPenalty < 0) {
+            throw new IllegalArgumentException("Warm window and cold penalty can't be negative");
+        }
+        this.warmWindow = warmWindow;
+        this.coldPenalty = coldPenalty;
+    }
+
+    /**
+     * Shares the work of each tick out over the given number of threads, for platforms with a
+     * lot of CPUs.  The CPUs are split into one shard per thread, and each thread moves on the
+     * processes of its shard and updates the scheduler for them, as long as the updates are
+     * local, see Scheduler.isLocalUpdate.  MultiQueueScheduler's updates mostly are; those of a
+     * scheduler whose CPUs share a queue never are, so it gains nothing.  What the threads log
+     * or block is held back and let through in CPU order, and updates that aren't local are
+     * made in CPU order on one thread, so the log and metrics come out exactly the same as with
+     * 1, the default.
+     */
+    public void setParallelism(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.parallelism = threads;
+    }
+
+    /**
+     * Sets how far ahead of the clock a workload given as an ArrivalStream is read: processes are
+     * taken from the stream into the arrival wheel until this many are waiting there, as well as
+     * whenever the next one is due.  A stream only has to be in order of start time to within
+     * that many processes, as a trace merged from several hosts usually is; a process further out
+     * of order than that is reached after its start time, and the simulation stops with an
+     * IllegalStateException rather than have it arrive late.  The default is 4096.
+     */
+    public void setStreamLookahead(int processes) {
+        if (processes < 0) {
+            throw new IllegalArgumentException("Stream look-ahead can't be negative");
+        }
+        this.streamLookahead = processes;
+    }
+
+    /**
+     * Makes simulations write a checkpoint every interval ticks, each one replacing the last, so
+     * a long simulation can be picked up again with resume after it stops.  Passing a null path
+     * turns checkpoints off.  The scheduler has to support saveState.
+     *
+     * A checkpoint holds the processes that have arrived and haven't finished, on a cpu, ready
+     * or blocked, and none of those still to arrive, so its size and the time the simulation
+     * stops to take it don't grow with the workload.
+     */
+    public void setCheckpoint(Path path, int interval) {
+        if (path != null && interval <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive");
+        }
+        this.checkpointPath = path;
+        this.checkpointInterval = interval;
     }
 
     /**
@@ -20,58 +195,1027 @@ public class Platform implements Logger {
      * @param processes
      */
     public void simulate(Scheduler scheduler, Queue<Process> processes) {
+        reset();
+        load(processes, 0);
+
+        run(scheduler, false);
+    }
+
+    /**
+     * Simulates a workload read from a stream as the clock reaches it, see setStreamLookahead.
+     */
+    public void simulate(Scheduler scheduler, ArrivalStream processes) {
+        reset();
+        load(processes, 0);
+
+        run(scheduler, false);
+    }
+
+    /**
+     * Simulates a workload held in a ProcessTable.  Rows are handed over as they arrive, so only
+     * processes that have arrived and not yet finished have a Process view in memory.  The
+     * scheduler still works on those views, there is no version of the schedulers that works on
+     * rows or ids instead.
+     */
+    public void simulate(Scheduler scheduler, ProcessTable processes) {
+        simulate(scheduler, processes.arrivals());
+    }
+
+    /**
+     * Event driven version of the simulation.  Rather than stepping every clock count, it jumps
+     * straight to the next tick where something can happen: a process arrives or its I/O
+     * completes, a burst or the whole execution completes, or the scheduler wants to make a decision (quantum expiry,
+     * preemption).  The scheduler reports the ticks it can skip through Scheduler.getQuietTicks,
+     * so the log and context switch counts come out the same as simulate.
+     * @param processes
+     */
+    public void simulateEventDriven(Scheduler scheduler, Queue<Process> processes) {
+        reset();
+        load(processes, 0);
+
+        run(scheduler, true);
+    }
+
+    /**
+     * Event driven simulation of a workload read from a stream.
+     */
+    public void simulateEventDriven(Scheduler scheduler, ArrivalStream processes) {
+        reset();
+        load(processes, 0);
+
+        run(scheduler, true);
+    }
+
+    /**
+     * Event driven simulation of a workload held in a ProcessTable.
+     */
+    public void simulateEventDriven(Scheduler scheduler, ProcessTable processes) {
+        simulateEventDriven(scheduler, processes.arrivals());
+    }
+
+    /**
+     * Adds a process to the simulation that is running, for workloads that aren't all known up
+     * front; a scheduler or an event sink can call this as the simulation goes.  The process
+     * arrives at its start time, or on the next tick if that has already passed.
+     */
+    public void submit(Process p) {
+        if (this.arrivals == null) {
+            throw new IllegalStateException("Processes can only be submitted while a simulation is running");
+        }
+        this.arrivals.add(p);
+    }
+
+    /**
+     * Called by a scheduler when the process it is updating has completed a burst, but not its
+     * execution.  A process that does I/O between bursts is blocked until the I/O completes, and
+     * a periodic process until its next burst is released, whichever is later; then it is
+     * handed back to the scheduler with notifyNewProcess, and the scheduler must not put it in
+     * its ready queue meanwhile.  The blocked processes are kept in a timing wheel by the tick
+     * they wake, so however many there are, a tick only looks at those waking then.
+     * @return true if the process is now blocked, false if it has no I/O to do, its next burst
+     *         is already released, and it should go back in the ready queue as usual
+     */
+    public boolean startIo(Process p) {
+        if (this.blocked == null || p.isExecutionComplete()) {
+            return false;
+        }
+        long wakeTime = Math.max((long) this.clockCounter + Math.max(p.getIoTime(), 0), p.getReleaseTime());
+        if (wakeTime <= this.clockCounter) {
+            return false;
+        }
+        p.setWakeTime((int) Math.min(wakeTime, Integer.MAX_VALUE));
+        p.setState(ProcessTable.BLOCKED);
+        CpuShard shard = heldBack();
+        if (shard != null) {
+            shard.hold(null, p, null);
+        }
+        else {
+            block(p);
+        }
+        log(p.getIoTime() > 0 ? SchedulingEvent.IO_STARTED : SchedulingEvent.RELEASE_WAIT, p);
+        return true;
+    }
+
+    private void block(Process p) {
+        this.blocked.add(p);
+        if (p.getIoTime() > 0) {
+            this.blockedForIo++;
+            this.metrics.recordIo(p.getIoTime());
+        }
+    }
+
+    /**
+     * Carries on a simulation from a checkpoint, the same way it was running when the checkpoint
+     * was written.  The platform must be set up the same way, costs included, the scheduler must
+     * be a new one of the same class, and the processes the whole
+     * workload from the start, as it was given to the simulation; those the simulation had already
+     * taken from it are skipped, their state comes from the checkpoint, except those that hadn't
+     * arrived yet, which are waiting to arrive again.  The rest of the log
+     * and the final metrics come out the same as if the simulation had never stopped.
+     */
+    public void resume(Scheduler scheduler, Queue<Process> processes, Path checkpoint) throws IOException {
+        boolean eventDriven = restore(scheduler, processes::poll, checkpoint);
+        load(processes, this.taken);
+
+        run(scheduler, eventDriven);
+    }
+
+    /**
+     * Carries on a simulation of a workload read from a stream, which has to be the whole stream
+     * from the start.
+     */
+    public void resume(Scheduler scheduler, ArrivalStream processes, Path checkpoint) throws IOException {
+        boolean eventDriven = restore(scheduler, processes::poll, checkpoint);
+        load(processes, this.taken);
+
+        run(scheduler, eventDriven);
+    }
+
+    /**
+     * Sets the platform and scheduler back to how they were at a checkpoint, and takes the
+     * processes the simulation had taken by then from the workload.
+     * @param workload takes the next process from the workload, null once there are no more
+     * @return whether the simulation was event driven
+     */
+    private boolean restore(Scheduler scheduler, Supplier<Process> workload, Path checkpoint) throws IOException {
+        boolean eventDriven;
+        long skip;
+        try (CheckpointInput in = new CheckpointInput(new BufferedInputStream(Files.newInputStream(checkpoint)))) {
+            if (in.readInt() != CheckpointWriter.MAGIC) {
+                throw new IOException(checkpoint + " is not a checkpoint file");
+            }
+            int version = in.readInt();
+            if (version != CheckpointWriter.VERSION) {
+                throw new IOException("Unsupported checkpoint version " + version);
+            }
+            String schedulerClass = in.readUTF();
+            if (!schedulerClass.equals(scheduler.getClass().getName())) {
+                throw new IOException("Checkpoint is of a " + schedulerClass + ", not a " + scheduler.getClass().getName());
+            }
+            eventDriven = in.readBoolean();
+            this.clockCounter = in.readInt();
+            this.nextProcessId = in.readInt();
+            skip = in.readLong();
+            int cpus = in.readInt();
+            if (cpus != this.cpuCount) {
+                throw new IOException("Checkpoint has " + cpus + " cpus, the platform has " + this.cpuCount);
+            }
+            this.running = new Process[cpuCount];
+            for (int cpu = 0; cpu < this.cpuCount; cpu++) {
+                this.running[cpu] = in.readProcess();
+            }
+            this.stall = in.readInts();
+            this.metrics = SimulationMetrics.restore(in);
+            this.arrivals = new ArrivalWheel();
+            this.arrivals.restoreClock(in);
+            this.blocked = new ArrivalWheel(Process::getWakeTime);
+            this.blocked.restore(in);
+            this.blockedForIo = in.readInt();
+            scheduler.restoreState(in);
+        }
+        for (long i = 0; i < skip; i++) {
+            Process p = workload.get();
+            if (p == null) {
+                throw new IOException("More processes had been taken from the workload at the checkpoint than are in it");
+            }
+            // due at the checkpoint's clock or later, so it was still waiting to arrive then
+            if (p.getStartTime() >= this.clockCounter) {
+                this.arrivals.add(p);
+            }
+        }
+        this.taken = skip;
+        return eventDriven;
+    }
+
+    /**
+     * Gets the platform ready for a new simulation.
+     */
+    private void reset() {
         this.running = new Process[cpuCount];
+        this.stall = new int[cpuCount];
         this.clockCounter = 0;
+        this.nextProcessId = 0;
+        this.metrics = new SimulationMetrics(cpuCount);
+        this.arrivals = new ArrivalWheel();
+        this.blocked = new ArrivalWheel(Process::getWakeTime);
+        this.blockedForIo = 0;
+    }
 
-        boolean done = simulationDone(processes);;
-        while (!done) {
-            //
-            // Look at the queue of incoming processes and see if any of those need to be added to scheduler
-            // as newly ready processes.
-            boolean doneAdding = false;
-            while (!doneAdding) {
-                Process p = processes.peek();
-                if (p != null && p.getStartTime() <= clockCounter) {
-                    scheduler.notifyNewProcess(p);
-                    processes.remove();
+    /**
+     * The simulation loop shared by simulate, simulateEventDriven and resume, writing
+     * checkpoints along the way if they are turned on.
+     */
+    private void run(Scheduler scheduler, boolean eventDriven) {
+        this.scheduler = scheduler;
+        this.ran = new boolean[cpuCount];
+        if (this.parallelism > 1 && this.cpuCount > 1) {
+            this.shards = new CpuShards(this.cpuCount, this.parallelism);
+            this.completed = new boolean[cpuCount];
+            this.chosen = new Process[cpuCount];
+        }
+        CheckpointWriter checkpoints = null;
+        long nextCheckpoint = Long.MAX_VALUE;
+        if (this.checkpointPath != null) {
+            checkpoints = new CheckpointWriter(this.checkpointPath);
+            nextCheckpoint = ((long) clockCounter / checkpointInterval + 1) * checkpointInterval;
+        }
+        this.decisions = 0;
+        this.preemptions = 0;
+        this.nextSample = this.clockCounter;
+        this.counters.start();
+        try {
+            boolean done = simulationDone();
+            while (!done) {
+                if (clockCounter >= nextCheckpoint) {
+                    checkpoints.write(checkpoint(scheduler, eventDriven));
+                    nextCheckpoint = ((long) clockCounter / checkpointInterval + 1) * checkpointInterval;
                 }
-                else {
-                    doneAdding = true;
+                if (eventDriven) {
+                    // anything read ahead from the stream may be due before the stream's next process
+                    if (this.stream != null) {
+                        readStream();
+                    }
+                    int skip = ticksToNextEvent(scheduler);
+                    if (skip > 0) {
+                        for (int cpu = 0; cpu < this.cpuCount; cpu++) {
+                            Process p = this.running[cpu];
+                            if (p != null) {
+                                int stalled = Math.min(this.stall[cpu], skip);
+                                this.stall[cpu] -= stalled;
+                                this.metrics.recordOverhead(cpu, stalled);
+                                if (stalled < skip && p.getFirstRunTime() < 0) {
+                                    // the first of the skipped ticks it runs in is clockCounter + stalled
+                                    p.setFirstRunTime(clockCounter + stalled - 1);
+                                    this.metrics.recordFirstRun(p, p.getFirstRunTime());
+                                }
+                                p.advance(skip - stalled);
+                                this.metrics.recordBusy(cpu, skip - stalled);
+                            }
+                            else if (this.blockedForIo > 0) {
+                                this.metrics.recordIoWait(cpu, skip);
+                            }
+                        }
+                        clockCounter += skip;
+                        this.metrics.recordTicks(skip);
+                    }
                 }
+                tick(scheduler);
+
+                done = simulationDone();
+            }
+        }
+        finally {
+            sample(scheduler);
+            this.counters.finish();
+            this.arrivals = null;
+            this.blocked = null;
+            this.stream = null;
+            this.scheduler = null;
+            this.ran = null;
+            if (this.shards != null) {
+                this.shards.close();
+                this.shards = null;
+                this.completed = null;
+                this.chosen = null;
+            }
+            if (checkpoints != null) {
+                checkpoints.close();
+            }
+        }
+    }
+
+    /**
+     * Gets a queued workload ready to arrive: it is taken whole and indexed by start time, so it
+     * can be in any order.
+     * @param taken processes already taken from the workload, e.g. before a checkpoint
+     */
+    private void load(Queue<Process> processes, long taken) {
+        this.taken = taken;
+        this.stream = null;
+        Process p;
+        while ((p = processes.poll()) != null) {
+            this.arrivals.add(p);
+            this.taken++;
+        }
+    }
+
+    /**
+     * Gets a streamed workload ready to arrive: it is read a bounded distance ahead of the clock,
+     * see setStreamLookahead.
+     * @param taken processes already taken from the stream, e.g. before a checkpoint
+     */
+    private void load(ArrivalStream processes, long taken) {
+        this.taken = taken;
+        this.stream = processes;
+    }
+
+    /**
+     * Moves processes from the stream into the arrival wheel: every one that is due, and beyond
+     * that as many as it takes to have streamLookahead waiting, so those that are a little out of
+     * order still arrive at their start time.
+     */
+    private void readStream() {
+        Process p;
+        while ((p = this.stream.peek()) != null
+                && (p.getStartTime() <= clockCounter || this.arrivals.size() < this.streamLookahead)) {
+            if (p.getStartTime() < clockCounter) {
+                throw new IllegalStateException("Process " + p.getName() + " starts at " + p.getStartTime()
+                        + " but was only reached at " + clockCounter + ": the workload is out of order by more than "
+                        + this.streamLookahead + " processes");
             }
+            this.stream.poll();
+            this.taken++;
+            this.arrivals.add(p);
+        }
+    }
 
-            //
-            // For each CPU, update the state of the running process.
+    /**
+     * A process's arrival: it gets an id and is handed to the scheduler as newly ready.
+     */
+    private void arrive(Process p) {
+        p.setId(nextProcessId++);
+        p.setState(ProcessTable.READY);
+        this.scheduler.notifyNewProcess(p);
+    }
+
+    /**
+     * The end of a process's I/O, or the release of its next burst: it is handed back to the
+     * scheduler as ready again.
+     */
+    private void wake(Process p) {
+        // the burst before the wait is done with, so the scheduler doesn't see it complete again
+        p.startBurst();
+        p.setState(ProcessTable.READY);
+        if (p.getIoTime() > 0) {
+            this.blockedForIo--;
+            log(SchedulingEvent.IO_COMPLETE, p);
+        }
+        else {
+            log(SchedulingEvent.RELEASED, p);
+        }
+        this.scheduler.notifyNewProcess(p);
+    }
+
+    /**
+     * Copies the state of the simulation between two ticks into memory, in the format described
+     * by CheckpointWriter.  Processes still to arrive are left out, resume takes them from the
+     * workload again.
+     */
+    private byte[] checkpoint(Scheduler scheduler, boolean eventDriven) {
+        try (CheckpointOutput out = new CheckpointOutput()) {
+            out.writeInt(CheckpointWriter.MAGIC);
+            out.writeInt(CheckpointWriter.VERSION);
+            out.writeUTF(scheduler.getClass().getName());
+            out.writeBoolean(eventDriven);
+            out.writeInt(this.clockCounter);
+            out.writeInt(this.nextProcessId);
+            out.writeLong(this.taken);
+            out.writeInt(this.cpuCount);
+            for (Process p : this.running) {
+                out.writeProcess(p);
+            }
+            out.writeInts(this.stall);
+            this.metrics.save(out);
+            this.arrivals.saveClock(out);
+            this.blocked.save(out);
+            out.writeInt(this.blockedForIo);
+            scheduler.saveState(out);
+            return out.toByteArray();
+        }
+        catch (IOException e) {
+            // nothing here does I/O, the checkpoint is only being built in memory
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A single pass through the simulation loop, which advances the clock by 1.
+     */
+    private void tick(Scheduler scheduler) {
+        //
+        // Look at the incoming processes and see if any of those need to be added to scheduler
+        // as newly ready processes: those the stream has reached, then anything else now due,
+        // then those whose I/O has completed.  None of this happens on any one cpu.
+        this.currentCpu = -1;
+        // timing the batch reads the clock, so is only done when something may arrive
+        ArrivalBatchEvent batch = null;
+        if (ARRIVAL_BATCH.isEnabled() && arrivalsDue()) {
+            batch = new ArrivalBatchEvent();
+            batch.begin();
+        }
+        int firstId = this.nextProcessId;
+        int wasBlocked = this.blocked.size();
+        if (this.stream != null) {
+            readStream();
+        }
+        this.arrivals.release(clockCounter, this.arrive);
+        this.blocked.release(clockCounter, this.wake);
+        int arrived = this.nextProcessId - firstId;
+        int woken = wasBlocked - this.blocked.size();
+        if (batch != null && arrived + woken > 0) {
+            batch.end();
+            if (batch.shouldCommit()) {
+                batch.tick = clockCounter;
+                batch.arrivals = arrived;
+                batch.wakeups = woken;
+                batch.readyDepth = scheduler.getReadyCount();
+                batch.commit();
+            }
+        }
+
+        //
+        // For each CPU, update the state of the running process, then the scheduler.
+        if (this.shards != null) {
+            updateInParallel(scheduler);
+        }
+        else {
             for (int cpu = 0; cpu < this.cpuCount; cpu++) {
-                if (this.running[cpu] != null) {
-                    this.running[cpu].update();
+                update(scheduler, cpu);
+            }
+        }
+        clockCounter++;
+        this.metrics.recordTicks(1);
+        this.decisions += this.cpuCount;
+        if (clockCounter >= this.nextSample) {
+            sample(scheduler);
+        }
+    }
+
+    /**
+     * Publishes the counters as they are now, for anything watching them on another thread.
+     */
+    private void sample(Scheduler scheduler) {
+        this.counters.sample(clockCounter, this.decisions, this.preemptions, this.nextProcessId,
+                scheduler.getReadyCount(), this.blocked.size(), this.metrics);
+        this.nextSample = clockCounter + SAMPLE_TICKS;
+    }
+
+    /**
+     * Moves the process running on a CPU on by a tick, unless the CPU is still switching to it.
+     * @return true if the process has just completed a burst, or its whole execution
+     */
+    private boolean progress(int cpu) {
+        Process p = this.running[cpu];
+        this.ran[cpu] = p != null && this.stall[cpu] == 0;
+        if (p == null) {
+            return false;
+        }
+        if (this.stall[cpu] > 0) {
+            // still switching to the process or warming its cache
+            this.stall[cpu]--;
+            this.metrics.recordOverhead(cpu, 1);
+            return false;
+        }
+        if (p.getFirstRunTime() < 0) {
+            // the update for a tick is made at the start of the next, so it ran from the last
+            p.setFirstRunTime(clockCounter - 1);
+        }
+        p.update();
+        this.metrics.recordBusy(cpu, 1);
+        return p.isBurstComplete() || p.isExecutionComplete();
+    }
+
+    /**
+     * Records what a CPU did in the tick, once progress has moved its process on.  A process that
+     * has just run for the first time is recorded here rather than by progress, which may be on
+     * one of the shards' threads.
+     */
+    private void recordProgress(int cpu, boolean burstComplete) {
+        Process p = this.running[cpu];
+        if (p != null && p.getFirstRunTime() == clockCounter - 1) {
+            this.metrics.recordFirstRun(p, p.getFirstRunTime());
+        }
+        if (burstComplete) {
+            this.metrics.recordBurstComplete(this.running[cpu], clockCounter);
+        }
+        else if (this.running[cpu] == null && this.blockedForIo > 0) {
+            this.metrics.recordIoWait(cpu, 1);
+        }
+    }
+
+    /**
+     * Puts the process the scheduler chose on a CPU, if it isn't the one already there.
+     */
+    private void dispatch(int cpu, Process after) {
+        Process before = this.running[cpu];
+        this.running[cpu] = after;
+        if (before == after) {
+            return;
+        }
+        if (before != null) {
+            if (before.isExecutionComplete()) {
+                before.setState(ProcessTable.DONE);
+                this.metrics.recordCompletion(before, clockCounter);
+            }
+            else if (before.getState() != ProcessTable.BLOCKED) {
+                before.setState(ProcessTable.READY);
+                if (!before.isBurstComplete()) {
+                    preempted(cpu, before, after);
+                }
+            }
+            if (this.coldPenalty > 0) {
+                before.setCache(cpu, clockCounter);
+            }
+        }
+        this.stall[cpu] = 0;
+        if (after != null) {
+            after.setState(ProcessTable.RUNNING);
+            chargeSwitch(after, cpu);
+        }
+    }
+
+    /**
+     * The per CPU part of a tick for one CPU: moves its process on and updates the scheduler.
+     */
+    private void update(Scheduler scheduler, int cpu) {
+        recordProgress(cpu, progress(cpu));
+        this.currentCpu = cpu;
+        dispatch(cpu, decide(scheduler, cpu));
+    }
+
+    /**
+     * Updates the scheduler for a CPU, timing the decision for Flight Recorder.  Timing an event
+     * reads the clock whether or not it is recorded, so that is only done if it is turned on.
+     * @return the process the scheduler chose to run on the CPU
+     */
+    private Process decide(Scheduler scheduler, int cpu) {
+        Process before = this.running[cpu];
+        if (!SCHEDULING_DECISION.isEnabled()) {
+            return scheduler.update(before, cpu);
+        }
+        SchedulingDecisionEvent event = new SchedulingDecisionEvent();
+        event.begin();
+        Process after = scheduler.update(before, cpu);
+        event.end();
+        if (event.shouldCommit()) {
+            event.tick = clockCounter;
+            event.cpu = cpu;
+            event.previous = before != null ? before.getId() : -1;
+            event.chosen = after != null ? after.getId() : -1;
+            event.commit();
+        }
+        return after;
+    }
+
+    /**
+     * Reports a process the scheduler took off a CPU before its burst completed.
+     */
+    private void preempted(int cpu, Process p, Process replacement) {
+        this.preemptions++;
+        if (!PREEMPTION.isEnabled()) {
+            return;
+        }
+        PreemptionEvent event = new PreemptionEvent();
+        if (event.shouldCommit()) {
+            event.tick = clockCounter;
+            event.cpu = cpu;
+            event.process = p.getId();
+            event.processName = p.getName();
+            event.ticksLeft = p.getTicksToBurstEnd();
+            event.replacement = replacement != null ? replacement.getId() : -1;
+            event.commit();
+        }
+    }
+
+    /**
+     * The per CPU part of a tick in parallel mode.  Going through the CPUs in order, the scheduler
+     * is asked which ones' updates will be local, and each run of CPUs with local updates is left
+     * to the shards, which move on the processes there and update the scheduler for them, holding
+     * back what gets logged or blocked.  Then this thread goes through the run doing everything
+     * that is shared: it records completed bursts and I/O waits, lets through what was held back
+     * and puts the chosen processes on their CPUs.  The CPU that ends the run it updates itself.
+     * That is the order a single thread does it all in, and a local update doesn't touch another
+     * CPU's process or queue, so the result is the same.  Runs too short to be worth the barrier
+     * are done on this thread too.
+     */
+    private void updateInParallel(Scheduler scheduler) {
+        int cpu = 0;
+        while (cpu < this.cpuCount) {
+            int end = cpu;
+            while (end < this.cpuCount && scheduler.isLocalUpdate(this.running[end], end)) {
+                end++;
+            }
+            if (end - cpu >= MIN_SHARDED_CPUS) {
+                this.shards.forEachCpu(this.updateCpu, cpu, end);
+                for (; cpu < end; cpu++) {
+                    recordProgress(cpu, this.completed[cpu]);
+                    this.currentCpu = cpu;
+                    release(this.shards.shardOf(cpu), cpu);
+                    dispatch(cpu, this.chosen[cpu]);
+                    this.chosen[cpu] = null;
                 }
-                this.running[cpu] = scheduler.update(this.running[cpu]);
             }
-            clockCounter++;
+            for (end = Math.min(end + 1, this.cpuCount); cpu < end; cpu++) {
+                update(scheduler, cpu);
+            }
+        }
+    }
+
+    /**
+     * Run by the shards for each CPU whose update is local: moves its process on and updates
+     * the scheduler for it.  The process chosen is only put on the CPU once what the update held
+     * back has been let through.
+     */
+    private void updateCpu(int cpu) {
+        this.completed[cpu] = progress(cpu);
+        this.chosen[cpu] = decide(this.scheduler, cpu);
+    }
+
+    /**
+     * @return the shard whose thread is updating the scheduler, if what it logs and blocks is
+     *         being held back, otherwise null
+     */
+    private CpuShard heldBack() {
+        return this.shards != null && this.shards.isHolding() ? this.shards.current() : null;
+    }
 
-            done = simulationDone(processes);
+    /**
+     * Lets through, in the order they happened, the events logged and processes blocked by the
+     * update of a CPU in a shard.
+     */
+    private void release(CpuShard shard, int cpu) {
+        for (; shard.released < shard.held && shard.cpus[shard.released] == cpu; shard.released++) {
+            int i = shard.released;
+            Process p = shard.processes[i];
+            if (shard.events[i] != null) {
+                this.sink.onEvent(shard.events[i], this.clockCounter, cpu, p.getId(), p.getName());
+            }
+            else if (p != null) {
+                block(p);
+            }
+            else {
+                this.sink.onMessage(this.clockCounter, shard.messages[i]);
+            }
+            shard.processes[i] = null;
+            shard.messages[i] = null;
         }
     }
 
     /**
-     * If there are no processes left in the list of processes and all of the CPUs have no
-     * running processes, then we are done with the simulation.
+     * Holds a process just put on a CPU back for the cost of the switch, and of warming its
+     * cache if that has gone cold.
      */
-    private boolean simulationDone(Queue<Process> processes) {
+    private void chargeSwitch(Process p, int cpu) {
+        int cost = this.switchCost;
+        boolean cold = false;
+        if (this.coldPenalty > 0) {
+            cold = p.getCacheCpu() != cpu || clockCounter - p.getLeftCpuTime() > this.warmWindow;
+            if (cold) {
+                cost += this.coldPenalty;
+            }
+        }
+        if (cost > 0) {
+            this.stall[cpu] = cost;
+            p.startBurst();
+        }
+        this.metrics.recordSwitch(cold);
+    }
+
+    /**
+     * @return true if a process may arrive or wake this tick; false only if none will
+     */
+    private boolean arrivalsDue() {
+        if (Math.min(this.arrivals.getNextArrival(), this.blocked.getNextArrival()) <= clockCounter) {
+            return true;
+        }
+        Process next = this.stream != null ? this.stream.peek() : null;
+        return next != null && next.getStartTime() <= clockCounter;
+    }
+
+    /**
+     * Number of ticks, starting at the current clock count, that can be skipped because no
+     * process arrives or wakes and the scheduler would not change anything on any CPU.
+     */
+    private int ticksToNextEvent(Scheduler scheduler) {
+        int skip = Integer.MAX_VALUE;
+        long nextArrival = Math.min(this.arrivals.getNextArrival(), this.blocked.getNextArrival());
+        Process next = this.stream != null ? this.stream.peek() : null;
+        if (next != null) {
+            nextArrival = Math.min(nextArrival, next.getStartTime());
+        }
+        if (nextArrival != Long.MAX_VALUE) {
+            skip = (int) Math.max(0, Math.min(nextArrival - clockCounter, Integer.MAX_VALUE - 1));
+        }
+        for (int cpu = 0; cpu < this.cpuCount && skip > 0; cpu++) {
+            skip = Math.min(skip, scheduler.getQuietTicks(this.running[cpu], cpu));
+        }
+        return skip == Integer.MAX_VALUE ? 0 : skip;
+    }
+
+    /**
+     * If there are no processes left in the list of processes, none are blocked and all of the
+     * CPUs have no running processes, then we are done with the simulation.
+     */
+    private boolean simulationDone() {
         boolean allEmpty = true;
         for (Process p : this.running) {
             if (p != null) {
                 allEmpty = false;
             }
         }
-        return allEmpty && processes.size() == 0;
+        return allEmpty && this.arrivals.isEmpty() && this.blocked.isEmpty() && (this.stream == null || this.stream.peek() == null);
     }
 
     /**
      * Implementation of the Logger interface.  Schedulers use this interface to report events.
      */
     public void log(String message) {
-        System.out.printf("Time %3d : %s\n", this.clockCounter, message);
+        if (this.sink != null) {
+            CpuShard shard = heldBack();
+            if (shard != null) {
+                shard.hold(null, null, message);
+                return;
+            }
+            this.sink.onMessage(this.clockCounter, message);
+        }
     }
+
+    /**
+     * Implementation of the Logger interface.  The event is passed on to the sink as primitives.
+     */
+    public void log(SchedulingEvent event, Process p) {
+        if (this.sink != null) {
+            CpuShard shard = heldBack();
+            if (shard != null) {
+                shard.hold(event, p, null);
+                return;
+            }
+            this.sink.onEvent(event, this.clockCounter, this.currentCpu, p.getId(), p.getName());
+        }
+    }
+}
+
+/**
+ * Threads that share out a Platform's CPUs for the parallel part of each tick.  The CPUs are
+ * split into shards of neighbouring CPUs, one per thread, and the thread running the simulation
+ * works on the first shard itself.  forEachCpu starts the same work on every shard and waits for
+ * all of them to finish it.  The work between two of these barriers is a matter of microseconds,
+ * so the threads spin on a counter rather than block, only yielding once they have spun a while.
+ */
+class CpuShards implements AutoCloseable {
+    private static final int SPINS = 1000;              // Spins before a waiting thread starts yielding
+
+    private final CpuShard[] shards;
+    private final Thread[] workers;                     // One per shard but the first
+    private final ThreadLocal<CpuShard> current = new ThreadLocal<>();
+    private final AtomicInteger finished = new AtomicInteger();   // Workers done with the latest work
+    private final int shardSize;
+    private volatile int generation = 0;                // Bumped to start work; the write publishes it
+    private volatile boolean holding = false;           // Whether what is logged and blocked is held back
+    private volatile boolean closed = false;
+    private volatile Throwable failure = null;          // Thrown by a worker, passed on by forEachCpu
+    private IntConsumer task;                           // The latest work
+    private int start;                                  // The CPUs it is for
+    private int end;
+
+    CpuShards(int cpuCount, int threads) {
+        int count = Math.min(threads, cpuCount);
+        this.shardSize = (cpuCount + count - 1) / count;
+        this.shards = new CpuShard[(cpuCount + this.shardSize - 1) / this.shardSize];
+        for (int i = 0; i < this.shards.length; i++) {
+            this.shards[i] = new CpuShard(i * this.shardSize, Math.min(cpuCount, (i + 1) * this.shardSize));
+        }
+        this.current.set(this.shards[0]);
+        this.workers = new Thread[this.shards.length - 1];
+        for (int i = 0; i < this.workers.length; i++) {
+            CpuShard shard = this.shards[i + 1];
+            this.workers[i] = new Thread(() -> work(shard), "cpu-shard-" + (i + 1));
+            this.workers[i].setDaemon(true);
+            this.workers[i].start();
+        }
+    }
+
+    CpuShard shardOf(int cpu) { return this.shards[cpu / this.shardSize]; }
+
+    /**
+     * @return the shard of the calling thread
+     */
+    CpuShard current() { return this.current.get(); }
+
+    boolean isHolding() { return this.holding; }
+
+    /**
+     * Runs the task for every CPU from start up to end, each shard's CPUs in order on the shard's
+     * thread, and returns once all of them are done, with what they logged and blocked held back
+     * in the shards.  Whatever a task throws is thrown from here.
+     */
+    void forEachCpu(IntConsumer task, int start, int end) {
+        this.task = task;
+        this.start = start;
+        this.end = end;
+        this.holding = true;
+        this.finished.set(0);
+        this.generation++;
+        Throwable thrown = null;
+        try {
+            run(this.shards[0]);
+        }
+        catch (RuntimeException | Error e) {
+            thrown = e;
+        }
+        for (int spins = 0; this.finished.get() < this.workers.length; spins++) {
+            pause(spins);
+        }
+        this.holding = false;
+        if (thrown == null) {
+            thrown = this.failure;
+        }
+        this.failure = null;
+        if (thrown instanceof Error) {
+            throw (Error) thrown;
+        }
+        if (thrown != null) {
+            throw (RuntimeException) thrown;
+        }
+    }
+
+    /**
+     * Stops the workers, once they have finished what they are doing.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.current.remove();
+        for (Thread worker : this.workers) {
+            try {
+                worker.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void run(CpuShard shard) {
+        shard.held = 0;
+        shard.released = 0;
+        int end = Math.min(shard.end, this.end);
+        for (int cpu = Math.max(shard.start, this.start); cpu < end; cpu++) {
+            shard.cpu = cpu;
+            this.task.accept(cpu);
+        }
+    }
+
+    /**
+     * Body of a worker thread.
+     */
+    private void work(CpuShard shard) {
+        this.current.set(shard);
+        int seen = 0;
+        while (true) {
+            int spins = 0;
+            while (this.generation == seen) {
+                if (this.closed) {
+                    return;
+                }
+                pause(spins++);
+            }
+            seen = this.generation;
+            try {
+                run(shard);
+            }
+            catch (Throwable e) {
+                this.failure = e;
+            }
+            this.finished.incrementAndGet();
+        }
+    }
+
+    private static void pause(int spins) {
+        if (spins < SPINS) {
+            Thread.onSpinWait();
+        }
+        else {
+            Thread.yield();
+        }
+    }
+}
+
+/**
+ * A run of neighbouring CPUs updated by one thread, and what their scheduler updates logged and
+ * blocked, held back in the order it happened until it can be let through in CPU order.  Nothing
+ * is held for an entry but its process, or for a plain message its text; an entry without an
+ * event and with a process is the process blocking for I/O.
+ */
+class CpuShard {
+    final int start;
+    final int end;
+    int cpu;                    // The CPU being updated
+    int held = 0;               // Entries held back
+    int released = 0;           // Entries let through so far
+    int[] cpus = new int[16];   // CPU whose update made each entry
+    SchedulingEvent[] events = new SchedulingEvent[16];
+    Process[] processes = new Process[16];
+    String[] messages = new String[16];
+
+    CpuShard(int start, int end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    void hold(SchedulingEvent event, Process p, String message) {
+        if (this.held == this.cpus.length) {
+            int capacity = this.held * 2;
+            this.cpus = Arrays.copyOf(this.cpus, capacity);
+            this.events = Arrays.copyOf(this.events, capacity);
+            this.processes = Arrays.copyOf(this.processes, capacity);
+            this.messages = Arrays.copyOf(this.messages, capacity);
+        }
+        this.cpus[this.held] = this.cpu;
+        this.events[this.held] = event;
+        this.processes[this.held] = p;
+        this.messages[this.held] = message;
+        this.held++;
+    }
+}
+
+/**
+ * Flight Recorder event for an update of the scheduler for one CPU, timed so a recording shows
+ * where the time inside Scheduler.update goes.  There is one every tick for every CPU, and
+ * timing each costs about as much as a cheap update, so it is off unless a recording turns it
+ * on, e.g. with settings made by jfr configure +scheduler.SchedulingDecision#enabled=true.
+ * Even then only those taking longer than the threshold are recorded, unless it is lowered.
+ */
+@Name("scheduler.SchedulingDecision")
+@Label("Scheduling Decision")
+@Category("Scheduler Simulation")
+@Description("An update of the scheduler for one CPU")
+@Enabled(false)
+@Threshold("20 us")
+@StackTrace(false)
+class SchedulingDecisionEvent extends Event {
+    @Label("Tick")
+    int tick;
+
+    @Label("CPU")
+    int cpu;
+
+    @Label("Previous Process")
+    @Description("Id of the process on the CPU before the update, -1 if it was idle")
+    int previous;
+
+    @Label("Chosen Process")
+    @Description("Id of the process the scheduler chose, -1 if it left the CPU idle")
+    int chosen;
+}
+
+/**
+ * Flight Recorder event for a process taken off a CPU before its burst completed, by a
+ * preemptive scheduler or at the end of a time quantum.  With a short quantum there can be one
+ * every few ticks, so it is off unless a recording turns it on.
+ */
+@Name("scheduler.Preemption")
+@Label("Preemption")
+@Category("Scheduler Simulation")
+@Description("A process taken off a CPU before its burst completed")
+@Enabled(false)
+@StackTrace(false)
+class PreemptionEvent extends Event {
+    @Label("Tick")
+    int tick;
+
+    @Label("CPU")
+    int cpu;
+
+    @Label("Process")
+    int process;
+
+    @Label("Process Name")
+    String processName;
+
+    @Label("Ticks Left")
+    @Description("Ticks of its burst the process still had to run")
+    int ticksLeft;
+
+    @Label("Replacement")
+    @Description("Id of the process put on the CPU instead, -1 if it was left idle")
+    int replacement;
+}
+
+/**
+ * Flight Recorder event for the processes that arrived or came back from I/O in one tick, timed
+ * over handing them to the scheduler.  Ticks where nothing arrives aren't recorded, and by
+ * default neither are batches handed over quicker than the threshold.
+ */
+@Name("scheduler.ArrivalBatch")
+@Label("Arrival Batch")
+@Category("Scheduler Simulation")
+@Description("Processes handed to the scheduler at the start of a tick")
+@Threshold("20 us")
+@StackTrace(false)
+class ArrivalBatchEvent extends Event {
+    @Label("Tick")
+    int tick;
+
+    @Label("Arrivals")
+    int arrivals;
+
+    @Label("Wakeups")
+    @Description("Processes whose I/O completed")
+    int wakeups;
+
+    @Label("Ready Queue Depth")
+    @Description("Processes in the ready queue once the batch was handed over")
+    int readyDepth;
 }
@@ -0,0 +1,228 @@
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A ready queue indexed by priority: one FIFO queue per priority level, plus a bitmap of the
+ * levels that have anything in them.  Finding the highest priority process is two
+ * Long.numberOfTrailingZeros calls however many processes are waiting, and adding or removing
+ * one never has to move the others, so every operation is O(1).  Processes of the same
+ * priority come out in the order they went in.
+ *
+ * Smaller numbers are higher priority.  Processes are queued at their own priority unless the
+ * caller gives a level, which lets a scheduler keep its own notion of priority.  The bitmap
+ * covers levels 0 to LEVELS - 1.  A level outside it still gets a FIFO queue of its own, kept
+ * in a map sorted by level, so every priority comes out in order; those levels just cost
+ * O(log n) in the number of them in use.
+ */
+public class PriorityRunQueue {
+    public static final int LEVELS = 64 * 64;   // Two levels of bitmap, 64 bits each
+
+    private final ArrayDeque<Process>[] levels;   // Created the first time a level is used
+    private final long[] nonEmpty = new long[LEVELS / 64];  // Bit set for each level with something queued
+    private final TreeMap<Integer, ArrayDeque<Process>> outside = new TreeMap<>();  // Levels outside the bitmap in use
+    private long nonEmptyWords = 0;     // Bit set for each word of nonEmpty that isn't 0
+    private int size = 0;
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public PriorityRunQueue() {
+        this.levels = new ArrayDeque[LEVELS];
+    }
+
+    /**
+     * Adds a process behind everything already queued at its priority.
+     */
+    public void addLast(Process p) {
+        addLast(p, p.getPriority());
+    }
+
+    /**
+     * Adds a process behind everything already queued at the given level.
+     */
+    public void addLast(Process p, int level) {
+        queueAt(level).addLast(p);
+        this.size++;
+    }
+
+    /**
+     * Adds a process ahead of everything already queued at its priority, e.g. one that was
+     * preempted and so should keep its place.
+     */
+    public void addFirst(Process p) {
+        addFirst(p, p.getPriority());
+    }
+
+    /**
+     * Adds a process ahead of everything already queued at the given level.
+     */
+    public void addFirst(Process p, int level) {
+        queueAt(level).addFirst(p);
+        this.size++;
+    }
+
+    /**
+     * @return the first process of the highest priority level, or null if the queue is empty
+     */
+    public Process peek() {
+        return this.size == 0 ? null : queueOf(highestLevel()).peekFirst();
+    }
+
+    /**
+     * Removes and returns the first process of the highest priority level.
+     * @return the process removed, or null if the queue is empty
+     */
+    public Process poll() {
+        if (this.size == 0) {
+            return null;
+        }
+        int level = highestLevel();
+        ArrayDeque<Process> queue = queueOf(level);
+        Process p = queue.pollFirst();
+        if (queue.isEmpty() && !isInBitmap(level)) {
+            this.outside.remove(level);
+        }
+        else if (queue.isEmpty()) {
+            int word = level >>> 6;
+            this.nonEmpty[word] &= ~(1L << level);
+            if (this.nonEmpty[word] == 0) {
+                this.nonEmptyWords &= ~(1L << word);
+            }
+        }
+        this.size--;
+        return p;
+    }
+
+    /**
+     * @return the level peek and poll take from next, or -1 if the queue is empty
+     */
+    public int peekLevel() {
+        return this.size == 0 ? -1 : highestLevel();
+    }
+
+    /**
+     * Moves everything queued onto one level.  Processes keep their order: those from higher
+     * priority levels first, and first in first out within a level.  Takes time in proportion
+     * to the number of processes moved.
+     */
+    public void moveAllTo(int level) {
+        if (this.size == 0) {
+            return;
+        }
+        ArrayDeque<Process> moved = new ArrayDeque<>(this.size);
+        Map<Integer, ArrayDeque<Process>> above = this.outside.tailMap(0);
+        Map<Integer, ArrayDeque<Process>> below = this.outside.headMap(0);
+        for (ArrayDeque<Process> queue : below.values()) {
+            moved.addAll(queue);
+        }
+        while (this.nonEmptyWords != 0) {
+            int word = Long.numberOfTrailingZeros(this.nonEmptyWords);
+            long bits = this.nonEmpty[word];
+            while (bits != 0) {
+                ArrayDeque<Process> queue = this.levels[(word << 6) | Long.numberOfTrailingZeros(bits)];
+                bits &= bits - 1;
+                Process p;
+                while ((p = queue.pollFirst()) != null) {
+                    moved.addLast(p);
+                }
+            }
+            this.nonEmpty[word] = 0;
+            this.nonEmptyWords &= ~(1L << word);
+        }
+        for (ArrayDeque<Process> queue : above.values()) {
+            moved.addAll(queue);
+        }
+        this.outside.clear();
+        if (isInBitmap(level)) {
+            this.levels[level] = moved;
+        }
+        else {
+            this.outside.put(level, moved);
+        }
+        queueAt(level);
+    }
+
+    /**
+     * Writes every level that has anything queued, in order, for a checkpoint.
+     */
+    public void save(CheckpointOutput out) throws IOException {
+        int used = this.outside.size();
+        for (ArrayDeque<Process> queue : this.levels) {
+            used += queue != null && !queue.isEmpty() ? 1 : 0;
+        }
+        out.writeInt(used);
+        for (int level = 0; level < LEVELS; level++) {
+            if (this.levels[level] != null && !this.levels[level].isEmpty()) {
+                out.writeInt(level);
+                out.writeProcesses(this.levels[level]);
+            }
+        }
+        for (Map.Entry<Integer, ArrayDeque<Process>> entry : this.outside.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeProcesses(entry.getValue());
+        }
+    }
+
+    /**
+     * Adds back everything save wrote, at the same levels and in the same order.
+     */
+    public void restore(CheckpointInput in) throws IOException {
+        int used = in.readInt();
+        for (int i = 0; i < used; i++) {
+            int level = in.readInt();
+            List<Process> queued = new ArrayList<>();
+            in.readProcesses(queued);
+            for (Process p : queued) {
+                addLast(p, level);
+            }
+        }
+    }
+
+    public int size() { return this.size; }
+    public boolean isEmpty() { return this.size == 0; }
+
+    /**
+     * @return true if a level is one of those kept in the bitmap
+     */
+    private static boolean isInBitmap(int level) {
+        return level >= 0 && level < LEVELS;
+    }
+
+    /**
+     * The lowest numbered level with anything in it; only valid when the queue isn't empty.
+     */
+    private int highestLevel() {
+        if (this.nonEmptyWords == 0 || !this.outside.isEmpty() && this.outside.firstKey() < 0) {
+            return this.outside.firstKey();
+        }
+        int word = Long.numberOfTrailingZeros(this.nonEmptyWords);
+        return (word << 6) | Long.numberOfTrailingZeros(this.nonEmpty[word]);
+    }
+
+    /**
+     * The queue for a priority, marked as not empty since something is about to be added to it.
+     */
+    private ArrayDeque<Process> queueAt(int level) {
+        if (!isInBitmap(level)) {
+            return this.outside.computeIfAbsent(level, key -> new ArrayDeque<>());
+        }
+        ArrayDeque<Process> queue = this.levels[level];
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            this.levels[level] = queue;
+        }
+        int word = level >>> 6;
+        this.nonEmpty[word] |= 1L << level;
+        this.nonEmptyWords |= 1L << word;
+        return queue;
+    }
+
+    /**
+     * The queue for a level that has something in it.
+     */
+    private ArrayDeque<Process> queueOf(int level) {
+        return isInBitmap(level) ? this.levels[level] : this.outside.get(level);
+    }
+}
@@ -2,68 +2,233 @@
  * Used to represent a Process for the scheduler simulation.  It only holds the information
  * necessary for a simulation, it isn't meant to be some mini version of the code used in
  * writing an actual operating system.
+ *
+ * Where the state is kept is up to a subclass: a StandaloneProcess, which Process.of builds,
+ * keeps it in fields of its own, while the processes handed out by a ProcessTable are views
+ * whose state lives in a row of the table.  The rules for how the state changes are only here,
+ * written against the getters and the package private setters; those shared with
+ * ProcessTable's by row operations are the static helpers at the end.
  */
-public class Process {
-    private String name;        // A name used to unique identify the process for reporting during the simulation
-    private int startTime;      // The arrival time, from the start of the simulation, of this process
-    private int burstTime;      // Length of the CPU burst
-    private int totalTime;      // Total execution time for the process
-    private int elapsedBurst = 0;   // How long the current burst has executed
-    private int elapsedTotal = 0;   // How long, in total, the process has executed
-    private int priority = 0;       // Priority of the process, smaller number is higher priority
-
-    public Process(String name,int startTime, int burstTime, int totalTime) {
-        this.name = name;
-        this.startTime = startTime;
-        this.burstTime = burstTime;
-        this.totalTime = totalTime;
+public abstract class Process {
+
+    /**
+     * @return a process that keeps its own state, for a workload described directly
+     */
+    public static Process of(String name, int startTime, int burstTime, int totalTime) {
+        return new StandaloneProcess(name, startTime, burstTime, totalTime);
     }
 
     /**
-     * Overloaded constructor that also accepts priority; needed by the priority scheduling simulation
+     * Overloaded factory that also accepts priority; needed by the priority scheduling simulation
      */
-    public Process(String name,int startTime, int burstTime, int totalTime, int priority) {
-        this(name, startTime, burstTime, totalTime);
-        this.priority = priority;
+    public static Process of(String name, int startTime, int burstTime, int totalTime, int priority) {
+        return new StandaloneProcess(name, startTime, burstTime, totalTime, priority);
     }
 
+    /**
+     * The most shares a process can be given.  SchedulerStride divides this among a process's
+     * tickets to get its stride, so more than this would leave a stride of 0 and a process that
+     * never gives up the cpu.
+     */
+    public static final int MAX_SHARES = 1 << 20;
+
     /**
      * Increment the state of the process
      * @return true if the process still needs time to complete, false otherwise.
      */
     public boolean update() {
-        if (this.elapsedBurst == this.burstTime) {
-            this.elapsedBurst = 0;
-        }
-        this.elapsedBurst++;
+        int elapsedTotal = getElapsedTotal() + 1;
+        setElapsed(elapsedBurstAfter(getElapsedBurst(), getBurstTime(), 1), elapsedTotal);
+        return !(elapsedTotal == getTotalTime());
+    }
 
-        this.elapsedTotal++;
-        return !(this.elapsedTotal == this.totalTime);
+    /**
+     * Advance the process by several clock ticks at once.  The end state is identical to
+     * calling update() that many times, which lets the event driven simulation jump over
+     * ticks where nothing interesting happens.
+     * @param ticks number of clock ticks to advance
+     */
+    public void advance(int ticks) {
+        if (ticks <= 0) {
+            return;
+        }
+        setElapsed(elapsedBurstAfter(getElapsedBurst(), getBurstTime(), ticks), getElapsedTotal() + ticks);
     }
 
     /**
      * @return true if current burst has completed, false otherwise
      */
     public boolean isBurstComplete() {
-        return this.elapsedBurst == this.burstTime;
+        return getElapsedBurst() == getBurstTime();
     }
 
     /**
      * @return true if the process overall execution time has completed, false otherwise
      */
     public boolean isExecutionComplete() {
-        return this.elapsedTotal == this.totalTime;
+        return getElapsedTotal() == getTotalTime();
     }
 
+    /**
+     * Set by the Platform when the process arrives, so events can refer to it by number
+     */
+    public abstract void setId(int id);
+
+    /**
+     * Recorded by schedulers that track which CPU a process runs on
+     */
+    public abstract void setLastCpu(int cpu);
+
+    /**
+     * Kept up to date by the Platform, one of the ProcessTable states
+     */
+    public abstract void setState(byte state);
+
+    /**
+     * Kept by fair share schedulers, which order processes by how much virtual time they have used
+     */
+    public abstract void setVirtualTime(long virtualTime);
+
+    /**
+     * Gives the process an explicit share of the cpu for proportional share schedulers, between
+     * 1 and MAX_SHARES, or 0 to go back to deriving it from the priority
+     */
+    public abstract void setShares(int shares);
+
+    /**
+     * Gives the process a deadline: it should complete execution within relativeDeadline ticks
+     * of its start time.
+     */
+    public void setDeadline(int relativeDeadline) {
+        setDeadline(0, relativeDeadline);
+    }
+
+    /**
+     * Makes the process periodic: burst k is released at startTime + k * period and should
+     * complete within relativeDeadline ticks of its release.  A burst that completes before the
+     * next one is released leaves the process blocked until that release, as I/O would.
+     */
+    public abstract void setDeadline(int period, int relativeDeadline);
+
+    /**
+     * Makes the process do I/O between its CPU bursts: each burst but the last is followed by
+     * ioTime ticks blocked, off the cpu and out of the ready queue.
+     */
+    public abstract void setIoTime(int ioTime);
+
+    /**
+     * Set by the Platform when the process blocks for I/O
+     */
+    abstract void setWakeTime(int wakeTime);
+
+    /**
+     * Set by the Platform's cache model when the process comes off a CPU
+     */
+    abstract void setCache(int cpu, int leftCpuTime);
+
+    /**
+     * Set by the Platform the first time the process actually runs, once any switch to it has
+     * been paid for
+     */
+    abstract void setFirstRunTime(int firstRunTime);
+
+    /**
+     * If the current burst has completed, starts the next one now rather than on the next update,
+     * so a process held up on a cpu before it runs doesn't look like it has just completed a burst.
+     */
+    void startBurst() {
+        setElapsed(elapsedBurstAfter(getElapsedBurst(), getBurstTime(), 0), getElapsedTotal());
+    }
+
+    /**
+     * Where update, advance and startBurst store the progress they work out, and how a process
+     * restored from a checkpoint gets its progress back
+     */
+    abstract void setElapsed(int elapsedBurst, int elapsedTotal);
+
     /**
      * Various getters for the state of the process.
      */
-    public String getName() { return this.name; }
-    public int getStartTime() { return this.startTime; }
-    public int getBurstTime() { return this.burstTime; }
-    public int getTotalTime() { return this.totalTime; }
-    public int getElapsedTotal() { return this.elapsedTotal; }
-    public int getPriority() { return this.priority; }
-    public int getElapsedBurst() { return this.elapsedBurst; }
-    public int getRemainingBurst() { return this.burstTime - this.elapsedBurst; }
+    public abstract String getName();
+    public abstract int getId();
+    public abstract int getLastCpu();
+    public abstract byte getState();
+    public abstract long getVirtualTime();
+    public abstract int getShares();
+    public abstract int getRelativeDeadline();
+    public abstract int getPeriod();
+    public abstract int getIoTime();
+    public abstract int getWakeTime();
+    public abstract int getCacheCpu();
+    public abstract int getLeftCpuTime();
+    public abstract int getFirstRunTime();
+    public abstract int getStartTime();
+    public abstract int getBurstTime();
+    public abstract int getTotalTime();
+    public abstract int getElapsedTotal();
+    public abstract int getPriority();
+    public abstract int getElapsedBurst();
+    public boolean hasDeadline() { return getRelativeDeadline() > 0; }
+    public int getRemainingBurst() { return getBurstTime() - getElapsedBurst(); }
+
+    /**
+     * @return number of update() calls until a burst completes; a process sitting on a completed
+     *         burst starts a new one on its next update
+     */
+    public int getTicksToBurstEnd() {
+        return ticksToBurstEnd(getElapsedBurst(), getBurstTime());
+    }
+
+    /**
+     * @return absolute deadline of the burst that runs on the next update(), Long.MAX_VALUE if
+     *         the process has no deadline
+     */
+    public long getDeadline() {
+        return deadline(getStartTime(), getElapsedTotal(), getBurstTime(), getPeriod(), getRelativeDeadline());
+    }
+
+    /**
+     * @return tick the burst that runs on the next update() is released at; every burst of a
+     *         process that isn't periodic is released when it starts
+     */
+    public long getReleaseTime() {
+        return getStartTime() + (long) (getElapsedTotal() / getBurstTime()) * getPeriod();
+    }
+
+    /**
+     * @return number of update() calls until the process completes execution
+     */
+    public int getTicksToExecutionEnd() { return getTotalTime() - getElapsedTotal(); }
+
+    /**
+     * @return how far into its burst a process is after running the given number of ticks more;
+     *         a completed burst is left behind first, so 0 ticks starts the next one
+     */
+    static int elapsedBurstAfter(int elapsedBurst, int burstTime, int ticks) {
+        if (elapsedBurst == burstTime) {
+            elapsedBurst = 0;
+        }
+        if (ticks <= 0) {
+            return elapsedBurst;
+        }
+        return (elapsedBurst + ticks - 1) % burstTime + 1;
+    }
+
+    static int checkShares(int shares) {
+        if (shares < 0 || shares > MAX_SHARES) {
+            throw new IllegalArgumentException("Shares must be between 0 and " + MAX_SHARES);
+        }
+        return shares;
+    }
+
+    static int ticksToBurstEnd(int elapsedBurst, int burstTime) {
+        return elapsedBurst == burstTime ? burstTime : burstTime - elapsedBurst;
+    }
+
+    static long deadline(int startTime, int elapsedTotal, int burstTime, int period, int relativeDeadline) {
+        if (relativeDeadline <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return startTime + (long) (elapsedTotal / burstTime) * period + relativeDeadline;
+    }
 }
@@ -0,0 +1,399 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Compact storage for the state of many processes.  Each field lives in its own primitive
+ * array indexed by row.  A name is split into a prefix, interned into a dictionary, and the
+ * number it ends in, so P1 to P1000000 share one dictionary entry; a workload costs a few dozen
+ * bytes per process instead of an object, a String and a list node.
+ *
+ * Everything can be read and updated by row, and the Process handed out for a row is just a
+ * view onto it.  Schedulers and the Platform only ever see the views: what the table saves is
+ * the memory of the processes that haven't arrived yet or have finished, which for a long trace
+ * is nearly all of them.
+ */
+public class ProcessTable {
+    /**
+     * Lifecycle states kept in the state column.
+     */
+    public static final byte NEW = 0;       // Hasn't arrived yet
+    public static final byte READY = 1;     // Waiting in a scheduler's ready queue
+    public static final byte RUNNING = 2;   // On a CPU
+    public static final byte DONE = 3;      // Execution complete
+    public static final byte BLOCKED = 4;   // Waiting for I/O to complete or its next burst to be released
+
+    private int size = 0;
+    private int[] startTime;
+    private int[] burstTime;
+    private int[] totalTime;
+    private int[] elapsedBurst;
+    private int[] elapsedTotal;
+    private int[] priority;
+    private int[] id;           // Id given by the Platform when the process arrives
+    private int[] lastCpu;      // The CPU the process was last scheduled on, -1 if it hasn't run yet
+    private int[] name;         // Index of the name's prefix in the dictionary
+    private int[] nameNumber;   // Number the name ends in, -1 if the whole name is in the dictionary
+    private byte[] state;
+    private long[] virtualTime; // Kept by fair share schedulers
+    private int[] shares;       // Tickets for proportional share schedulers, 0 to use the priority
+    private int[] relativeDeadline; // 0 for no deadline
+    private int[] period;       // 0 if the deadline is for the whole execution
+    private int[] ioTime;       // Ticks of I/O after each burst, 0 if the process never blocks
+    private int[] wakeTime;     // Tick the I/O the process is blocked on completes
+    private int[] cacheCpu;     // The CPU whose cache last held the process, -1 for none
+    private int[] leftCpuTime;  // Tick the process last came off a CPU
+    private int[] firstRunTime; // Tick the process first ran from, -1 until it has run
+    private final NameDictionary names;
+
+    public ProcessTable() {
+        this(16);
+    }
+
+    public ProcessTable(int capacity) {
+        this(capacity, new NameDictionary());
+    }
+
+    /**
+     * @param capacity number of rows to allocate up front
+     * @param names dictionary to intern names into, can be shared between tables
+     */
+    public ProcessTable(int capacity, NameDictionary names) {
+        capacity = Math.max(1, capacity);
+        this.startTime = new int[capacity];
+        this.burstTime = new int[capacity];
+        this.totalTime = new int[capacity];
+        this.elapsedBurst = new int[capacity];
+        this.elapsedTotal = new int[capacity];
+        this.priority = new int[capacity];
+        this.id = new int[capacity];
+        this.lastCpu = new int[capacity];
+        this.name = new int[capacity];
+        this.nameNumber = new int[capacity];
+        this.state = new byte[capacity];
+        this.virtualTime = new long[capacity];
+        this.shares = new int[capacity];
+        this.relativeDeadline = new int[capacity];
+        this.period = new int[capacity];
+        this.ioTime = new int[capacity];
+        this.wakeTime = new int[capacity];
+        this.cacheCpu = new int[capacity];
+        this.leftCpuTime = new int[capacity];
+        this.firstRunTime = new int[capacity];
+        this.names = names;
+    }
+
+    /**
+     * Appends a process to the table.
+     * @return the row of the new process
+     */
+    public int add(String name, int startTime, int burstTime, int totalTime, int priority) {
+        if (this.size == this.startTime.length) {
+            grow();
+        }
+        int row = this.size++;
+        this.startTime[row] = startTime;
+        this.burstTime[row] = burstTime;
+        this.totalTime[row] = totalTime;
+        this.elapsedBurst[row] = 0;
+        this.elapsedTotal[row] = 0;
+        this.priority[row] = priority;
+        this.id[row] = -1;
+        this.lastCpu[row] = -1;
+        int prefix = NameDictionary.prefixLength(name);
+        this.name[row] = this.names.intern(name, prefix);
+        this.nameNumber[row] = prefix < name.length() ? Integer.parseInt(name, prefix, name.length(), 10) : -1;
+        this.state[row] = NEW;
+        this.virtualTime[row] = 0;
+        this.shares[row] = 0;
+        this.relativeDeadline[row] = 0;
+        this.period[row] = 0;
+        this.ioTime[row] = 0;
+        this.wakeTime[row] = 0;
+        this.cacheCpu[row] = -1;
+        this.leftCpuTime[row] = 0;
+        this.firstRunTime[row] = -1;
+        return row;
+    }
+
+    public int size() { return this.size; }
+
+    /**
+     * @return a new Process viewing the given row; callers rely on Process identity, so there
+     *         should only ever be one view of a row per simulation
+     */
+    public Process view(int row) {
+        return new ProcessView(this, row);
+    }
+
+    /**
+     * Hands the rows to the Platform as views, one at a time, in row order.  A view is only created
+     * when the Platform looks at the row, so a finished process can be garbage collected while
+     * the rest of the table stays compact.  Rows need only be in order of start time to within the
+     * Platform's stream look-ahead.
+     */
+    public ArrivalStream arrivals() {
+        return new ArrivalStream() {
+            private int next = 0;
+            private Process head = null;
+
+            @Override
+            public Process peek() {
+                if (this.head == null && this.next < ProcessTable.this.size) {
+                    this.head = view(this.next);
+                }
+                return this.head;
+            }
+
+            @Override
+            public Process poll() {
+                Process p = peek();
+                if (p != null) {
+                    this.head = null;
+                    this.next++;
+                }
+                return p;
+            }
+        };
+    }
+
+    /**
+     * Increment the state of the process in the row.  Same as Process.update.
+     * @return true if the process still needs time to complete, false otherwise.
+     */
+    public boolean update(int row) {
+        this.elapsedBurst[row] = Process.elapsedBurstAfter(this.elapsedBurst[row], this.burstTime[row], 1);
+        this.elapsedTotal[row]++;
+        return !(this.elapsedTotal[row] == this.totalTime[row]);
+    }
+
+    /**
+     * Advance the process in the row by several clock ticks at once.  Same as Process.advance.
+     */
+    public void advance(int row, int ticks) {
+        if (ticks <= 0) {
+            return;
+        }
+        this.elapsedBurst[row] = Process.elapsedBurstAfter(this.elapsedBurst[row], this.burstTime[row], ticks);
+        this.elapsedTotal[row] += ticks;
+    }
+
+    /**
+     * Starts the next burst of the process in the row if the current one has completed.  Same as
+     * Process.startBurst.
+     */
+    void startBurst(int row) {
+        this.elapsedBurst[row] = Process.elapsedBurstAfter(this.elapsedBurst[row], this.burstTime[row], 0);
+    }
+
+    public boolean isBurstComplete(int row) { return this.elapsedBurst[row] == this.burstTime[row]; }
+    public boolean isExecutionComplete(int row) { return this.elapsedTotal[row] == this.totalTime[row]; }
+
+    /**
+     * Various getters and setters for the columns of a row.
+     */
+    // a numbered name is put back together on every call; only logs, checkpoints and traces ask
+    public String getName(int row) {
+        String prefix = this.names.get(this.name[row]);
+        return this.nameNumber[row] < 0 ? prefix : prefix + this.nameNumber[row];
+    }
+    public int getStartTime(int row) { return this.startTime[row]; }
+    public int getBurstTime(int row) { return this.burstTime[row]; }
+    public int getTotalTime(int row) { return this.totalTime[row]; }
+    public int getElapsedBurst(int row) { return this.elapsedBurst[row]; }
+    public int getElapsedTotal(int row) { return this.elapsedTotal[row]; }
+    public int getPriority(int row) { return this.priority[row]; }
+    public int getId(int row) { return this.id[row]; }
+    public int getLastCpu(int row) { return this.lastCpu[row]; }
+    public byte getState(int row) { return this.state[row]; }
+    public long getVirtualTime(int row) { return this.virtualTime[row]; }
+    public int getShares(int row) { return this.shares[row]; }
+    public int getRelativeDeadline(int row) { return this.relativeDeadline[row]; }
+    public int getPeriod(int row) { return this.period[row]; }
+    public boolean hasDeadline(int row) { return this.relativeDeadline[row] > 0; }
+    public int getIoTime(int row) { return this.ioTime[row]; }
+    public int getWakeTime(int row) { return this.wakeTime[row]; }
+    public int getCacheCpu(int row) { return this.cacheCpu[row]; }
+    public int getLeftCpuTime(int row) { return this.leftCpuTime[row]; }
+    public int getFirstRunTime(int row) { return this.firstRunTime[row]; }
+    public long getDeadline(int row) {
+        return Process.deadline(this.startTime[row], this.elapsedTotal[row], this.burstTime[row], this.period[row], this.relativeDeadline[row]);
+    }
+    public int getRemainingBurst(int row) { return this.burstTime[row] - this.elapsedBurst[row]; }
+    public int getTicksToBurstEnd(int row) { return Process.ticksToBurstEnd(this.elapsedBurst[row], this.burstTime[row]); }
+    public int getTicksToExecutionEnd(int row) { return this.totalTime[row] - this.elapsedTotal[row]; }
+
+    public void setId(int row, int id) { this.id[row] = id; }
+    public void setLastCpu(int row, int cpu) { this.lastCpu[row] = cpu; }
+    public void setState(int row, byte state) { this.state[row] = state; }
+    public void setVirtualTime(int row, long virtualTime) { this.virtualTime[row] = virtualTime; }
+    public void setShares(int row, int shares) { this.shares[row] = Process.checkShares(shares); }
+    public void setDeadline(int row, int period, int relativeDeadline) {
+        this.period[row] = period;
+        this.relativeDeadline[row] = relativeDeadline;
+    }
+    public void setIoTime(int row, int ioTime) { this.ioTime[row] = ioTime; }
+    void setWakeTime(int row, int wakeTime) { this.wakeTime[row] = wakeTime; }
+    void setCache(int row, int cpu, int leftCpuTime) {
+        this.cacheCpu[row] = cpu;
+        this.leftCpuTime[row] = leftCpuTime;
+    }
+    void setFirstRunTime(int row, int firstRunTime) { this.firstRunTime[row] = firstRunTime; }
+    void setElapsed(int row, int elapsedBurst, int elapsedTotal) {
+        this.elapsedBurst[row] = elapsedBurst;
+        this.elapsedTotal[row] = elapsedTotal;
+    }
+
+    private void grow() {
+        int capacity = this.startTime.length + (this.startTime.length >> 1) + 1;
+        this.startTime = Arrays.copyOf(this.startTime, capacity);
+        this.burstTime = Arrays.copyOf(this.burstTime, capacity);
+        this.totalTime = Arrays.copyOf(this.totalTime, capacity);
+        this.elapsedBurst = Arrays.copyOf(this.elapsedBurst, capacity);
+        this.elapsedTotal = Arrays.copyOf(this.elapsedTotal, capacity);
+        this.priority = Arrays.copyOf(this.priority, capacity);
+        this.id = Arrays.copyOf(this.id, capacity);
+        this.lastCpu = Arrays.copyOf(this.lastCpu, capacity);
+        this.name = Arrays.copyOf(this.name, capacity);
+        this.nameNumber = Arrays.copyOf(this.nameNumber, capacity);
+        this.state = Arrays.copyOf(this.state, capacity);
+        this.virtualTime = Arrays.copyOf(this.virtualTime, capacity);
+        this.shares = Arrays.copyOf(this.shares, capacity);
+        this.relativeDeadline = Arrays.copyOf(this.relativeDeadline, capacity);
+        this.period = Arrays.copyOf(this.period, capacity);
+        this.ioTime = Arrays.copyOf(this.ioTime, capacity);
+        this.wakeTime = Arrays.copyOf(this.wakeTime, capacity);
+        this.cacheCpu = Arrays.copyOf(this.cacheCpu, capacity);
+        this.leftCpuTime = Arrays.copyOf(this.leftCpuTime, capacity);
+        this.firstRunTime = Arrays.copyOf(this.firstRunTime, capacity);
+    }
+}
+
+/**
+ * A Process whose state lives in a row of a ProcessTable.  Process declares no fields, so a view
+ * is only the table and the row; the operations that have a by-row version in the table go
+ * straight to it.
+ */
+class ProcessView extends Process {
+    private final ProcessTable table;
+    private final int row;
+
+    ProcessView(ProcessTable table, int row) {
+        this.table = table;
+        this.row = row;
+    }
+
+    public ProcessTable getTable() { return this.table; }
+    public int getRow() { return this.row; }
+
+    @Override public boolean update() { return this.table.update(this.row); }
+    @Override public void advance(int ticks) { this.table.advance(this.row, ticks); }
+    @Override public boolean isBurstComplete() { return this.table.isBurstComplete(this.row); }
+    @Override public boolean isExecutionComplete() { return this.table.isExecutionComplete(this.row); }
+    @Override public void setId(int id) { this.table.setId(this.row, id); }
+    @Override public void setLastCpu(int cpu) { this.table.setLastCpu(this.row, cpu); }
+    @Override public void setState(byte state) { this.table.setState(this.row, state); }
+    @Override public void setVirtualTime(long virtualTime) { this.table.setVirtualTime(this.row, virtualTime); }
+    @Override public void setShares(int shares) { this.table.setShares(this.row, shares); }
+    @Override public void setDeadline(int relativeDeadline) { this.table.setDeadline(this.row, 0, relativeDeadline); }
+    @Override public void setDeadline(int period, int relativeDeadline) { this.table.setDeadline(this.row, period, relativeDeadline); }
+    @Override public void setIoTime(int ioTime) { this.table.setIoTime(this.row, ioTime); }
+    @Override void setWakeTime(int wakeTime) { this.table.setWakeTime(this.row, wakeTime); }
+    @Override void setCache(int cpu, int leftCpuTime) { this.table.setCache(this.row, cpu, leftCpuTime); }
+    @Override void startBurst() { this.table.startBurst(this.row); }
+    @Override void setFirstRunTime(int firstRunTime) { this.table.setFirstRunTime(this.row, firstRunTime); }
+    @Override void setElapsed(int elapsedBurst, int elapsedTotal) { this.table.setElapsed(this.row, elapsedBurst, elapsedTotal); }
+    @Override public String getName() { return this.table.getName(this.row); }
+    @Override public int getId() { return this.table.getId(this.row); }
+    @Override public int getLastCpu() { return this.table.getLastCpu(this.row); }
+    @Override public byte getState() { return this.table.getState(this.row); }
+    @Override public long getVirtualTime() { return this.table.getVirtualTime(this.row); }
+    @Override public int getShares() { return this.table.getShares(this.row); }
+    @Override public int getRelativeDeadline() { return this.table.getRelativeDeadline(this.row); }
+    @Override public int getPeriod() { return this.table.getPeriod(this.row); }
+    @Override public boolean hasDeadline() { return this.table.hasDeadline(this.row); }
+    @Override public int getIoTime() { return this.table.getIoTime(this.row); }
+    @Override public int getWakeTime() { return this.table.getWakeTime(this.row); }
+    @Override public int getCacheCpu() { return this.table.getCacheCpu(this.row); }
+    @Override public int getLeftCpuTime() { return this.table.getLeftCpuTime(this.row); }
+    @Override public int getFirstRunTime() { return this.table.getFirstRunTime(this.row); }
+    @Override public long getDeadline() { return this.table.getDeadline(this.row); }
+    @Override public int getStartTime() { return this.table.getStartTime(this.row); }
+    @Override public int getBurstTime() { return this.table.getBurstTime(this.row); }
+    @Override public int getTotalTime() { return this.table.getTotalTime(this.row); }
+    @Override public int getElapsedTotal() { return this.table.getElapsedTotal(this.row); }
+    @Override public int getPriority() { return this.table.getPriority(this.row); }
+    @Override public int getElapsedBurst() { return this.table.getElapsedBurst(this.row); }
+    @Override public int getRemainingBurst() { return this.table.getRemainingBurst(this.row); }
+    @Override public int getTicksToBurstEnd() { return this.table.getTicksToBurstEnd(this.row); }
+    @Override public int getTicksToExecutionEnd() { return this.table.getTicksToExecutionEnd(this.row); }
+}
+
+/**
+ * Interns process names so each distinct name is stored once and referred to by number.  Names
+ * are interned without the number they end in, which the table keeps itself, so numbered names
+ * like a generator's don't each need an entry.  Small dictionaries are searched directly; the
+ * hash map only appears once there are enough names to need it.
+ */
+class NameDictionary {
+    private static final int SCAN_LIMIT = 8;     // Up to this many names a linear search is fine
+    private static final int MAX_DIGITS = 9;     // Longest number that always fits in an int
+
+    private String[] names = new String[1];
+    private int count = 0;
+    private HashMap<String, Integer> codes = null;
+
+    /**
+     * @return length of the name without the number it ends in, the whole length if it doesn't
+     *         end in one that reads back the same, e.g. P007
+     */
+    static int prefixLength(String name) {
+        int start = name.length();
+        while (start > 0 && name.charAt(start - 1) >= '0' && name.charAt(start - 1) <= '9') {
+            start--;
+        }
+        int digits = name.length() - start;
+        if (digits == 0 || digits > MAX_DIGITS || (digits > 1 && name.charAt(start) == '0')) {
+            return name.length();
+        }
+        return start;
+    }
+
+    /**
+     * @return the number for the first length characters of the name, adding them to the
+     *         dictionary if they are new
+     */
+    int intern(String name, int length) {
+        if (this.codes != null) {
+            Integer code = this.codes.get(name.substring(0, length));
+            if (code != null) {
+                return code;
+            }
+        }
+        else {
+            for (int code = 0; code < this.count; code++) {
+                if (this.names[code].length() == length && name.startsWith(this.names[code])) {
+                    return code;
+                }
+            }
+        }
+        if (this.count == this.names.length) {
+            this.names = Arrays.copyOf(this.names, this.count * 2);
+        }
+        int code = this.count++;
+        this.names[code] = name.substring(0, length);
+        if (this.codes != null) {
+            this.codes.put(this.names[code], code);
+        }
+        else if (this.count > SCAN_LIMIT) {
+            this.codes = new HashMap<>();
+            for (int i = 0; i < this.count; i++) {
+                this.codes.put(this.names[i], i);
+            }
+        }
+        return code;
+    }
+
+    String get(int code) {
+        return this.names[code];
+    }
+}
@@ -1,3 +1,5 @@
+import java.io.IOException;
+
 /**
  * This interface defines the behaviors required of any scheduler.
  */
@@ -10,7 +12,9 @@ public interface Scheduler {
     int getNumberOfContextSwitches();
 
     /**
-     * Used to notify the scheduler a new process has just entered the ready state.
+     * Used to notify the scheduler a new process has just entered the ready state, or a process
+     * has come back from I/O.  A scheduler sends a process off to do I/O with Platform.startIo
+     * when its burst completes.
      */
     void notifyNewProcess(Process p);
 
@@ -20,4 +24,103 @@ public interface Scheduler {
      *         if no process available for scheduling.
      */
     Process update(Process cpu);
+
+    /**
+     * Update the scheduling algorithm for the CPU with the given index.  Schedulers that keep
+     * state per CPU override this; the rest ignore the index.
+     * @return Reference to the process that is executing on the CPU; result might be null
+     *         if no process available for scheduling.
+     */
+    default Process update(Process cpu, int cpuIndex) {
+        return update(cpu);
+    }
+
+    /**
+     * @return number of processes waiting in the ready queue
+     */
+    default int getReadyCount() {
+        return 0;
+    }
+
+    /**
+     * Takes the process this scheduler would run next out of its ready queue, so another
+     * queue can run it instead.
+     * @return the process removed, or null if there is nothing to take
+     */
+    default Process steal() {
+        return null;
+    }
+
+    /**
+     * @return number of processes taken from another CPU's ready queue
+     */
+    default int getNumberOfSteals() {
+        return 0;
+    }
+
+    /**
+     * @return number of times a process was scheduled on a different CPU than it last ran on
+     */
+    default int getNumberOfMigrations() {
+        return 0;
+    }
+
+    /**
+     * Used by Platform's parallel mode, where the updates of different CPUs in a tick can run on
+     * different threads at once.  Asked once the CPUs before it have been updated, but before the
+     * process on the CPU has run the tick, so by the update it may have run one more.  Returns
+     * true only if that update is guaranteed to touch nothing but the CPU's own ready queue and
+     * state and the process running on it, besides logging and Platform.startIo, so it can't
+     * affect or be affected by the update of any other CPU.  It must return false if the update
+     * might look at another CPU's queue or process, e.g. to steal.  The default is for schedulers
+     * whose CPUs share one ready queue, and is always false.
+     * @param cpu the process running on the CPU, might be null
+     */
+    default boolean isLocalUpdate(Process cpu, int cpuIndex) {
+        return false;
+    }
+
+    /**
+     * Used by the event driven simulation to skip ahead.  Reports how many of the upcoming calls
+     * to update, for a CPU currently running the given process, are guaranteed to hand the same
+     * process back without logging or counting anything, assuming no new process arrives.
+     * The default of 0 makes the event driven simulation step one tick at a time.
+     * @param cpu the process running on the CPU, might be null
+     * @return number of ticks that can safely be skipped
+     */
+    default int getQuietTicks(Process cpu) {
+        return 0;
+    }
+
+    /**
+     * Same as getQuietTicks, for the CPU with the given index.
+     */
+    default int getQuietTicks(Process cpu, int cpuIndex) {
+        return getQuietTicks(cpu);
+    }
+
+    /**
+     * Writes everything the scheduler holds between updates, its ready queue, counters and any
+     * per CPU state, so a simulation can be checkpointed.  Processes are written with
+     * CheckpointOutput.writeProcess.
+     */
+    default void saveState(CheckpointOutput out) throws IOException {
+        throw new UnsupportedOperationException(getClass().getName() + " can't be checkpointed");
+    }
+
+    /**
+     * Puts back the state written by saveState into a newly constructed scheduler, so the
+     * simulation carries on exactly as if it had never stopped.
+     */
+    default void restoreState(CheckpointInput in) throws IOException {
+        throw new UnsupportedOperationException(getClass().getName() + " can't be checkpointed");
+    }
+
+    /**
+     * @return the text the console shows for an event this scheduler logged; a scheduler only
+     *         overrides this to keep wording of its own
+     */
+    default String describe(SchedulingEvent event, String processName) {
+        return event.describe(processName);
+    }
 }
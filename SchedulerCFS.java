@@ -0,0 +1,299 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+/**
+ * Completely fair scheduling, after the Linux scheduler of the same name.  Every process keeps a
+ * virtual runtime: the ticks it has run, scaled down by its weight, so a heavier process's
+ * virtual clock runs slower.  The process that has had the least virtual runtime always runs
+ * next, which over time gives each process a share of the CPU in proportion to its weight.
+ *
+ * A process runs for a slice of the target latency in proportion to its weight, but never less
+ * than the minimum granularity; when there are too many processes for everyone to get the
+ * minimum within the target latency, the period is stretched instead.  At the end of a slice the
+ * process gives way to whoever is now furthest behind, if anyone is.
+ *
+ * Priority maps to a weight the way Linux maps nice values: priority 0 has weight 1024 and each
+ * step is about 25% more or less CPU.  Waiting processes are kept in a tree ordered by virtual
+ * runtime, so every decision is O(log n).
+ */
+public class SchedulerCFS implements Scheduler {
+    public static final int DEFAULT_TARGET_LATENCY = 24;
+    public static final int DEFAULT_MIN_GRANULARITY = 3;
+
+    // weight of each priority from -20 to 19, the Linux nice to weight table
+    private static final int[] WEIGHTS = {
+        88761, 71755, 56483, 46273, 36291, 29154, 23254, 18705, 14949, 11916,
+        9548, 7620, 6100, 4904, 3906, 3121, 2501, 1991, 1586, 1277,
+        1024, 820, 655, 526, 423, 335, 272, 215, 172, 137,
+        110, 87, 70, 56, 45, 36, 29, 23, 18, 15
+    };
+    private static final int NICE_0_WEIGHT = 1024;
+    // virtual runtime is kept in 1/1024ths of a tick so light processes don't round down to 0
+    private static final long VIRTUAL_TICK = 1024;
+
+    // the reference to platform
+    private Platform platform;
+    // the number of times a task goes from one state to another
+    private int contextSwitches = 0;
+    // the slice length, in ticks, the runnable processes share between them
+    private int targetLatency;
+    // the shortest slice a process is given
+    private int minGranularity;
+    // the waiting processes, least virtual runtime first
+    private TreeSet<Process> queue;
+    // total weight of every process waiting or running
+    private long totalWeight = 0;
+    // number of processes waiting or running
+    private int runnable = 0;
+    // never goes backwards; new arrivals start here so they can't monopolize the cpu
+    private long minVirtualTime = 0;
+    // per cpu, the elapsed total of its running process when its current slice began
+    private int[] sliceStart = new int[1];
+    // per cpu, the length of its running process's current slice
+    private int[] sliceLength = new int[1];
+
+    public SchedulerCFS(Platform platform) {
+        this(platform, DEFAULT_TARGET_LATENCY, DEFAULT_MIN_GRANULARITY);
+    }
+
+    /**
+     * @param platform the reference to platform
+     * @param targetLatency ticks in which every runnable process should get a turn
+     * @param minGranularity the shortest slice a process runs for
+     */
+    public SchedulerCFS(Platform platform, int targetLatency, int minGranularity) {
+        if (targetLatency <= 0 || minGranularity <= 0) {
+            throw new IllegalArgumentException("Target latency and minimum granularity must be positive");
+        }
+        this.platform = platform;
+        this.targetLatency = targetLatency;
+        this.minGranularity = minGranularity;
+        queue = new TreeSet<>(new CompareVirtualTime());
+    }
+
+    /**
+     * A scheduler must track the number of context switches performed during the simulation.
+     * This method returns that count.
+     *
+     * @return The number of context switches that occurred during the simulation
+     */
+    @Override
+    public int getNumberOfContextSwitches() {
+        return contextSwitches;
+    }
+
+    /**
+     * New processes start at the current minimum virtual runtime, level with whoever is
+     * furthest behind.
+     *
+     * @param p the process to add to the queue.
+     */
+    @Override
+    public void notifyNewProcess(Process p) {
+        p.setVirtualTime(Math.max(p.getVirtualTime(), minVirtualTime));
+        queue.add(p);
+        totalWeight += weightOf(p);
+        runnable++;
+    }
+
+    /**
+     * Update the scheduling algorithm for a single CPU.
+     *
+     * @param cpu the process currently running on the cpu
+     * @return Reference to the process that is executing on the CPU; result might be null
+     * if no process available for scheduling.
+     */
+    @Override
+    public Process update(Process cpu) {
+        return update(cpu, 0);
+    }
+
+    /**
+     * Update the scheduling algorithm for one of several CPUs sharing the queue.  The running
+     * process is only charged for its ticks when a decision is made, so a tick where nothing
+     * happens is a single comparison.
+     *
+     * @param cpu the process currently running on the cpu
+     * @param cpuIndex which cpu is being updated
+     * @return Reference to the process that is executing on the CPU; result might be null
+     * if no process available for scheduling.
+     */
+    @Override
+    public Process update(Process cpu, int cpuIndex) {
+        if (cpuIndex >= sliceStart.length) {
+            sliceStart = Arrays.copyOf(sliceStart, cpuIndex + 1);
+            sliceLength = Arrays.copyOf(sliceLength, cpuIndex + 1);
+        }
+        if (cpu == null) {
+            if (queue.isEmpty()) {
+                return null;
+            }
+            platform.log(SchedulingEvent.SCHEDULED, queue.first());
+            return take(cpuIndex);
+        }
+
+        boolean sliceUsed = cpu.getElapsedTotal() - sliceStart[cpuIndex] >= sliceLength[cpuIndex];
+        if (!cpu.isExecutionComplete() && !cpu.isBurstComplete() && !sliceUsed) {
+            return cpu;
+        }
+        charge(cpu, cpuIndex);
+        if (cpu.isExecutionComplete()) {
+            platform.log(SchedulingEvent.EXECUTION_COMPLETE, cpu);
+            totalWeight -= weightOf(cpu);
+            runnable--;
+        }
+        else if (cpu.isBurstComplete()) {
+            platform.log(SchedulingEvent.BURST_COMPLETE, cpu);
+            if (platform.startIo(cpu)) {
+                // not runnable until it wakes and is notified again
+                totalWeight -= weightOf(cpu);
+                runnable--;
+            }
+            else {
+                queue.add(cpu);
+            }
+        }
+        else if (!queue.isEmpty() && queue.comparator().compare(queue.first(), cpu) < 0) {
+            // the slice is over and someone else is now further behind
+            platform.log(SchedulingEvent.QUANTUM_EXPIRED, cpu);
+            queue.add(cpu);
+        }
+        else {
+            // still the furthest behind, so it carries on with a new slice
+            startSlice(cpu, cpuIndex);
+            return cpu;
+        }
+        contextSwitches += 2;
+        if (!queue.isEmpty()) {
+            platform.log(SchedulingEvent.SCHEDULED, queue.first());
+        }
+        return take(cpuIndex);
+    }
+
+    /**
+     * CFS acts when the running process finishes a burst or its slice, or when an idle cpu has
+     * something waiting in the queue.
+     *
+     * @param cpu the process that is currently running on the cpu
+     * @return number of ticks that can safely be skipped
+     */
+    @Override
+    public int getQuietTicks(Process cpu) {
+        return getQuietTicks(cpu, 0);
+    }
+
+    /**
+     * @param cpu the process that is currently running on the cpu
+     * @param cpuIndex which cpu it is running on
+     * @return number of ticks that can safely be skipped
+     */
+    @Override
+    public int getQuietTicks(Process cpu, int cpuIndex) {
+        if (cpu == null) {
+            return queue.isEmpty() ? Integer.MAX_VALUE : 0;
+        }
+        int toSliceEnd = sliceLength[cpuIndex] - (cpu.getElapsedTotal() - sliceStart[cpuIndex]);
+        int toEvent = Math.min(toSliceEnd, Math.min(cpu.getTicksToBurstEnd(), cpu.getTicksToExecutionEnd()));
+        return Math.max(0, toEvent - 1);
+    }
+
+    /**
+     * @return number of processes waiting in the queue
+     */
+    @Override
+    public int getReadyCount() {
+        return queue.size();
+    }
+
+    /**
+     * Takes the process furthest behind out of the queue so another cpu can run it
+     *
+     * @return the process removed, or null if the queue is empty
+     */
+    @Override
+    public Process steal() {
+        Process p = queue.pollFirst();
+        if (p != null) {
+            totalWeight -= weightOf(p);
+            runnable--;
+        }
+        return p;
+    }
+
+    @Override
+    public void saveState(CheckpointOutput out) throws IOException {
+        out.writeInt(contextSwitches);
+        out.writeInt(targetLatency);
+        out.writeInt(minGranularity);
+        out.writeProcesses(queue);
+        out.writeLong(totalWeight);
+        out.writeInt(runnable);
+        out.writeLong(minVirtualTime);
+        out.writeInts(sliceStart);
+        out.writeInts(sliceLength);
+    }
+
+    @Override
+    public void restoreState(CheckpointInput in) throws IOException {
+        contextSwitches = in.readInt();
+        targetLatency = in.readInt();
+        minGranularity = in.readInt();
+        in.readProcesses(queue);
+        totalWeight = in.readLong();
+        runnable = in.readInt();
+        minVirtualTime = in.readLong();
+        sliceStart = in.readInts();
+        sliceLength = in.readInts();
+    }
+
+    /**
+     * @return the virtual runtime new arrivals start at
+     */
+    public long getMinVirtualTime() {
+        return minVirtualTime;
+    }
+
+    /**
+     * @return the weight a priority maps to; smaller numbers are higher priority and heavier
+     */
+    public static int weightOf(int priority) {
+        return WEIGHTS[Math.max(-20, Math.min(priority, 19)) + 20];
+    }
+
+    private static int weightOf(Process p) {
+        return weightOf(p.getPriority());
+    }
+
+    /**
+     * Takes the process furthest behind from the queue to run on a cpu
+     */
+    private Process take(int cpuIndex) {
+        Process p = queue.pollFirst();
+        if (p != null) {
+            minVirtualTime = Math.max(minVirtualTime, p.getVirtualTime());
+            startSlice(p, cpuIndex);
+        }
+        return p;
+    }
+
+    /**
+     * Gives the process its share of the scheduling period: the target latency, or the minimum
+     * granularity for every runnable process if that is longer.
+     */
+    private void startSlice(Process p, int cpuIndex) {
+        long period = Math.max(targetLatency, (long) minGranularity * runnable);
+        long slice = totalWeight == 0 ? period : period * weightOf(p) / totalWeight;
+        sliceStart[cpuIndex] = p.getElapsedTotal();
+        sliceLength[cpuIndex] = (int) Math.max(minGranularity, Math.min(slice, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Adds the ticks run since the slice started to the process's virtual runtime
+     */
+    private void charge(Process p, int cpuIndex) {
+        long ran = p.getElapsedTotal() - sliceStart[cpuIndex];
+        p.setVirtualTime(p.getVirtualTime() + ran * NICE_0_WEIGHT * VIRTUAL_TICK / weightOf(p));
+        sliceStart[cpuIndex] = p.getElapsedTotal();
+    }
+}
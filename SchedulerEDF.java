@@ -0,0 +1,160 @@
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Earliest deadline first.  The process whose current job has the nearest deadline always
+ * runs, preempting the running process as soon as something with an earlier deadline is
+ * waiting.  Processes without a deadline only run when nothing with one is waiting.
+ *
+ * The ready queue is a heap ordered by deadline, so picking and preempting cost O(log n) however
+ * many processes are waiting, and a tick where nothing changes is a single comparison.
+ */
+public class SchedulerEDF implements Scheduler {
+
+    // the reference to platform
+    private Platform platform;
+    //the number of times a task goes from one state to another
+    private int contextSwitches = 0;
+    // the queue of processes
+    private PriorityQueue<Process> queue;
+    // the order used by the queue
+    private CompareDeadline comparator;
+
+    public SchedulerEDF(Platform platform) {
+        // saves the reference to platform to use later
+        this.platform = platform;
+        // creates the queue
+        comparator = new CompareDeadline();
+        queue = new PriorityQueue<>(1, comparator);
+    }
+
+    /**
+     * A scheduler must track the number of context switches performed during the simulation.
+     * This method returns that count.
+     *
+     * @return The number of context switches that occurred during the simulation
+     */
+    @Override
+    public int getNumberOfContextSwitches() {
+        return contextSwitches;
+    }
+
+    /**
+     * Used to notify the scheduler a new process has just entered the ready state.
+     *
+     * @param p the process to add to the queue.
+     */
+    @Override
+    public void notifyNewProcess(Process p) {
+        queue.add(p);
+    }
+
+    /**
+     * Update the scheduling algorithm for a single CPU.
+     *
+     * @param cpu the process currently running on the cpu
+     * @return Reference to the process that is executing on the CPU; result might be null
+     * if no process available for scheduling.
+     */
+    @Override
+    public Process update(Process cpu) {
+        if (cpu == null) {
+            if (queue.isEmpty()) {
+                return null;
+            }
+            platform.log(SchedulingEvent.SCHEDULED, queue.peek());
+            return queue.poll();
+        }
+        if (cpu.isExecutionComplete()) {
+            platform.log(SchedulingEvent.EXECUTION_COMPLETE, cpu);
+        }
+        else if (cpu.isBurstComplete()) {
+            // the next job has a later deadline, so it goes back in the queue to be compared
+            platform.log(SchedulingEvent.BURST_COMPLETE, cpu);
+            if (!platform.startIo(cpu)) {
+                queue.add(cpu);
+            }
+        }
+        else if (!queue.isEmpty() && comparator.compare(queue.peek(), cpu) < 0) {
+            platform.log(SchedulingEvent.PREEMPTED, cpu);
+            queue.add(cpu);
+        }
+        else {
+            return cpu;
+        }
+        contextSwitches += 2;
+        if (!queue.isEmpty()) {
+            platform.log(SchedulingEvent.SCHEDULED, queue.peek());
+        }
+        return queue.poll();
+    }
+
+    /**
+     * Acts when the running process finishes a burst, when something in the queue has an
+     * earlier deadline, or when an idle cpu has something waiting in the queue.
+     *
+     * @param cpu the process that is currently running on the cpu
+     * @return number of ticks that can safely be skipped
+     */
+    @Override
+    public int getQuietTicks(Process cpu) {
+        if (cpu == null) {
+            return queue.isEmpty() ? Integer.MAX_VALUE : 0;
+        }
+        // the deadline of the running job doesn't change until its burst ends
+        if (!queue.isEmpty() && comparator.compare(queue.peek(), cpu) < 0) {
+            return 0;
+        }
+        return Math.max(0, Math.min(cpu.getTicksToBurstEnd(), cpu.getTicksToExecutionEnd()) - 1);
+    }
+
+    /**
+     * @return number of processes waiting in the queue
+     */
+    @Override
+    public int getReadyCount() {
+        return queue.size();
+    }
+
+    /**
+     * Takes the earliest deadline process out of the queue so another cpu can run it
+     *
+     * @return the process removed, or null if the queue is empty
+     */
+    @Override
+    public Process steal() {
+        return queue.poll();
+    }
+
+    /**
+     * The queue is written in the heap's own order; adding it back in that order rebuilds the
+     * same heap.
+     */
+    @Override
+    public void saveState(CheckpointOutput out) throws IOException {
+        out.writeInt(contextSwitches);
+        out.writeProcesses(queue);
+    }
+
+    @Override
+    public void restoreState(CheckpointInput in) throws IOException {
+        contextSwitches = in.readInt();
+        in.readProcesses(queue);
+    }
+}
+
+/**
+ * Orders processes by the deadline of their current job, then by id so processes with the same
+ * deadline run in the order they arrived.
+ */
+class CompareDeadline implements Comparator<Process> {
+
+    public int compare(Process p1, Process p2) {
+        int a = Long.compare(p1.getDeadline(), p2.getDeadline());
+        if (a != 0) {
+            return a;
+        }
+        return Integer.compare(p1.getId(), p2.getId());
+    }
+}
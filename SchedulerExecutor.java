@@ -0,0 +1,419 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * An ExecutorService that runs real tasks in the order one of the simulator's schedulers would.
+ * Each task is handed to the scheduler as a Process of a single burst, as long as the task is
+ * expected to take and with its priority, and whenever a slot is free the scheduler decides
+ * which waiting task it runs next, the same as it decides for a free CPU in a simulation.
+ *
+ * Tasks run on a fixed number of slots, each a thread from the given ThreadFactory; on a JDK with
+ * virtual threads that can be a factory making those.  A running task can't be preempted, so a
+ * preemptive scheduler such as SRTF or RR only decides the order tasks start in.
+ *
+ * Time is counted in ticks of the given unit since the executor was made.  The metrics, with
+ * response, turnaround and waiting times per priority, and the scheduler's context switches are
+ * kept the same way as in a simulation.  The latest tasks to complete can be had as a workload,
+ * each one as long as it actually ran, so the scheduler can be simulated on it and what it
+ * predicts compared with what happened; how many are kept for that is set with
+ * setWorkloadLimit, and by default none are.
+ */
+public class SchedulerExecutor extends AbstractExecutorService {
+    public static final int DEFAULT_PRIORITY = 0;
+    public static final int DEFAULT_EXPECTED_TICKS = 1;
+
+    private final Scheduler scheduler;
+    private final TimeUnit tick;                // Length of a tick
+    private final long startNanos;              // When the executor was made, the start of tick 0
+    private final ReentrantLock lock = new ReentrantLock();     // Guards everything below, the scheduler too
+    private final Condition[] assigned;         // Per slot, signalled when it is given a task
+    private final Condition terminated;         // Signalled when the last slot thread exits
+    private final ExecutorTask[] running;       // Per slot, the task it is running, null when idle
+    private final Thread[] threads;
+    private final SimulationMetrics metrics;
+    private final ArrayDeque<Process> completed = new ArrayDeque<>();  // The latest tasks to have run, as long as they ran
+    private int workloadLimit = 0;              // Most tasks kept in completed
+    private int nextId = 0;
+    private int pending = 0;                    // Tasks submitted and not yet complete
+    private int live;                           // Slot threads that haven't exited
+    private int ticks = 0;                      // Ticks the metrics have been told about so far
+    private boolean shutdown = false;
+
+    /**
+     * @param slots the number of tasks that can run at once
+     * @param factory builds the scheduler, e.g. SchedulerSJF::new
+     */
+    public SchedulerExecutor(int slots, Function<Platform, Scheduler> factory) {
+        this(slots, factory, TimeUnit.MILLISECONDS, Executors.defaultThreadFactory());
+    }
+
+    /**
+     * @param slots the number of tasks that can run at once
+     * @param factory builds the scheduler, e.g. SchedulerSJF::new
+     * @param tick the length of a tick, the unit of expected durations and of the metrics
+     * @param threadFactory makes the thread for each slot
+     */
+    public SchedulerExecutor(int slots, Function<Platform, Scheduler> factory, TimeUnit tick, ThreadFactory threadFactory) {
+        if (slots <= 0) {
+            throw new IllegalArgumentException("An executor needs at least one slot");
+        }
+        // the scheduler reports to a platform with a cpu per slot, on which nothing is simulated
+        Platform platform = new Platform(slots);
+        platform.setEventSink(null);
+        this.scheduler = factory.apply(platform);
+        this.tick = tick;
+        this.startNanos = System.nanoTime();
+        this.metrics = new SimulationMetrics(slots);
+        this.assigned = new Condition[slots];
+        this.terminated = this.lock.newCondition();
+        this.running = new ExecutorTask[slots];
+        this.threads = new Thread[slots];
+        this.live = slots;
+        for (int slot = 0; slot < slots; slot++) {
+            int index = slot;
+            this.assigned[slot] = this.lock.newCondition();
+            this.threads[slot] = threadFactory.newThread(() -> work(index));
+        }
+        for (Thread thread : this.threads) {
+            thread.start();
+        }
+    }
+
+    /**
+     * Runs a task with the default priority and expected duration.
+     */
+    @Override
+    public void execute(Runnable command) {
+        execute(command, DEFAULT_PRIORITY, DEFAULT_EXPECTED_TICKS);
+    }
+
+    /**
+     * Runs a task once the scheduler picks it.
+     * @param priority smaller is higher, as for a Process
+     * @param expectedTicks how long the task is expected to run, for schedulers that go by it
+     */
+    public void execute(Runnable command, int priority, int expectedTicks) {
+        Objects.requireNonNull(command);
+        if (expectedTicks <= 0) {
+            throw new IllegalArgumentException("Expected duration must be positive");
+        }
+        this.lock.lock();
+        try {
+            if (this.shutdown) {
+                throw new RejectedExecutionException("The executor has been shut down");
+            }
+            ExecutorTask task = new ExecutorTask("T" + this.nextId, now(), expectedTicks, priority, command);
+            task.setId(this.nextId++);
+            task.setState(ProcessTable.READY);
+            this.pending++;
+            this.scheduler.notifyNewProcess(task);
+            for (int slot = 0; slot < this.running.length; slot++) {
+                if (this.running[slot] == null) {
+                    dispatch(slot, this.scheduler.update(null, slot));
+                }
+            }
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    public Future<?> submit(Runnable task, int priority, int expectedTicks) {
+        RunnableFuture<Void> future = newTaskFor(task, null);
+        execute(future, priority, expectedTicks);
+        return future;
+    }
+
+    public <T> Future<T> submit(Callable<T> task, int priority, int expectedTicks) {
+        RunnableFuture<T> future = newTaskFor(task);
+        execute(future, priority, expectedTicks);
+        return future;
+    }
+
+    /**
+     * @return the scheduler's context switches so far
+     */
+    public int getNumberOfContextSwitches() {
+        this.lock.lock();
+        try {
+            return this.scheduler.getNumberOfContextSwitches();
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the latency and utilization figures, in ticks.  They change as tasks complete, so
+     *         are only sure to be consistent once the executor has terminated.
+     */
+    public SimulationMetrics getMetrics() {
+        this.lock.lock();
+        try {
+            recordTicks();
+            return this.metrics;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Sets how many of the latest tasks to complete are kept for getWorkload; once there are more,
+     * the oldest are dropped, so an executor that runs for a long time doesn't keep every task it
+     * has ever run.  The default is 0, keeping none.
+     */
+    public void setWorkloadLimit(int tasks) {
+        if (tasks < 0) {
+            throw new IllegalArgumentException("Workload limit can't be negative");
+        }
+        this.lock.lock();
+        try {
+            this.workloadLimit = tasks;
+            while (this.completed.size() > tasks) {
+                this.completed.removeFirst();
+            }
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return a new Process for each of the latest tasks to complete, up to the workload limit,
+     *         arriving when it was submitted and with a single burst as long as it actually ran,
+     *         ready to be simulated
+     */
+    public Queue<Process> getWorkload() {
+        this.lock.lock();
+        try {
+            Queue<Process> processes = new LinkedList<>();
+            for (Process p : this.completed) {
+                processes.add(new StandaloneProcess(p.getName(), p.getStartTime(), p.getBurstTime(), p.getTotalTime(), p.getPriority()));
+            }
+            return processes;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        this.lock.lock();
+        try {
+            this.shutdown = true;
+            if (this.pending == 0) {
+                wakeAll();
+            }
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Takes every waiting task back out of the scheduler, in the order it would have run them,
+     * and interrupts those running.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> waiting = new ArrayList<>();
+        this.lock.lock();
+        try {
+            this.shutdown = true;
+            Process p;
+            while ((p = this.scheduler.steal()) != null) {
+                waiting.add(((ExecutorTask) p).command);
+                this.pending--;
+            }
+            for (int slot = 0; slot < this.running.length; slot++) {
+                if (this.running[slot] != null) {
+                    this.threads[slot].interrupt();
+                }
+            }
+            if (this.pending == 0) {
+                wakeAll();
+            }
+        }
+        finally {
+            this.lock.unlock();
+        }
+        return waiting;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        this.lock.lock();
+        try {
+            return this.shutdown;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isTerminated() {
+        this.lock.lock();
+        try {
+            return this.live == 0;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        this.lock.lock();
+        try {
+            while (this.live > 0) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = this.terminated.awaitNanos(nanos);
+            }
+            return true;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Body of a slot's thread: runs the task the slot is given, then has the scheduler pick the
+     * next, until the executor is shut down and there is nothing left to run.
+     */
+    private void work(int slot) {
+        this.lock.lock();
+        try {
+            while (true) {
+                ExecutorTask task = this.running[slot];
+                if (task == null) {
+                    if (this.shutdown && this.pending == 0) {
+                        break;
+                    }
+                    this.assigned[slot].awaitUninterruptibly();
+                    continue;
+                }
+                this.lock.unlock();
+                long started = System.nanoTime();
+                try {
+                    task.command.run();
+                }
+                catch (RuntimeException | Error e) {
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+                finally {
+                    // a task interrupted by shutdownNow mustn't leave the next one interrupted
+                    Thread.interrupted();
+                    this.lock.lock();
+                }
+                complete(slot, task, System.nanoTime() - started);
+            }
+            this.live--;
+            if (this.live == 0) {
+                this.terminated.signalAll();
+            }
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Puts the task the scheduler chose, if any, on an idle slot.
+     */
+    private void dispatch(int slot, Process next) {
+        if (next == null) {
+            return;
+        }
+        ExecutorTask task = (ExecutorTask) next;
+        this.running[slot] = task;
+        task.setState(ProcessTable.RUNNING);
+        this.metrics.recordFirstRun(task, now());
+        this.metrics.recordSwitch(false);
+        this.assigned[slot].signal();
+    }
+
+    /**
+     * Records a task that has run, and has the scheduler pick what the slot runs next.
+     * @param nanos how long the task actually ran
+     */
+    private void complete(int slot, ExecutorTask task, long nanos) {
+        int clock = now();
+        // rounded to whole ticks it could come out longer than the task was there at all
+        int ran = (int) Math.min(this.tick.convert(nanos, TimeUnit.NANOSECONDS), clock - task.getStartTime());
+        // as far as the scheduler is concerned, the task ran exactly as long as expected
+        task.advance(task.getTicksToExecutionEnd());
+        this.metrics.recordBusy(slot, ran);
+        this.metrics.recordCompletion(task, clock, ran);
+        if (this.workloadLimit > 0) {
+            if (this.completed.size() == this.workloadLimit) {
+                this.completed.removeFirst();
+            }
+            this.completed.addLast(new StandaloneProcess(task.getName(), task.getStartTime(), Math.max(1, ran), Math.max(1, ran), task.getPriority()));
+        }
+        this.pending--;
+        this.running[slot] = null;
+        Process next = this.scheduler.update(task, slot);
+        task.setState(ProcessTable.DONE);
+        dispatch(slot, next);
+        if (this.shutdown && this.pending == 0) {
+            wakeAll();
+        }
+    }
+
+    private void wakeAll() {
+        for (Condition condition : this.assigned) {
+            condition.signal();
+        }
+    }
+
+    /**
+     * Brings the length of time the metrics know about up to now
+     */
+    private void recordTicks() {
+        int clock = now();
+        this.metrics.recordTicks(clock - this.ticks);
+        this.ticks = clock;
+    }
+
+    /**
+     * @return ticks since the executor was made
+     */
+    private int now() {
+        return (int) Math.min(this.tick.convert(System.nanoTime() - this.startNanos, TimeUnit.NANOSECONDS), Integer.MAX_VALUE);
+    }
+}
+
+/**
+ * A task waiting for, or running on, a SchedulerExecutor's slot, seen by the scheduler as a
+ * process with a single burst of the task's expected duration.
+ */
+class ExecutorTask extends StandaloneProcess {
+    final Runnable command;
+
+    ExecutorTask(String name, int startTime, int expectedTicks, int priority, Runnable command) {
+        super(name, startTime, expectedTicks, expectedTicks, priority);
+        this.command = command;
+    }
+}
@@ -1,3 +1,4 @@
+import java.io.IOException;
 import java.util.LinkedList;
 
 public class SchedulerFCFS implements Scheduler {
@@ -60,14 +61,16 @@ public class SchedulerFCFS implements Scheduler {
         if (cpu != null) {
             // if the process is done
             if (cpu.isExecutionComplete()) {
-                platform.log(String.format("Process %s burst complete", cpu.getName()));
-                platform.log(String.format("Process %s execution complete", cpu.getName()));
+                platform.log(SchedulingEvent.BURST_COMPLETE, cpu);
+                platform.log(SchedulingEvent.EXECUTION_COMPLETE, cpu);
             }
             // if the process's burst is done
             else if (cpu.isBurstComplete()) {
-                platform.log(String.format("Process %s burst complete", cpu.getName()));
-                // re-add the process to the end of the queue
-                queue.add(cpu);
+                platform.log(SchedulingEvent.BURST_COMPLETE, cpu);
+                // re-add the process to the end of the queue, unless it is blocked for I/O
+                if (!platform.startIo(cpu)) {
+                    queue.add(cpu);
+                }
                 // increase the number of context switches
                 contextSwitches++;
             }
@@ -76,7 +79,7 @@ public class SchedulerFCFS implements Scheduler {
                 // increase the number of context switches
                 contextSwitches++;
                 // say which process is scheduled now
-                platform.log(String.format("Scheduled: %s", queue.peek().getName()));
+                platform.log(SchedulingEvent.SCHEDULED, queue.peek());
                 // return the next process in queue
                 return queue.pop();
             }
@@ -87,14 +90,74 @@ public class SchedulerFCFS implements Scheduler {
         }
 
         // if the process does not exist get the first task in the queue
-        if (cpu == null) {
-            platform.log(String.format("Scheduled: %s", queue.peek().getName()));
+        if (cpu == null && !isQueueEmpty()) {
+            platform.log(SchedulingEvent.SCHEDULED, queue.peek());
             contextSwitches++;
             return queue.pop();
         }
         return null;
     }
 
+    /**
+     * FCFS only acts when the running process finishes a burst, or when an idle cpu has
+     * something waiting in the queue.
+     *
+     * @param cpu the process that is currently running on the cpu
+     * @return number of ticks that can safely be skipped
+     */
+    @Override
+    public int getQuietTicks(Process cpu) {
+        if (cpu == null) {
+            return isQueueEmpty() ? Integer.MAX_VALUE : 0;
+        }
+        return Math.max(0, Math.min(cpu.getTicksToBurstEnd(), cpu.getTicksToExecutionEnd()) - 1);
+    }
+
+    /**
+     * FCFS has always said a burst or an execution is "complete" rather than "completed", and
+     * keeps saying so.
+     */
+    @Override
+    public String describe(SchedulingEvent event, String processName) {
+        if (event == SchedulingEvent.BURST_COMPLETE) {
+            return "Process " + processName + " burst complete";
+        }
+        if (event == SchedulingEvent.EXECUTION_COMPLETE) {
+            return "Process " + processName + " execution complete";
+        }
+        return event.describe(processName);
+    }
+
+    /**
+     * @return number of processes waiting in the queue
+     */
+    @Override
+    public int getReadyCount() {
+        return queue.size();
+    }
+
+    /**
+     * Takes the next process out of the queue so another cpu can run it
+     *
+     * @return the process removed, or null if the queue is empty
+     */
+    @Override
+    public Process steal() {
+        return queue.poll();
+    }
+
+    @Override
+    public void saveState(CheckpointOutput out) throws IOException {
+        out.writeInt(contextSwitches);
+        out.writeProcesses(queue);
+    }
+
+    @Override
+    public void restoreState(CheckpointInput in) throws IOException {
+        contextSwitches = in.readInt();
+        in.readProcesses(queue);
+    }
+
     /**
      * @author Aaron Hales
      * checks if the queue is empty
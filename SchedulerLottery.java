@@ -0,0 +1,382 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Lottery scheduling, a randomized proportional share scheduler.  Whenever the cpu is free or
+ * a time quantum ends, a ticket is drawn from all the waiting processes and the running one,
+ * and its holder runs next, so each process gets the cpu in proportion to its tickets on
+ * average.  Tickets are given out the same way as by SchedulerStride.
+ *
+ * The waiting processes' tickets are kept in a Fenwick tree, so a draw is O(log n) rather
+ * than a walk along the queue.  Draws come from a seeded generator, so a simulation can be
+ * repeated exactly.  The generator is the same SplitMix64 one as java.util.SplittableRandom,
+ * kept here so its state can go in a checkpoint.
+ */
+public class SchedulerLottery implements Scheduler {
+    public static final int DEFAULT_QUANTUM = 4;
+    public static final long DEFAULT_SEED = 3100;
+
+    // the reference to platform
+    private Platform platform;
+    // the number of times a task goes from one state to another
+    private int contextSwitches = 0;
+    // the time quantum
+    private int timeQuantum;
+    // the waiting processes and their tickets
+    private TicketTree queue;
+    // state of the generator the draws come from
+    private long random;
+    // per cpu, the elapsed total of its running process when its current quantum began
+    private int[] sliceStart = new int[1];
+
+    public SchedulerLottery(Platform platform) {
+        this(platform, DEFAULT_QUANTUM, DEFAULT_SEED);
+    }
+
+    /**
+     * @param platform the reference to platform
+     * @param timeQuantum ticks a process runs between draws
+     * @param seed the same seed always gives the same draws
+     */
+    public SchedulerLottery(Platform platform, int timeQuantum, long seed) {
+        if (timeQuantum <= 0) {
+            throw new IllegalArgumentException("Time quantum must be positive");
+        }
+        this.platform = platform;
+        this.timeQuantum = timeQuantum;
+        this.random = seed;
+        queue = new TicketTree();
+    }
+
+    /**
+     * A scheduler must track the number of context switches performed during the simulation.
+     * This method returns that count.
+     *
+     * @return The number of context switches that occurred during the simulation
+     */
+    @Override
+    public int getNumberOfContextSwitches() {
+        return contextSwitches;
+    }
+
+    /**
+     * Used to notify the scheduler a new process has just entered the ready state.
+     *
+     * @param p the process to add to the queue.
+     */
+    @Override
+    public void notifyNewProcess(Process p) {
+        queue.add(p, SchedulerStride.ticketsOf(p));
+    }
+
+    /**
+     * Update the scheduling algorithm for a single CPU.
+     *
+     * @param cpu the process currently running on the cpu
+     * @return Reference to the process that is executing on the CPU; result might be null
+     * if no process available for scheduling.
+     */
+    @Override
+    public Process update(Process cpu) {
+        return update(cpu, 0);
+    }
+
+    /**
+     * Update the scheduling algorithm for one of several CPUs sharing the queue.
+     *
+     * @param cpu the process currently running on the cpu
+     * @param cpuIndex which cpu is being updated
+     * @return Reference to the process that is executing on the CPU; result might be null
+     * if no process available for scheduling.
+     */
+    @Override
+    public Process update(Process cpu, int cpuIndex) {
+        if (cpuIndex >= sliceStart.length) {
+            sliceStart = Arrays.copyOf(sliceStart, cpuIndex + 1);
+        }
+        if (cpu == null) {
+            if (queue.isEmpty()) {
+                return null;
+            }
+            Process next = draw(cpuIndex);
+            platform.log(SchedulingEvent.SCHEDULED, next);
+            return next;
+        }
+
+        boolean quantumExpired = cpu.getElapsedTotal() - sliceStart[cpuIndex] >= timeQuantum;
+        if (!cpu.isExecutionComplete() && !cpu.isBurstComplete() && !quantumExpired) {
+            return cpu;
+        }
+        if (cpu.isExecutionComplete()) {
+            platform.log(SchedulingEvent.EXECUTION_COMPLETE, cpu);
+        }
+        else if (cpu.isBurstComplete()) {
+            platform.log(SchedulingEvent.BURST_COMPLETE, cpu);
+            // the running process goes back in the draw, unless it is blocked for I/O
+            if (!platform.startIo(cpu)) {
+                queue.add(cpu, SchedulerStride.ticketsOf(cpu));
+            }
+        }
+        else {
+            // the running process goes back in the draw
+            queue.add(cpu, SchedulerStride.ticketsOf(cpu));
+            Process next = draw(cpuIndex);
+            if (next == cpu) {
+                // won again, so it runs another quantum
+                return cpu;
+            }
+            platform.log(SchedulingEvent.QUANTUM_EXPIRED, cpu);
+            contextSwitches += 2;
+            platform.log(SchedulingEvent.SCHEDULED, next);
+            return next;
+        }
+        contextSwitches += 2;
+        Process next = draw(cpuIndex);
+        if (next != null) {
+            platform.log(SchedulingEvent.SCHEDULED, next);
+        }
+        return next;
+    }
+
+    /**
+     * Lottery scheduling acts when the running process finishes a burst or its time quantum, or
+     * when an idle cpu has something waiting in the queue.
+     *
+     * @param cpu the process that is currently running on the cpu
+     * @return number of ticks that can safely be skipped
+     */
+    @Override
+    public int getQuietTicks(Process cpu) {
+        return getQuietTicks(cpu, 0);
+    }
+
+    /**
+     * @param cpu the process that is currently running on the cpu
+     * @param cpuIndex which cpu it is running on
+     * @return number of ticks that can safely be skipped
+     */
+    @Override
+    public int getQuietTicks(Process cpu, int cpuIndex) {
+        if (cpu == null) {
+            return queue.isEmpty() ? Integer.MAX_VALUE : 0;
+        }
+        int toQuantum = timeQuantum - (cpu.getElapsedTotal() - sliceStart[cpuIndex]);
+        int toEvent = Math.min(toQuantum, Math.min(cpu.getTicksToBurstEnd(), cpu.getTicksToExecutionEnd()));
+        return Math.max(0, toEvent - 1);
+    }
+
+    /**
+     * @return number of processes waiting in the queue
+     */
+    @Override
+    public int getReadyCount() {
+        return queue.size();
+    }
+
+    /**
+     * Draws a waiting process for another cpu to run
+     *
+     * @return the process removed, or null if the queue is empty
+     */
+    @Override
+    public Process steal() {
+        return queue.isEmpty() ? null : queue.remove(nextTicket());
+    }
+
+    @Override
+    public void saveState(CheckpointOutput out) throws IOException {
+        out.writeInt(contextSwitches);
+        out.writeInt(timeQuantum);
+        queue.save(out);
+        out.writeLong(random);
+        out.writeInts(sliceStart);
+    }
+
+    @Override
+    public void restoreState(CheckpointInput in) throws IOException {
+        contextSwitches = in.readInt();
+        timeQuantum = in.readInt();
+        queue.restore(in);
+        random = in.readLong();
+        sliceStart = in.readInts();
+    }
+
+    /**
+     * Draws the next process to run on a cpu and starts its quantum
+     */
+    private Process draw(int cpuIndex) {
+        if (queue.isEmpty()) {
+            return null;
+        }
+        Process p = queue.remove(nextTicket());
+        sliceStart[cpuIndex] = p.getElapsedTotal();
+        return p;
+    }
+
+    /**
+     * @return a ticket between 0 and the number of tickets in the queue, drawn the same way as
+     *         SplittableRandom.nextLong(bound)
+     */
+    private long nextTicket() {
+        long bound = queue.getTotalTickets();
+        long r = nextRandom();
+        long m = bound - 1;
+        if ((bound & m) == 0) {
+            return r & m;
+        }
+        // rejects the top end of the range so every ticket is equally likely
+        long u = r >>> 1;
+        while (u + m - (r = u % bound) < 0) {
+            u = nextRandom() >>> 1;
+        }
+        return r;
+    }
+
+    private long nextRandom() {
+        long z = random += 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
+
+/**
+ * Processes and their tickets, in slots of a Fenwick tree.  The tree holds running totals of
+ * the tickets, so the process holding any given ticket is found in O(log n) and adding or
+ * removing a process is O(log n) as well.  Freed slots are reused before the tree grows.
+ */
+class TicketTree {
+    private Process[] processes = new Process[16];   // Process in each slot, null if free
+    private long[] tickets = new long[16];          // Tickets of each slot
+    private long[] tree = new long[17];             // Fenwick tree over the slots, 1 based
+    private int[] free = new int[16];               // Slots that have been emptied
+    private int freeCount = 0;
+    private int used = 0;                           // Slots handed out so far
+    private int size = 0;
+    private long total = 0;
+
+    void add(Process p, int count) {
+        int slot;
+        if (this.freeCount > 0) {
+            slot = this.free[--this.freeCount];
+        }
+        else {
+            if (this.used == this.processes.length) {
+                grow();
+            }
+            slot = this.used++;
+        }
+        this.processes[slot] = p;
+        this.tickets[slot] = count;
+        change(slot, count);
+        this.size++;
+        this.total += count;
+    }
+
+    /**
+     * Removes the process holding the given ticket, counting the tickets slot by slot.
+     * @param ticket between 0 and the total number of tickets
+     */
+    Process remove(long ticket) {
+        int slot = find(ticket);
+        Process p = this.processes[slot];
+        change(slot, -this.tickets[slot]);
+        this.total -= this.tickets[slot];
+        this.processes[slot] = null;
+        this.tickets[slot] = 0;
+        this.free[this.freeCount++] = slot;
+        this.size--;
+        return p;
+    }
+
+    /**
+     * Writes every slot, so a restored tree draws exactly the same processes.
+     */
+    void save(CheckpointOutput out) throws IOException {
+        out.writeInt(this.processes.length);
+        out.writeInt(this.used);
+        for (int slot = 0; slot < this.used; slot++) {
+            out.writeProcess(this.processes[slot]);
+            out.writeLong(this.tickets[slot]);
+        }
+        out.writeInt(this.freeCount);
+        for (int i = 0; i < this.freeCount; i++) {
+            out.writeInt(this.free[i]);
+        }
+    }
+
+    /**
+     * Replaces the contents of an empty tree with what save wrote.
+     */
+    void restore(CheckpointInput in) throws IOException {
+        int capacity = in.readInt();
+        this.processes = new Process[capacity];
+        this.tickets = new long[capacity];
+        this.free = new int[capacity];
+        this.used = in.readInt();
+        this.size = 0;
+        this.total = 0;
+        for (int slot = 0; slot < this.used; slot++) {
+            this.processes[slot] = in.readProcess();
+            this.tickets[slot] = in.readLong();
+            this.size += this.processes[slot] != null ? 1 : 0;
+            this.total += this.tickets[slot];
+        }
+        this.freeCount = in.readInt();
+        for (int i = 0; i < this.freeCount; i++) {
+            this.free[i] = in.readInt();
+        }
+        build();
+    }
+
+    int size() { return this.size; }
+    boolean isEmpty() { return this.size == 0; }
+    long getTotalTickets() { return this.total; }
+
+    /**
+     * @return the slot whose tickets include the given one
+     */
+    private int find(long ticket) {
+        int position = 0;
+        for (int step = Integer.highestOneBit(this.processes.length); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= this.processes.length && this.tree[next] <= ticket) {
+                position = next;
+                ticket -= this.tree[next];
+            }
+        }
+        return position;
+    }
+
+    private void change(int slot, long delta) {
+        for (int i = slot + 1; i < this.tree.length; i += i & -i) {
+            this.tree[i] += delta;
+        }
+    }
+
+    /**
+     * Doubles the number of slots and rebuilds the tree over them
+     */
+    private void grow() {
+        int capacity = this.processes.length * 2;
+        this.processes = Arrays.copyOf(this.processes, capacity);
+        this.tickets = Arrays.copyOf(this.tickets, capacity);
+        this.free = Arrays.copyOf(this.free, capacity);
+        build();
+    }
+
+    /**
+     * Builds the tree over the tickets of every slot in O(n)
+     */
+    private void build() {
+        int capacity = this.processes.length;
+        this.tree = new long[capacity + 1];
+        for (int i = 1; i <= capacity; i++) {
+            this.tree[i] += this.tickets[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                this.tree[parent] += this.tree[i];
+            }
+        }
+    }
+}
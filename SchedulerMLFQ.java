@@ -0,0 +1,313 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Multilevel feedback queue.  Every process starts at the top level, and a process that uses a
+ * whole time quantum is moved down a level, so long CPU bound jobs sink while short interactive
+ * ones stay near the top.  A process that finishes its burst first keeps its level.  Higher
+ * levels always run first, preempting anything running from a lower level, and each level has
+ * its own quantum, normally growing down the levels.  Every so often everything is boosted back
+ * to the top level so the bottom levels can't starve.  A process coming back from I/O starts
+ * again at the top level, so interactive processes get the cpu quickly when they wake.
+ *
+ * The levels are a PriorityRunQueue, so finding the next process doesn't depend on the number
+ * of levels or of processes waiting.  A boost doesn't move anything waiting: each boost starts
+ * a new epoch, whose levels lie in the queue after those of the epochs before it, and whatever
+ * was queued in an earlier epoch counts as the top level.  Everything from before the boost
+ * still comes out first, in the order a boost that moved it all to the top would have left it.
+ */
+public class SchedulerMLFQ implements Scheduler {
+    public static final int[] DEFAULT_QUANTA = { 2, 4, 8, 16 };
+    public static final int DEFAULT_BOOST_INTERVAL = 256;
+
+    // the reference to platform
+    private Platform platform;
+    // the number of times a task goes from one state to another
+    private int contextSwitches = 0;
+    // the time quantum of each level, top level first
+    private int[] quanta;
+    // ticks between priority boosts, 0 for none
+    private int boostInterval;
+    // the clock count of the next priority boost
+    private int nextBoost;
+    // the queue of processes, one queue level per level and epoch
+    private PriorityRunQueue queue;
+    // the queue level of this epoch's top level; anything queued below it counts as the top level
+    private int epochStart = 0;
+    // per cpu, the process running on it
+    private Process[] running = new Process[1];
+    // per cpu, the level of the process running on it
+    private int[] runningLevel = new int[1];
+    // per cpu, the elapsed total of its running process when its current time slice began
+    private int[] sliceStart = new int[1];
+
+    public SchedulerMLFQ(Platform platform) {
+        this(platform, DEFAULT_QUANTA, DEFAULT_BOOST_INTERVAL);
+    }
+
+    /**
+     * @param platform the reference to platform
+     * @param quanta the time quantum of each level, top level first; the number of levels is the
+     *               length of the array
+     * @param boostInterval ticks between moving every process back to the top level, 0 for never
+     */
+    public SchedulerMLFQ(Platform platform, int[] quanta, int boostInterval) {
+        if (quanta.length == 0 || quanta.length > PriorityRunQueue.LEVELS) {
+            throw new IllegalArgumentException("MLFQ needs between 1 and " + PriorityRunQueue.LEVELS + " levels");
+        }
+        for (int quantum : quanta) {
+            if (quantum <= 0) {
+                throw new IllegalArgumentException("Time quanta must be positive");
+            }
+        }
+        if (boostInterval < 0) {
+            throw new IllegalArgumentException("Boost interval can't be negative");
+        }
+        this.platform = platform;
+        this.quanta = quanta.clone();
+        this.boostInterval = boostInterval;
+        this.nextBoost = boostInterval;
+        queue = new PriorityRunQueue();
+    }
+
+    /**
+     * A scheduler must track the number of context switches performed during the simulation.
+     * This method returns that count.
+     *
+     * @return The number of context switches that occurred during the simulation
+     */
+    @Override
+    public int getNumberOfContextSwitches() {
+        return contextSwitches;
+    }
+
+    /**
+     * New processes start at the top level.
+     *
+     * @param p the process to add to the queue.
+     */
+    @Override
+    public void notifyNewProcess(Process p) {
+        queue.addLast(p, epochStart);
+    }
+
+    /**
+     * Update the scheduling algorithm for a single CPU.
+     *
+     * @param cpu the process currently running on the cpu
+     * @return Reference to the process that is executing on the CPU; result might be null
+     * if no process available for scheduling.
+     */
+    @Override
+    public Process update(Process cpu) {
+        return update(cpu, 0);
+    }
+
+    /**
+     * Update the scheduling algorithm for one of several CPUs sharing the queue.
+     *
+     * @param cpu the process currently running on the cpu
+     * @param cpuIndex which cpu is being updated
+     * @return Reference to the process that is executing on the CPU; result might be null
+     * if no process available for scheduling.
+     */
+    @Override
+    public Process update(Process cpu, int cpuIndex) {
+        if (cpuIndex >= running.length) {
+            running = Arrays.copyOf(running, cpuIndex + 1);
+            runningLevel = Arrays.copyOf(runningLevel, cpuIndex + 1);
+            sliceStart = Arrays.copyOf(sliceStart, cpuIndex + 1);
+        }
+        boostIfDue();
+
+        Process next = cpu;
+        if (cpu == null) {
+            if (!queue.isEmpty()) {
+                platform.log(SchedulingEvent.SCHEDULED, queue.peek());
+                next = take(cpuIndex);
+            }
+        }
+        else if (cpu.isExecutionComplete()) {
+            platform.log(SchedulingEvent.EXECUTION_COMPLETE, cpu);
+            next = switchFrom(cpuIndex);
+        }
+        else if (cpu.isBurstComplete()) {
+            // gave up the cpu within its quantum, so it keeps its level
+            platform.log(SchedulingEvent.BURST_COMPLETE, cpu);
+            if (!platform.startIo(cpu)) {
+                queue.addLast(cpu, epochStart + runningLevel[cpuIndex]);
+            }
+            next = switchFrom(cpuIndex);
+        }
+        else if (cpu.getElapsedTotal() - sliceStart[cpuIndex] >= quanta[runningLevel[cpuIndex]]) {
+            // used the whole quantum, so it moves down a level
+            platform.log(SchedulingEvent.QUANTUM_EXPIRED, cpu);
+            queue.addLast(cpu, epochStart + Math.min(runningLevel[cpuIndex] + 1, quanta.length - 1));
+            next = switchFrom(cpuIndex);
+        }
+        else if (!queue.isEmpty() && peekLevel() < runningLevel[cpuIndex]) {
+            // something from a higher level is waiting; the preempted process keeps its place
+            platform.log(SchedulingEvent.PREEMPTED, cpu);
+            queue.addFirst(cpu, epochStart + runningLevel[cpuIndex]);
+            next = switchFrom(cpuIndex);
+        }
+        running[cpuIndex] = next;
+        return next;
+    }
+
+    /**
+     * Acts when the running process finishes a burst or its time quantum, when something on a
+     * higher level is waiting, at a priority boost, or when an idle cpu has something waiting.
+     *
+     * @param cpu the process that is currently running on the cpu
+     * @return number of ticks that can safely be skipped
+     */
+    @Override
+    public int getQuietTicks(Process cpu) {
+        return getQuietTicks(cpu, 0);
+    }
+
+    /**
+     * @param cpu the process that is currently running on the cpu
+     * @param cpuIndex which cpu it is running on
+     * @return number of ticks that can safely be skipped
+     */
+    @Override
+    public int getQuietTicks(Process cpu, int cpuIndex) {
+        if (cpu == null) {
+            return queue.isEmpty() ? Integer.MAX_VALUE : 0;
+        }
+        if (!queue.isEmpty() && peekLevel() < runningLevel[cpuIndex]) {
+            return 0;
+        }
+        int toQuantum = quanta[runningLevel[cpuIndex]] - (cpu.getElapsedTotal() - sliceStart[cpuIndex]);
+        int toEvent = Math.min(toQuantum, Math.min(cpu.getTicksToBurstEnd(), cpu.getTicksToExecutionEnd()));
+        int quiet = Math.max(0, toEvent - 1);
+        if (boostInterval > 0) {
+            // the boost happens on the first update at or after its tick
+            quiet = Math.min(quiet, Math.max(0, nextBoost - platform.getClockCounter()));
+        }
+        return quiet;
+    }
+
+    /**
+     * @return number of processes waiting in the queue
+     */
+    @Override
+    public int getReadyCount() {
+        return queue.size();
+    }
+
+    /**
+     * Takes the next process out of the queue so another cpu can run it.  Its level isn't
+     * carried over, the queue it goes to starts it at the top.
+     *
+     * @return the process removed, or null if the queue is empty
+     */
+    @Override
+    public Process steal() {
+        return queue.poll();
+    }
+
+    /**
+     * @return the level the process running on a cpu is at
+     */
+    public int getRunningLevel(int cpuIndex) {
+        return runningLevel[cpuIndex];
+    }
+
+    @Override
+    public void saveState(CheckpointOutput out) throws IOException {
+        out.writeInt(contextSwitches);
+        out.writeInts(quanta);
+        out.writeInt(boostInterval);
+        out.writeInt(nextBoost);
+        out.writeInt(epochStart);
+        queue.save(out);
+        out.writeInt(running.length);
+        for (Process p : running) {
+            out.writeProcess(p);
+        }
+        out.writeInts(runningLevel);
+        out.writeInts(sliceStart);
+    }
+
+    @Override
+    public void restoreState(CheckpointInput in) throws IOException {
+        contextSwitches = in.readInt();
+        quanta = in.readInts();
+        boostInterval = in.readInt();
+        nextBoost = in.readInt();
+        epochStart = in.readInt();
+        queue.restore(in);
+        running = new Process[in.readInt()];
+        for (int cpu = 0; cpu < running.length; cpu++) {
+            running[cpu] = in.readProcess();
+        }
+        runningLevel = in.readInts();
+        sliceStart = in.readInts();
+    }
+
+    /**
+     * Hands the cpu to the next process in the queue, counting the switch out and the switch in.
+     * @return the process now running on the cpu, might be null
+     */
+    private Process switchFrom(int cpuIndex) {
+        contextSwitches += 2;
+        if (!queue.isEmpty()) {
+            platform.log(SchedulingEvent.SCHEDULED, queue.peek());
+        }
+        return take(cpuIndex);
+    }
+
+    /**
+     * Takes the next process from the queue to run on a cpu and starts its time slice
+     */
+    private Process take(int cpuIndex) {
+        int level = peekLevel();
+        Process p = queue.poll();
+        if (p != null) {
+            runningLevel[cpuIndex] = level;
+            sliceStart[cpuIndex] = p.getElapsedTotal();
+        }
+        return p;
+    }
+
+    /**
+     * @return the level of the next process in the queue, the top level if it was queued before
+     *         the last boost; only valid when the queue isn't empty
+     */
+    private int peekLevel() {
+        return Math.max(0, queue.peekLevel() - epochStart);
+    }
+
+    /**
+     * Once the boost interval has passed, puts everything, running or waiting, back on the top
+     * level.  Running processes start a fresh slice there.  Waiting processes stay where they
+     * are, behind them a new epoch starts, so a boost only moves anything when the queue has
+     * run out of levels for new epochs, which takes hundreds of boosts.
+     */
+    private void boostIfDue() {
+        int clock = platform.getClockCounter();
+        if (boostInterval == 0 || clock < nextBoost) {
+            return;
+        }
+        nextBoost = (clock / boostInterval + 1) * boostInterval;
+        if (queue.isEmpty()) {
+            epochStart = 0;
+        }
+        else if (epochStart + 2 * quanta.length <= PriorityRunQueue.LEVELS) {
+            epochStart += quanta.length;
+        }
+        else {
+            queue.moveAllTo(0);
+            epochStart = 1;
+        }
+        for (int cpu = 0; cpu < running.length; cpu++) {
+            runningLevel[cpu] = 0;
+            if (running[cpu] != null) {
+                sliceStart[cpu] = running[cpu].getElapsedTotal();
+            }
+        }
+    }
+}
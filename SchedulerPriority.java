@@ -1,5 +1,4 @@
-import java.util.Comparator;
-import java.util.PriorityQueue;
+import java.io.IOException;
 
 public class SchedulerPriority implements Scheduler {
 
@@ -7,14 +6,14 @@ public class SchedulerPriority implements Scheduler {
     private Platform platform;
     //the number of times a task goes from one state to another
     private int contextSwitches = 0;
-    // the queue of processes
-    private PriorityQueue<Process> queue;
+    // the queue of processes, first in first out within each priority
+    private PriorityRunQueue queue;
 
     public SchedulerPriority(Platform platform) {
         // saves the reference to platform to use later
         this.platform = platform;
         // creates the queue
-        queue = new PriorityQueue<>(1, new ComparePriority());
+        queue = new PriorityRunQueue();
     }
 
     /**
@@ -37,7 +36,7 @@ public class SchedulerPriority implements Scheduler {
     @Override
     public void notifyNewProcess(Process p) {
         // puts task in ready state;
-        queue.add(p);
+        queue.addLast(p);
     }
 
     /**
@@ -49,20 +48,49 @@ public class SchedulerPriority implements Scheduler {
      */
     @Override
     public Process update(Process cpu) {
+        return update(cpu, 0);
+    }
+
+    /**
+     * Update the scheduling algorithm for one of several CPUs sharing the queue.
+     *
+     * @param cpu the current process received
+     * @param cpuIndex which cpu is being updated
+     * @return Reference to the process that is executing on the CPU; result might be null
+     * if no process available for scheduling.
+     */
+    @Override
+    public Process update(Process cpu, int cpuIndex) {
         if (cpu == null) {
-            platform.log(String.format("Scheduled: %s", queue.peek().getName()));
+            if (isQueueEmpty()) {
+                return null;
+            }
+            platform.log(SchedulingEvent.SCHEDULED, queue.peek());
             return queue.poll();
         }
-        // puts cpu in the queue
-        queue.add(cpu);
-        // get the first from the queue
-        Process first = queue.poll();
+        // the cpu keeps running if it is still ahead of everything in the queue; a process that
+        // just finished its execution is never preempted, or it would never be seen to finish
+        Process first = cpu;
+        if (!isQueueEmpty() && !cpu.isExecutionComplete() && isAhead(queue.peek(), cpu)) {
+            // get the first from the queue
+            first = queue.poll();
+            // puts cpu back at the front of its priority, it was there before anything now waiting
+            queue.addFirst(cpu);
+        }
+        // a tie only takes the cpu from a process that has had a tick on it, or with switching
+        // costs the two could take it from each other forever without either running
+        else if (!isQueueEmpty() && !cpu.isExecutionComplete() && !isAhead(cpu, queue.peek())
+                && platform.hasRun(cpuIndex)) {
+            first = queue.poll();
+            // cpu goes behind the others at its priority, so they take turns
+            queue.addLast(cpu);
+        }
         // checks to see if the first in the queue is not the process recieved
         if (cpu != first) {
             // say that the process was removed
-            platform.log(String.format("Preemptively removed: %s", cpu.getName()));
+            platform.log(SchedulingEvent.PREEMPTED, cpu);
             // say the current process scheduled
-            platform.log(String.format("Scheduled: %s", first.getName()));
+            platform.log(SchedulingEvent.SCHEDULED, first);
             // add 2 switches to total
             contextSwitches++;
             contextSwitches++;
@@ -75,24 +103,26 @@ public class SchedulerPriority implements Scheduler {
         else if (first != null) {
             // if the process is either done with burst or completed
             if (first.isBurstComplete() || first.isExecutionComplete()) {
+                // say that the process burst is done
+                platform.log(SchedulingEvent.BURST_COMPLETE, first);
                 // if the process burst is done but not completed
                 if (first.isBurstComplete() && !first.isExecutionComplete()) {
-                    // add the process back to back of queue
+                    // add the process back to back of queue, unless it is blocked for I/O
                     contextSwitches++;
-                    queue.add(first);
+                    if (!platform.startIo(first)) {
+                        queue.addLast(first);
+                    }
                 }
-                // say that the process burst is done
-                platform.log(String.format("Process %s burst completed", first.getName()));
                 // if the process is completed
                 if (first.isExecutionComplete()) {
-                    platform.log(String.format("Process %s execution completed", first.getName()));
+                    platform.log(SchedulingEvent.EXECUTION_COMPLETE, first);
                     contextSwitches++;
                 }
                 contextSwitches++;
                 // if the queue is not empty but cpu is null
                 if (!isQueueEmpty()) {
                     // say which process is scheduled
-                    platform.log(String.format("Scheduled: %s", queue.peek().getName()));
+                    platform.log(SchedulingEvent.SCHEDULED, queue.peek());
                 }
                 // get the next process
                 return queue.poll();
@@ -106,29 +136,67 @@ public class SchedulerPriority implements Scheduler {
     }
 
     /**
-     * @author Aaron Hales
-     * checks if the queue is empty
-     * @return true of empty, false if not empty
+     * Acts when the running process finishes a burst, when something in the queue can preempt
+     * it, or when an idle cpu has something waiting in the queue.
+     *
+     * @param cpu the process that is currently running on the cpu
+     * @return number of ticks that can safely be skipped
      */
-    private boolean isQueueEmpty() {
-        return queue.isEmpty();
+    @Override
+    public int getQuietTicks(Process cpu) {
+        if (cpu == null) {
+            return isQueueEmpty() ? Integer.MAX_VALUE : 0;
+        }
+        // a process in the queue with the same or a higher priority preempts on the next tick
+        if (!isQueueEmpty() && !isAhead(cpu, queue.peek())) {
+            return 0;
+        }
+        return Math.max(0, Math.min(cpu.getTicksToBurstEnd(), cpu.getTicksToExecutionEnd()) - 1);
     }
-}
 
-/**
- * @author Aaron Hales
- */
-class ComparePriority implements Comparator<Process> {
+    /**
+     * @return number of processes waiting in the queue
+     */
+    @Override
+    public int getReadyCount() {
+        return queue.size();
+    }
+
+    /**
+     * Takes the next process out of the queue so another cpu can run it
+     *
+     * @return the process removed, or null if the queue is empty
+     */
+    @Override
+    public Process steal() {
+        return queue.poll();
+    }
+
+    @Override
+    public void saveState(CheckpointOutput out) throws IOException {
+        out.writeInt(contextSwitches);
+        queue.save(out);
+    }
+
+    @Override
+    public void restoreState(CheckpointInput in) throws IOException {
+        contextSwitches = in.readInt();
+        queue.restore(in);
+    }
 
     /**
-     * set the order of the queue to have the highest priority process first
-     * @param p1 the first object to be compared.
-     * @param p2 the second object to be compared.
-     * @return the comparison
+     * @return true if the first process is at a strictly higher priority than the second
      */
-    public int compare(Process p1, Process p2) {
-        int a = Integer.compare(p1.getPriority(), p2.getPriority());
-        return a;
+    private boolean isAhead(Process p1, Process p2) {
+        return p1.getPriority() < p2.getPriority();
+    }
 
+    /**
+     * @author Aaron Hales
+     * checks if the queue is empty
+     * @return true of empty, false if not empty
+     */
+    private boolean isQueueEmpty() {
+        return queue.isEmpty();
     }
 }
@@ -1,4 +1,6 @@
-import java.util.LinkedList;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
 
 public class SchedulerRR implements Scheduler {
 
@@ -8,8 +10,10 @@ public class SchedulerRR implements Scheduler {
     private int contextSwitches = 0;
     // the time quantum
     private int timeQuantum;
-    // the queue of processes
-    private LinkedList<Process> queue;
+    // the queue of processes; a ring buffer, so requeueing a process doesn't allocate
+    private ArrayDeque<Process> queue;
+    // per cpu, the elapsed total of its running process when its current time slice began
+    private int[] sliceStart = new int[1];
 
     public SchedulerRR(Platform platform, int i) {
         // saves the reference to platform to use later
@@ -17,7 +21,7 @@ public class SchedulerRR implements Scheduler {
         // saves the time quantum
         this. timeQuantum = i;
         // creates the queue
-        queue = new LinkedList<>();
+        queue = new ArrayDeque<>();
     }
 
     /**
@@ -52,42 +56,63 @@ public class SchedulerRR implements Scheduler {
      */
     @Override
     public Process update(Process cpu) {
-        if (cpu == null) {
-            platform.log(String.format("Scheduled: %s", queue.peek().getName()));
-            return queue.poll();
+        return update(cpu, 0);
+    }
+
+    /**
+     * Update the scheduling algorithm for one of several CPUs sharing the queue.  Each cpu
+     * times the slice of the process running on it, so the quantum is counted in ticks actually
+     * run rather than worked out from the remaining burst.
+     *
+     * @param cpu the process currently running on the cpu
+     * @param cpuIndex which cpu is being updated
+     * @return Reference to the process that is executing on the CPU; result might be null
+     * if no process available for scheduling.
+     */
+    @Override
+    public Process update(Process cpu, int cpuIndex) {
+        if (cpuIndex >= sliceStart.length) {
+            sliceStart = Arrays.copyOf(sliceStart, cpuIndex + 1);
+        }
+        if (cpu == null && !isQueueEmpty()) {
+            platform.log(SchedulingEvent.SCHEDULED, queue.peek());
+            return take(cpuIndex);
         }
         if (isQueueEmpty() && cpu == null) {
             return null;
         }
         else if (cpu != null) {
-            if (cpu.isBurstComplete() || cpu.isExecutionComplete() || cpu.getRemainingBurst() % timeQuantum == 0) {
+            boolean quantumExpired = isQuantumExpired(cpu, cpuIndex);
+            if (cpu.isBurstComplete() || cpu.isExecutionComplete() || quantumExpired) {
                 // if the process burst is done but not completed
-                if ((cpu.isBurstComplete() || cpu.getRemainingBurst() % timeQuantum == 0) && !cpu.isExecutionComplete()) {
+                if ((cpu.isBurstComplete() || quantumExpired) && !cpu.isExecutionComplete()) {
                     if (cpu.isBurstComplete()) {
                         // say that the process burst is done
-                        platform.log(String.format("Process %s burst completed", cpu.getName()));
+                        platform.log(SchedulingEvent.BURST_COMPLETE, cpu);
                     }
                     // if the time quantum is expired say so
-                    else if (cpu.getRemainingBurst() % timeQuantum == 0) {
-                        platform.log(String.format("Time quantum completed for process %s", cpu.getName()));
+                    else {
+                        platform.log(SchedulingEvent.QUANTUM_EXPIRED, cpu);
                     }
-                    // add the process back to back of queue
+                    // add the process back to back of queue, unless its burst ended in I/O
                     contextSwitches++;
-                    queue.add(cpu);
+                    if (!cpu.isBurstComplete() || !platform.startIo(cpu)) {
+                        queue.add(cpu);
+                    }
                 }
                 // if the process is completed
                 if (cpu.isExecutionComplete()) {
-                    platform.log(String.format("Process %s execution completed", cpu.getName()));
+                    platform.log(SchedulingEvent.EXECUTION_COMPLETE, cpu);
                     contextSwitches++;
                 }
                 contextSwitches++;
                 // if the queue is not empty but cpu is null
                 if (!isQueueEmpty()) {
                     // say which process is scheduled
-                    platform.log(String.format("Scheduled: %s", queue.peek().getName()));
+                    platform.log(SchedulingEvent.SCHEDULED, queue.peek());
                 }
                 // get the next process
-                return queue.poll();
+                return take(cpuIndex);
             }
             // if the process is still needing to run return that process
             else if (cpu.getRemainingBurst() > 0) {
@@ -97,6 +122,86 @@ public class SchedulerRR implements Scheduler {
         return null;
     }
 
+    /**
+     * RR acts when the running process finishes a burst or its time quantum, or when an idle
+     * cpu has something waiting in the queue.
+     *
+     * @param cpu the process that is currently running on the cpu
+     * @return number of ticks that can safely be skipped
+     */
+    @Override
+    public int getQuietTicks(Process cpu) {
+        return getQuietTicks(cpu, 0);
+    }
+
+    /**
+     * @param cpu the process that is currently running on the cpu
+     * @param cpuIndex which cpu it is running on
+     * @return number of ticks that can safely be skipped
+     */
+    @Override
+    public int getQuietTicks(Process cpu, int cpuIndex) {
+        if (cpu == null) {
+            return isQueueEmpty() ? Integer.MAX_VALUE : 0;
+        }
+        // ticks until the slice runs out
+        int toQuantum = timeQuantum - (cpu.getElapsedTotal() - sliceStart[cpuIndex]);
+        int toEvent = Math.min(toQuantum, Math.min(cpu.getTicksToBurstEnd(), cpu.getTicksToExecutionEnd()));
+        return Math.max(0, toEvent - 1);
+    }
+
+    /**
+     * @return number of processes waiting in the queue
+     */
+    @Override
+    public int getReadyCount() {
+        return queue.size();
+    }
+
+    /**
+     * Takes the next process out of the queue so another cpu can run it
+     *
+     * @return the process removed, or null if the queue is empty
+     */
+    @Override
+    public Process steal() {
+        return queue.poll();
+    }
+
+    @Override
+    public void saveState(CheckpointOutput out) throws IOException {
+        out.writeInt(contextSwitches);
+        out.writeInt(timeQuantum);
+        out.writeProcesses(queue);
+        out.writeInts(sliceStart);
+    }
+
+    @Override
+    public void restoreState(CheckpointInput in) throws IOException {
+        contextSwitches = in.readInt();
+        timeQuantum = in.readInt();
+        in.readProcesses(queue);
+        sliceStart = in.readInts();
+    }
+
+    /**
+     * Takes the next process from the queue to run on a cpu and starts its time slice
+     */
+    private Process take(int cpuIndex) {
+        Process p = queue.poll();
+        if (p != null) {
+            sliceStart[cpuIndex] = p.getElapsedTotal();
+        }
+        return p;
+    }
+
+    /**
+     * @return true if the process has run for a whole time quantum since it was scheduled
+     */
+    private boolean isQuantumExpired(Process cpu, int cpuIndex) {
+        return cpu.getElapsedTotal() - sliceStart[cpuIndex] >= timeQuantum;
+    }
+
     /**
      * @author Aaron Hales
      * checks if the queue is empty
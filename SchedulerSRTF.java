@@ -1,117 +1,51 @@
 import java.util.Comparator;
-import java.util.PriorityQueue;
 
-public class SchedulerSRTF implements Scheduler {
+public class SchedulerSRTF extends ShortestFirstScheduler {
 
-    // the reference to platform
-    private Platform platform;
-    //the number of times a task goes from one state to another
-    private int contextSwitches = 0;
-    // the queue of processes
-    private PriorityQueue<Process> queue;
+    // the order used by the queue, but for ties
+    private CompareShortestR comparator;
 
     public SchedulerSRTF(Platform platform) {
-        // saves the reference to platform to use later
-        this.platform = platform;
-        // creates the queue
-        queue = new PriorityQueue<>(1, new CompareShortestR());
+        this(platform, new CompareShortestR());
     }
 
-    /**
-     * A scheduler must track the number of context switches performed during the simulation.
-     * This method returns that count.
-     *
-     * @return The number of context switches that occurred during the simulation
-     */
-    @Override
-    public int getNumberOfContextSwitches() {
-        return contextSwitches;
+    private SchedulerSRTF(Platform platform, CompareShortestR comparator) {
+        super(platform, comparator);
+        this.comparator = comparator;
     }
 
     /**
-     * @author Aaron Hales
-     * Used to notify the scheduler a new process has just entered the ready state.
+     * Acts when the running process finishes a burst, when something in the queue can preempt
+     * it, or when an idle cpu has something waiting in the queue.
      *
-     * @param p the process to add to the queue.
+     * @param cpu the process that is currently running on the cpu
+     * @return number of ticks that can safely be skipped
      */
     @Override
-    public void notifyNewProcess(Process p) {
-        // puts task in ready state;
-        queue.add(p);
-    }
-
-    /**
-     * Update the scheduling algorithm for a single CPU.
-     *
-     * @param cpu the current process received
-     * @return Reference to the process that is executing on the CPU; result might be null
-     * if no process available for scheduling.
-     */
-    @Override
-    public Process update(Process cpu) {
+    public int getQuietTicks(Process cpu) {
         if (cpu == null) {
-            platform.log(String.format("Scheduled: %s", queue.peek().getName()));
-            return queue.poll();
-        }
-        // puts cpu in the queue
-        queue.add(cpu);
-        // get the first from the queue
-        Process first = queue.poll();
-        // checks to see if the first in the queue is not the process recieved
-        if (cpu != first) {
-            // say that the process was removed
-            platform.log(String.format("Preemptively removed: %s", cpu.getName()));
-            // say the current process scheduled
-            platform.log(String.format("Scheduled: %s", first.getName()));
-            // add 2 switches to total
-            contextSwitches++;
-            contextSwitches++;
+            return isQueueEmpty() ? Integer.MAX_VALUE : 0;
         }
-        // if the queue is empty and cpu is null return null
-        if (isQueueEmpty() && first == null) {
-            return null;
-        }
-        // if cpu exists
-        else if (first != null) {
-            // if the process is either done with burst or completed
-            if (first.isBurstComplete() || first.isExecutionComplete()) {
-                // if the process burst is done but not completed
-                if (first.isBurstComplete() && !first.isExecutionComplete()) {
-                    // add the process back to back of queue
-                    contextSwitches++;
-                    queue.add(first);
-                }
-                // say that the process burst is done
-                platform.log(String.format("Process %s burst completed", first.getName()));
-                // if the process is completed
-                if (first.isExecutionComplete()) {
-                    platform.log(String.format("Process %s execution completed", first.getName()));
-                    contextSwitches++;
-                }
-                contextSwitches++;
-                // if the queue is not empty but cpu is null
-                if (!isQueueEmpty()) {
-                    // say which process is scheduled
-                    platform.log(String.format("Scheduled: %s", queue.peek().getName()));
-                }
-                // get the next process
-                return queue.poll();
-            }
-            // if the process is still needing to run return that process
-            else if (first.getRemainingBurst() > 0) {
-                return first;
+        // a process in the queue with a remaining burst no longer than the running one preempts
+        // on the next tick; the running process is a tick shorter by then unless the cpu is still
+        // switching to it
+        if (!isQueueEmpty()) {
+            Process waiting = peek();
+            if (comparator.compare(cpu, cpu.getTicksToBurstEnd(), waiting, waiting.getRemainingBurst()) >= 0) {
+                return 0;
             }
         }
-        return null;
+        // the running process only gets shorter, so nothing else preempts it before the burst ends
+        return Math.max(0, Math.min(cpu.getTicksToBurstEnd(), cpu.getTicksToExecutionEnd()) - 1);
     }
 
     /**
-     * @author Aaron Hales
-     * checks if the queue is empty
-     * @return true of empty, false if not empty
+     * A process sitting on a completed burst has nothing remaining until it runs and starts the
+     * next one, so it is compared against the queue again once it has.
      */
-    private boolean isQueueEmpty() {
-        return queue.isEmpty();
+    @Override
+    protected boolean isUnsettled(Process p) {
+        return p.isBurstComplete();
     }
 }
 
@@ -121,13 +55,27 @@ public class SchedulerSRTF implements Scheduler {
 class CompareShortestR implements Comparator<Process> {
 
     /**
-     * set the order of the queue to have the shortest burst remaining process first
+     * set the order of the queue to have the shortest burst remaining process first.  The
+     * remaining burst of a process can't change while it waits, so its place in the queue stays
+     * valid.  The queue takes processes that still tie in the order they were queued.
      * @param p1 the first object to be compared.
      * @param p2 the second object to be compared.
      * @return the comparison
      */
     public int compare(Process p1, Process p2) {
-        int a = Integer.compare(p1.getRemainingBurst(), p2.getRemainingBurst());
+        return compare(p1, p1.getRemainingBurst(), p2, p2.getRemainingBurst());
+    }
+
+    /**
+     * same order, but with the remaining burst of each process given by the caller
+     * @param p1 the first object to be compared.
+     * @param remaining1 the remaining burst to use for p1
+     * @param p2 the second object to be compared.
+     * @param remaining2 the remaining burst to use for p2
+     * @return the comparison
+     */
+    public int compare(Process p1, int remaining1, Process p2, int remaining2) {
+        int a = Integer.compare(remaining1, remaining2);
         int b = Integer.compare(p1.getBurstTime(), p2.getBurstTime());
         int c = Integer.compare(p2.getTotalTime(), p1.getTotalTime());
         if(a == 0 && b ==0){
@@ -0,0 +1,222 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+/**
+ * Stride scheduling, a deterministic proportional share scheduler.  Each process holds a
+ * number of tickets and has a stride inversely proportional to them; every tick it runs moves
+ * its pass on by its stride, and the process with the lowest pass always runs next.  Over any
+ * stretch of time each process gets the cpu in proportion to its tickets, to within a quantum.
+ *
+ * Tickets come from the process's shares if it has any, and otherwise from its priority, which
+ * is given the same weight SchedulerCFS would give it.  Waiting processes are kept in a tree
+ * ordered by pass, so every decision is O(log n).
+ */
+public class SchedulerStride implements Scheduler {
+    public static final int DEFAULT_QUANTUM = 4;
+
+    // the pass a process with one ticket moves on by per tick; no process holds more tickets
+    // than this, so every stride is at least 1
+    private static final long STRIDE1 = Process.MAX_SHARES;
+
+    // the reference to platform
+    private Platform platform;
+    // the number of times a task goes from one state to another
+    private int contextSwitches = 0;
+    // the time quantum
+    private int timeQuantum;
+    // the waiting processes, lowest pass first
+    private TreeSet<Process> queue;
+    // never goes backwards; new arrivals start here so they can't monopolize the cpu
+    private long minPass = 0;
+    // per cpu, the elapsed total of its running process when its current quantum began
+    private int[] sliceStart = new int[1];
+
+    public SchedulerStride(Platform platform) {
+        this(platform, DEFAULT_QUANTUM);
+    }
+
+    public SchedulerStride(Platform platform, int timeQuantum) {
+        if (timeQuantum <= 0) {
+            throw new IllegalArgumentException("Time quantum must be positive");
+        }
+        this.platform = platform;
+        this.timeQuantum = timeQuantum;
+        queue = new TreeSet<>(new CompareVirtualTime());
+    }
+
+    /**
+     * A scheduler must track the number of context switches performed during the simulation.
+     * This method returns that count.
+     *
+     * @return The number of context switches that occurred during the simulation
+     */
+    @Override
+    public int getNumberOfContextSwitches() {
+        return contextSwitches;
+    }
+
+    /**
+     * New processes start at the current lowest pass.  The pass is kept in the process's
+     * virtual time.
+     *
+     * @param p the process to add to the queue.
+     */
+    @Override
+    public void notifyNewProcess(Process p) {
+        p.setVirtualTime(Math.max(p.getVirtualTime(), minPass));
+        queue.add(p);
+    }
+
+    /**
+     * Update the scheduling algorithm for a single CPU.
+     *
+     * @param cpu the process currently running on the cpu
+     * @return Reference to the process that is executing on the CPU; result might be null
+     * if no process available for scheduling.
+     */
+    @Override
+    public Process update(Process cpu) {
+        return update(cpu, 0);
+    }
+
+    /**
+     * Update the scheduling algorithm for one of several CPUs sharing the queue.
+     *
+     * @param cpu the process currently running on the cpu
+     * @param cpuIndex which cpu is being updated
+     * @return Reference to the process that is executing on the CPU; result might be null
+     * if no process available for scheduling.
+     */
+    @Override
+    public Process update(Process cpu, int cpuIndex) {
+        if (cpuIndex >= sliceStart.length) {
+            sliceStart = Arrays.copyOf(sliceStart, cpuIndex + 1);
+        }
+        if (cpu == null) {
+            if (queue.isEmpty()) {
+                return null;
+            }
+            platform.log(SchedulingEvent.SCHEDULED, queue.first());
+            return take(cpuIndex);
+        }
+
+        boolean quantumExpired = cpu.getElapsedTotal() - sliceStart[cpuIndex] >= timeQuantum;
+        if (!cpu.isExecutionComplete() && !cpu.isBurstComplete() && !quantumExpired) {
+            return cpu;
+        }
+        // moves the pass on for the ticks actually run, so a short burst is charged less
+        long ran = cpu.getElapsedTotal() - sliceStart[cpuIndex];
+        cpu.setVirtualTime(cpu.getVirtualTime() + ran * strideOf(cpu));
+        sliceStart[cpuIndex] = cpu.getElapsedTotal();
+        if (cpu.isExecutionComplete()) {
+            platform.log(SchedulingEvent.EXECUTION_COMPLETE, cpu);
+        }
+        else if (cpu.isBurstComplete()) {
+            platform.log(SchedulingEvent.BURST_COMPLETE, cpu);
+            if (!platform.startIo(cpu)) {
+                queue.add(cpu);
+            }
+        }
+        else if (!queue.isEmpty() && queue.comparator().compare(queue.first(), cpu) < 0) {
+            platform.log(SchedulingEvent.QUANTUM_EXPIRED, cpu);
+            queue.add(cpu);
+        }
+        else {
+            // still the lowest pass, so it runs another quantum
+            return cpu;
+        }
+        contextSwitches += 2;
+        if (!queue.isEmpty()) {
+            platform.log(SchedulingEvent.SCHEDULED, queue.first());
+        }
+        return take(cpuIndex);
+    }
+
+    /**
+     * Stride scheduling acts when the running process finishes a burst or its time quantum, or
+     * when an idle cpu has something waiting in the queue.
+     *
+     * @param cpu the process that is currently running on the cpu
+     * @return number of ticks that can safely be skipped
+     */
+    @Override
+    public int getQuietTicks(Process cpu) {
+        return getQuietTicks(cpu, 0);
+    }
+
+    /**
+     * @param cpu the process that is currently running on the cpu
+     * @param cpuIndex which cpu it is running on
+     * @return number of ticks that can safely be skipped
+     */
+    @Override
+    public int getQuietTicks(Process cpu, int cpuIndex) {
+        if (cpu == null) {
+            return queue.isEmpty() ? Integer.MAX_VALUE : 0;
+        }
+        int toQuantum = timeQuantum - (cpu.getElapsedTotal() - sliceStart[cpuIndex]);
+        int toEvent = Math.min(toQuantum, Math.min(cpu.getTicksToBurstEnd(), cpu.getTicksToExecutionEnd()));
+        return Math.max(0, toEvent - 1);
+    }
+
+    /**
+     * @return number of processes waiting in the queue
+     */
+    @Override
+    public int getReadyCount() {
+        return queue.size();
+    }
+
+    /**
+     * Takes the lowest pass process out of the queue so another cpu can run it
+     *
+     * @return the process removed, or null if the queue is empty
+     */
+    @Override
+    public Process steal() {
+        return queue.pollFirst();
+    }
+
+    @Override
+    public void saveState(CheckpointOutput out) throws IOException {
+        out.writeInt(contextSwitches);
+        out.writeInt(timeQuantum);
+        out.writeProcesses(queue);
+        out.writeLong(minPass);
+        out.writeInts(sliceStart);
+    }
+
+    @Override
+    public void restoreState(CheckpointInput in) throws IOException {
+        contextSwitches = in.readInt();
+        timeQuantum = in.readInt();
+        in.readProcesses(queue);
+        minPass = in.readLong();
+        sliceStart = in.readInts();
+    }
+
+    /**
+     * @return the tickets a process holds: its shares if it has been given any, otherwise the
+     *         CFS weight of its priority
+     */
+    public static int ticketsOf(Process p) {
+        return p.getShares() > 0 ? p.getShares() : SchedulerCFS.weightOf(p.getPriority());
+    }
+
+    private static long strideOf(Process p) {
+        return STRIDE1 / ticketsOf(p);
+    }
+
+    /**
+     * Takes the lowest pass process from the queue to run on a cpu
+     */
+    private Process take(int cpuIndex) {
+        Process p = queue.pollFirst();
+        if (p != null) {
+            minPass = Math.max(minPass, p.getVirtualTime());
+            sliceStart[cpuIndex] = p.getElapsedTotal();
+        }
+        return p;
+    }
+}
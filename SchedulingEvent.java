@@ -0,0 +1,31 @@
+/**
+ * The kinds of events a Scheduler reports through the Logger.  Each event carries only
+ * primitives and the process name; the text for an event is only put together when an
+ * EventSink asks for it.
+ */
+public enum SchedulingEvent {
+    SCHEDULED("Scheduled: ", ""),
+    PREEMPTED("Preemptively removed: ", ""),
+    BURST_COMPLETE("Process ", " burst completed"),
+    QUANTUM_EXPIRED("Time quantum completed for process ", ""),
+    EXECUTION_COMPLETE("Process ", " execution completed"),
+    IO_STARTED("Process ", " blocked for I/O"),
+    IO_COMPLETE("Process ", " I/O completed"),
+    RELEASE_WAIT("Process ", " waiting for its next release"),
+    RELEASED("Process ", " released for its next burst");
+
+    private final String prefix;    // Text that goes before the process name
+    private final String suffix;    // Text that goes after the process name
+
+    SchedulingEvent(String prefix, String suffix) {
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    /**
+     * @return the human readable form of this event for the named process
+     */
+    public String describe(String processName) {
+        return this.prefix + processName + this.suffix;
+    }
+}
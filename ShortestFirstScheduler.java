@@ -0,0 +1,281 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * The queue and update shared by SJF and SRTF, which only differ in the order they keep the
+ * queue in.  Processes that tie in that order leave the queue in the order they joined it: each
+ * one is queued alongside a number counting processes into the queue, so the order needs nothing
+ * kept in the process itself.
+ */
+public abstract class ShortestFirstScheduler implements Scheduler {
+
+    // the reference to platform
+    private Platform platform;
+    //the number of times a task goes from one state to another
+    private int contextSwitches = 0;
+    // the queue of processes
+    private PriorityQueue<Queued> queue;
+    // bumped every time a process is added to the queue, the only way something waiting can
+    // become shorter than a process already running
+    private int readyVersion = 0;
+    // per cpu, the readyVersion its running process was last compared against the queue at
+    private int[] checkedVersion = new int[1];
+    // the order used by the queue, but for ties
+    private Comparator<Process> comparator;
+    // counts processes into the queue; tied processes come out in the order they went in
+    private long queued = 0;
+
+    /**
+     * @param platform the reference to platform
+     * @param comparator the order of the queue, shortest first
+     */
+    protected ShortestFirstScheduler(Platform platform, Comparator<Process> comparator) {
+        // saves the reference to platform to use later
+        this.platform = platform;
+        // creates the queue
+        this.comparator = comparator;
+        queue = new PriorityQueue<>(1, (a, b) -> {
+            int order = comparator.compare(a.process, b.process);
+            return order != 0 ? order : Long.compare(a.number, b.number);
+        });
+    }
+
+    /**
+     * A scheduler must track the number of context switches performed during the simulation.
+     * This method returns that count.
+     *
+     * @return The number of context switches that occurred during the simulation
+     */
+    @Override
+    public int getNumberOfContextSwitches() {
+        return contextSwitches;
+    }
+
+    /**
+     * @author Aaron Hales
+     * Used to notify the scheduler a new process has just entered the ready state.
+     *
+     * @param p the process to add to the queue.
+     */
+    @Override
+    public void notifyNewProcess(Process p) {
+        // puts task in ready state;
+        enqueue(p);
+    }
+
+    /**
+     * Update the scheduling algorithm for a single CPU.
+     *
+     * @param cpu the current process received
+     * @return Reference to the process that is executing on the CPU; result might be null
+     * if no process available for scheduling.
+     */
+    @Override
+    public Process update(Process cpu) {
+        return update(cpu, 0);
+    }
+
+    /**
+     * Update the scheduling algorithm for one of several CPUs sharing the queue.  The running
+     * process only ever gets shorter, so it is only compared against the queue when something
+     * has been added since the last comparison; the rest of the time a tick costs nothing but
+     * the version check.
+     *
+     * @param cpu the current process received
+     * @param cpuIndex which cpu is being updated
+     * @return Reference to the process that is executing on the CPU; result might be null
+     * if no process available for scheduling.
+     */
+    @Override
+    public Process update(Process cpu, int cpuIndex) {
+        if (cpuIndex >= checkedVersion.length) {
+            checkedVersion = Arrays.copyOf(checkedVersion, cpuIndex + 1);
+        }
+        // if cpu is null get the next process
+        if (cpu == null) {
+            if (isQueueEmpty()) {
+                return null;
+            }
+            platform.log(SchedulingEvent.SCHEDULED, peek());
+            return take(cpuIndex);
+        }
+        // the cpu keeps running if it is still ahead of everything in the queue; a process that
+        // just finished its execution is never preempted, or it would never be seen to finish
+        Process first = cpu;
+        if (checkedVersion[cpuIndex] != readyVersion && !cpu.isExecutionComplete()) {
+            checkedVersion[cpuIndex] = readyVersion;
+            int order = isQueueEmpty() ? -1 : comparator.compare(cpu, peek());
+            // a tie only takes the cpu from a process that has had a tick on it, or with switching
+            // costs the two could take it from each other forever without either running
+            if (order > 0 || order == 0 && platform.hasRun(cpuIndex)) {
+                // puts cpu in the queue
+                enqueue(cpu);
+                // get the first from the queue
+                first = take(cpuIndex);
+            }
+            else if (order == 0) {
+                // the tie takes the cpu once it has run
+                checkedVersion[cpuIndex] = readyVersion - 1;
+            }
+        }
+        // checks to see if the first in the queue is not the process recieved
+        if (cpu != first) {
+            // say that the process was removed
+            platform.log(SchedulingEvent.PREEMPTED, cpu);
+            // say the current process scheduled
+            platform.log(SchedulingEvent.SCHEDULED, first);
+            // add 2 switches to total
+            contextSwitches++;
+            contextSwitches++;
+        }
+        // if the queue is empty and cpu is null return null
+        if (isQueueEmpty() && first == null) {
+            return null;
+        }
+        // if cpu exists
+        else if (first != null) {
+            // if the process is either done with burst or completed
+            if (first.isBurstComplete() || first.isExecutionComplete()) {
+                // say that the process burst is done
+                platform.log(SchedulingEvent.BURST_COMPLETE, first);
+                // if the process burst is done but not completed
+                if (first.isBurstComplete() && !first.isExecutionComplete()) {
+                    // add the process back to back of queue, unless it is blocked for I/O
+                    contextSwitches++;
+                    if (!platform.startIo(first)) {
+                        enqueue(first);
+                    }
+                }
+                // if the process is completed
+                if (first.isExecutionComplete()) {
+                    platform.log(SchedulingEvent.EXECUTION_COMPLETE, first);
+                    contextSwitches++;
+                }
+                contextSwitches++;
+                // if the queue is not empty but cpu is null
+                if (!isQueueEmpty()) {
+                    // say which process is scheduled
+                    platform.log(SchedulingEvent.SCHEDULED, peek());
+                }
+                // get the next process
+                return take(cpuIndex);
+            }
+            // if the process is still needing to run return that process
+            else if (first.getRemainingBurst() > 0) {
+                return first;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return number of processes waiting in the queue
+     */
+    @Override
+    public int getReadyCount() {
+        return queue.size();
+    }
+
+    /**
+     * Takes the next process out of the queue so another cpu can run it
+     *
+     * @return the process removed, or null if the queue is empty
+     */
+    @Override
+    public Process steal() {
+        Queued first = queue.poll();
+        return first == null ? null : first.process;
+    }
+
+    /**
+     * Each process is written with the number it was queued under, so adding the queue back
+     * rebuilds the same order.
+     */
+    @Override
+    public void saveState(CheckpointOutput out) throws IOException {
+        out.writeInt(contextSwitches);
+        out.writeInt(queue.size());
+        for (Queued q : queue) {
+            out.writeProcess(q.process);
+            out.writeLong(q.number);
+        }
+        out.writeInt(readyVersion);
+        out.writeInts(checkedVersion);
+        out.writeLong(queued);
+    }
+
+    @Override
+    public void restoreState(CheckpointInput in) throws IOException {
+        contextSwitches = in.readInt();
+        for (int count = in.readInt(); count > 0; count--) {
+            Process p = in.readProcess();
+            queue.add(new Queued(p, in.readLong()));
+        }
+        readyVersion = in.readInt();
+        checkedVersion = in.readInts();
+        queued = in.readLong();
+    }
+
+    /**
+     * @return the process at the head of the queue, or null if the queue is empty
+     */
+    protected Process peek() {
+        Queued first = queue.peek();
+        return first == null ? null : first.process;
+    }
+
+    /**
+     * @author Aaron Hales
+     * checks if the queue is empty
+     * @return true of empty, false if not empty
+     */
+    protected boolean isQueueEmpty() {
+        return queue.isEmpty();
+    }
+
+    /**
+     * Whether a process just taken from the queue has to be compared against it again once it
+     * has run, even though nothing ahead of it is waiting.  None does unless the order says so.
+     *
+     * @param p the process taken
+     */
+    protected boolean isUnsettled(Process p) {
+        return false;
+    }
+
+    /**
+     * Adds a process to the queue, so every cpu compares its running process against it
+     */
+    private void enqueue(Process p) {
+        queue.add(new Queued(p, queued++));
+        readyVersion++;
+    }
+
+    /**
+     * Takes the first process from the queue to run on a cpu.  Unless something left waiting
+     * ties with it, nothing is ahead of it, so the cpu doesn't need to compare it against the
+     * queue until something else is added.  A tie takes the cpu back on the next tick.
+     */
+    private Process take(int cpuIndex) {
+        Queued first = queue.poll();
+        Process p = first == null ? null : first.process;
+        boolean tied = p != null && !isQueueEmpty() && comparator.compare(p, peek()) >= 0;
+        checkedVersion[cpuIndex] = tied || p != null && isUnsettled(p) ? readyVersion - 1 : readyVersion;
+        return p;
+    }
+
+    /**
+     * A process in the queue, with the number it was queued under
+     */
+    private static final class Queued {
+        final Process process;
+        final long number;
+
+        Queued(Process process, long number) {
+            this.process = process;
+            this.number = number;
+        }
+    }
+}
@@ -0,0 +1,545 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.SplittableRandom;
+
+/**
+ * Randomized checks that the other ways of running a simulation come out exactly the same as
+ * the plain tick by tick loop: the same log, context switches, clock and metrics.  Each run
+ * draws a scheduler, a number of CPUs, a generated workload and the platform's costs from the
+ * seed and the run's number, so a mismatch can be reproduced from what is reported about it.
+ */
+public class SimulationCheck {
+    private static final String[] SCHEDULERS = { "FCFS", "SJF", "SRTF", "Priority", "RR", "MLFQ", "CFS", "Stride", "Lottery", "EDF" };
+
+    // Small workloads whose schedules were changed on purpose and have to stay that way: the
+    // scheduler, the number of cpus, the processes as name, start, burst, total, priority and
+    // optionally shares and a period, and the schedule, as when each process was picked to run and the context
+    // switches, then optionally the cost of a switch
+    private static final String[][] SCHEDULES = {
+        // a tie goes to the process that was queued first, the running one left where it is, and
+        // a process that gives up the cpu on a tie goes behind the others it ties with
+        { "SRTF", "1", "P1,0,1,2,0;P3,1,1,1,2;P2,2,1,1,0;P4,2,2,2,1", "0 P1, 1 P1, 2 P3, 3 P2, 4 P4; 10 switches" },
+        { "SJF", "1", "P1,0,1,1,0;P2,0,3,3,0;P3,0,3,3,0;P4,0,3,3,0;P5,0,3,3,0", "0 P1, 1 P2, 2 P3, 3 P4, 4 P5, 5 P2, 6 P3, 7 P4, 8 P5, 9 P2, 10 P3, 11 P4, 12 P5; 26 switches" },
+        // an idle cpu with nothing ready stays idle instead of throwing
+        { "SJF", "1", "P1,2,2,2,0", "2 P1; 2 switches" },
+        { "SRTF", "1", "P1,2,2,2,0", "2 P1; 2 switches" },
+        { "Priority", "1", "P1,2,2,2,0", "2 P1; 2 switches" },
+        // a tie preempts, so tied processes take turns a tick at a time, but a process that has
+        // just finished its execution is never preempted; P4 used to be, and never finished
+        { "SJF", "1", "P1,0,3,3,1;P4,1,2,2,2;P3,2,3,9,2;P2,3,1,3,1", "0 P1, 1 P4, 3 P2, 4 P2, 5 P2, 6 P1, 7 P3, 8 P1, 9 P3, 11 P3, 14 P3; 22 switches" },
+        { "Priority", "1", "P1,0,4,4,2;P4,0,3,3,2;P2,2,1,3,1;P3,3,4,8,2", "0 P1, 1 P4, 2 P2, 3 P2, 4 P2, 5 P4, 6 P1, 7 P3, 8 P4, 9 P1, 10 P3, 11 P1, 12 P3, 14 P3; 28 switches" },
+        // with a cost for switching, a tie waits until the running process has had its tick, or
+        // the two would take the cpu from each other forever without either running
+        { "SJF", "1", "P1,0,3,3,0;P2,0,3,3,0", "0 P1, 1 P2, 2 P1, 3 P2, 4 P1, 5 P2; 12 switches" },
+        { "SJF", "1", "P1,0,3,3,0;P2,0,3,3,0", "0 P1, 3 P2, 6 P1, 9 P2, 12 P1, 15 P2; 12 switches", "2" },
+        { "Priority", "1", "P1,0,3,3,0;P2,0,3,3,0", "0 P1, 3 P2, 6 P1, 9 P2, 12 P1, 15 P2; 12 switches", "2" },
+        // a process that preempts while sitting on a completed burst has that burst counted then,
+        // as it was before I/O; a process woken from I/O has started its next burst, so doesn't
+        { "SJF", "2", "P1,0,1,3,2;P2,0,3,3,1;P4,1,1,1,2;P3,3,1,1,1", "0 P1, 0 P2, 1 P4, 1 P1, 1 P1, 2 P2, 2 P1, 3 P3, 3 P2; 18 switches" },
+        // the most shares a process can have still give it a stride, so it takes turns with the
+        // others instead of keeping the cpu for good
+        { "Stride", "1", "P1,0,12,12,0,1048576;P2,0,6,6,0,524288", "0 P1, 4 P2, 8 P1, 16 P2; 8 switches" },
+        // priorities beyond the run queue's bitmap still come out in order, not merged into its
+        // end levels
+        { "Priority", "1", "P1,0,2,2,5000;P2,0,2,2,4096;P3,1,2,2,-1", "0 P2, 1 P3, 3 P2, 4 P1; 8 switches" },
+        // a periodic process that finishes a burst early waits for the next one to be released,
+        // instead of running ahead of the others
+        { "FCFS", "1", "T1,0,1,3,0,0,4;P2,0,2,2,0", "0 T1, 1 P2, 4 T1, 8 T1; 10 switches" },
+    };
+    // A workload whose first process is preempted while the cpu is still switching to it, and
+    // its response times with a switch cost of 3: P1 first runs from 17, once P2 has switched in
+    // and run from 1 to 14 and P1 has switched back in
+    private static final String RESPONSE_WORKLOAD = "P1,0,10,10,5;P2,1,10,10,1";
+    private static final String RESPONSE_TIMES = "2 responses, max 17, 2 turnarounds";
+    // Events after which a pinned schedule is taken not to finish
+    private static final int SCHEDULE_EVENTS = 1000;
+
+    private final long seed;
+    private final int runs;
+    private String firstMismatch = null;    // Description of the first run that didn't match
+
+    /**
+     * @param seed everything the checks simulate follows from the seed
+     * @param runs number of random runs each check makes
+     */
+    public SimulationCheck(long seed, int runs) {
+        this.seed = seed;
+        this.runs = runs;
+    }
+
+    /**
+     * @return the first run that didn't match and where it parted ways, null if every run matched
+     */
+    public String getFirstMismatch() { return this.firstMismatch; }
+
+    /**
+     * Runs each random configuration with the event driven simulation and with the tick by tick
+     * one.
+     * @return number of runs that didn't match
+     */
+    public int checkEventDriven() {
+        int mismatches = 0;
+        for (int run = 0; run < this.runs; run++) {
+            Config config = new Config(this.seed, run, 1, 4);
+            String expected = config.simulate(false, 1).toString();
+            String actual = config.simulate(true, 1).toString();
+            if (!expected.equals(actual)) {
+                mismatches++;
+                mismatch("event driven", config, expected, actual);
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Stops each random configuration at a random point in its log, after it has written some
+     * checkpoints, and resumes it from the last one on a new platform.  What is logged after the
+     * checkpoint, and how the simulation ends, has to be the same as when it runs straight
+     * through.
+     * @return number of runs that didn't match
+     */
+    public int checkResume() {
+        int mismatches = 0;
+        for (int run = 0; run < this.runs; run++) {
+            Config config = new Config(this.seed, run, 1, 4);
+            SplittableRandom random = new SplittableRandom(this.seed ^ run);
+            boolean eventDriven = random.nextBoolean();
+            Recording expected = config.simulate(eventDriven, 1);
+            int interval = 1 + random.nextInt(Math.max(1, expected.getClock() / 4));
+            int first = expected.firstAfter(interval);
+            if (first == expected.size()) {
+                continue;
+            }
+            int crash = first + random.nextInt(expected.size() - first);
+            String actual;
+            try {
+                Path checkpoint = Files.createTempFile("simulation", ".checkpoint");
+                try {
+                    int clock = config.crash(eventDriven, checkpoint, interval, crash);
+                    if (clock < 0) {
+                        continue;
+                    }
+                    actual = config.resume(checkpoint).toString();
+                    if (!expected.from(clock).equals(actual)) {
+                        mismatches++;
+                        mismatch("resumed at " + clock + " of a" + (eventDriven ? "n event driven" : " tick by tick")
+                                + " run", config, expected.from(clock), actual);
+                    }
+                }
+                finally {
+                    Files.deleteIfExists(checkpoint);
+                    Files.deleteIfExists(checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp"));
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Runs random configurations on enough CPUs for the platform to split them between threads,
+     * with 2 to 4 threads and with 1.
+     * @return number of runs that didn't match
+     */
+    public int checkParallel() {
+        int mismatches = 0;
+        for (int run = 0; run < this.runs; run++) {
+            Config config = new Config(this.seed, run, 32, 96);
+            int threads = 2 + new SplittableRandom(this.seed ^ run).nextInt(3);
+            String expected = config.simulate(false, 1).toString();
+            String actual = config.simulate(false, threads).toString();
+            if (!expected.equals(actual)) {
+                mismatches++;
+                mismatch(threads + " threads", config, expected, actual);
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Runs each random configuration, with a cost for switching whether or not it drew one, and
+     * checks that every process had its response time recorded once, as it had its turnaround
+     * time.  Then it checks the response times of a workload whose first process is preempted
+     * while the cpu is still switching to it, so only gets to run once the other has finished.
+     * @return number of runs that didn't match
+     */
+    public int checkResponseTimes() {
+        int mismatches = 0;
+        for (int run = 0; run < this.runs; run++) {
+            Config config = new Config(this.seed, run, 1, 4);
+            Platform platform = config.platform(1);
+            int switchCost = 1 + new SplittableRandom(this.seed ^ run).nextInt(3);
+            platform.setContextSwitchCost(switchCost);
+            SimulationMetrics.ClassMetrics overall = overall(platform, config.scheduler(platform), config.workload());
+            long responses = overall.getResponse().getCount();
+            long turnarounds = overall.getTurnaround().getCount();
+            if (responses != turnarounds) {
+                mismatches++;
+                responseMismatch(config + ", run with switch cost " + switchCost, turnarounds + " responses", responses + " responses");
+            }
+        }
+        Platform platform = new Platform(1);
+        platform.setContextSwitchCost(3);
+        SimulationMetrics.ClassMetrics overall = overall(platform, Assign4.createScheduler("Priority", platform),
+                workload(RESPONSE_WORKLOAD));
+        String actual = String.format("%d responses, max %d, %d turnarounds", overall.getResponse().getCount(),
+                overall.getResponse().getMax(), overall.getTurnaround().getCount());
+        if (!RESPONSE_TIMES.equals(actual)) {
+            mismatches++;
+            responseMismatch("Priority on 1 cpus with switch cost 3, " + RESPONSE_WORKLOAD, RESPONSE_TIMES, actual);
+        }
+        return mismatches;
+    }
+
+    /**
+     * @return the latency histograms of the whole workload, once it is simulated without a log
+     */
+    private static SimulationMetrics.ClassMetrics overall(Platform platform, Scheduler scheduler, Queue<Process> processes) {
+        platform.setEventSink(null);
+        platform.simulate(scheduler, processes);
+        return platform.getMetrics().getOverall();
+    }
+
+    private static SimulationMetrics.ClassMetrics overall(Platform platform, Scheduler scheduler, ArrivalStream processes) {
+        platform.setEventSink(null);
+        platform.simulate(scheduler, processes);
+        return platform.getMetrics().getOverall();
+    }
+
+    private void responseMismatch(String run, String expected, String actual) {
+        if (this.firstMismatch == null) {
+            this.firstMismatch = String.format("response times, %s: \"%s\", expected \"%s\"", run, actual, expected);
+        }
+    }
+
+    /**
+     * Runs the small workloads whose schedules were changed on purpose, so that changing them
+     * again can't go unnoticed.
+     * @return number of schedules that didn't match
+     */
+    public int checkSchedules() {
+        int mismatches = 0;
+        for (String[] schedule : SCHEDULES) {
+            int switchCost = schedule.length > 4 ? Integer.parseInt(schedule[4]) : 0;
+            String actual = schedule(schedule[0], Integer.parseInt(schedule[1]), schedule[2], switchCost);
+            if (!schedule[3].equals(actual)) {
+                mismatches++;
+                if (this.firstMismatch == null) {
+                    this.firstMismatch = String.format("%s on %s cpus with switch cost %d, %s: schedule is \"%s\", expected \"%s\"",
+                            schedule[0], schedule[1], switchCost, schedule[2], actual, schedule[3]);
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * @return number of schedules checkSchedules runs
+     */
+    public static int getScheduleCount() { return SCHEDULES.length; }
+
+    /**
+     * @return the processes of a workload given as name, start, burst, total, priority and
+     *         optionally shares and a period, which is also the deadline, with a semicolon
+     *         between processes
+     */
+    private static Queue<Process> workload(String workload) {
+        Queue<Process> processes = new LinkedList<>();
+        for (String process : workload.split(";")) {
+            String[] fields = process.split(",");
+            Process p = new StandaloneProcess(fields[0], Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                    Integer.parseInt(fields[3]), Integer.parseInt(fields[4]));
+            if (fields.length > 5) {
+                p.setShares(Integer.parseInt(fields[5]));
+            }
+            if (fields.length > 6) {
+                p.setDeadline(Integer.parseInt(fields[6]), Integer.parseInt(fields[6]));
+            }
+            processes.add(p);
+        }
+        return processes;
+    }
+
+    private static String schedule(String name, int cpus, String workload, int switchCost) {
+        Queue<Process> processes = workload(workload);
+        Platform platform = new Platform(cpus);
+        platform.setContextSwitchCost(switchCost);
+        Scheduler scheduler = Assign4.createScheduler(name, platform);
+        StringBuilder schedule = new StringBuilder();
+        int[] events = { 0 };
+        platform.setEventSink(new EventSink() {
+            @Override
+            public void onEvent(SchedulingEvent event, int tick, int cpu, int processId, String processName) {
+                if (++events[0] > SCHEDULE_EVENTS) {
+                    throw new Crash();
+                }
+                if (event == SchedulingEvent.SCHEDULED) {
+                    schedule.append(schedule.length() > 0 ? ", " : "").append(tick).append(' ').append(processName);
+                }
+            }
+
+            @Override
+            public void onMessage(int tick, String message) {
+            }
+        });
+        try {
+            platform.simulate(scheduler, processes);
+        }
+        catch (Crash e) {
+            return "not finished after " + SCHEDULE_EVENTS + " events";
+        }
+        return schedule + "; " + scheduler.getNumberOfContextSwitches() + " switches";
+    }
+
+    private void mismatch(String check, Config config, String expected, String actual) {
+        if (this.firstMismatch != null) {
+            return;
+        }
+        String[] left = expected.split("\n");
+        String[] right = actual.split("\n");
+        int line = 0;
+        while (line < left.length && line < right.length && left[line].equals(right[line])) {
+            line++;
+        }
+        this.firstMismatch = String.format("%s, %s: line %d is \"%s\", expected \"%s\"", check, config, line + 1,
+                line < right.length ? right[line] : "end of output", line < left.length ? left[line] : "end of output");
+    }
+
+    /**
+     * One random simulation: which scheduler on how many CPUs, with what workload and costs.
+     */
+    private static class Config {
+        private final long seed;
+        private final int run;
+        private final String scheduler;
+        private final boolean perCpu;       // Whether each CPU gets a queue of its own
+        private final int cpus;
+        private final long workloadSeed;
+        private final int processes;
+        private final boolean io;
+        private final boolean periodic;
+        private final int switchCost;
+        private final int warmWindow;
+        private final int coldPenalty;
+
+        Config(long seed, int run, int minCpus, int maxCpus) {
+            SplittableRandom random = new SplittableRandom(seed + run * 0x9E3779B97F4A7C15L);
+            this.seed = seed;
+            this.run = run;
+            this.scheduler = SCHEDULERS[random.nextInt(SCHEDULERS.length)];
+            this.cpus = minCpus + random.nextInt(maxCpus - minCpus + 1);
+            this.perCpu = this.cpus > 1 && random.nextBoolean();
+            this.workloadSeed = random.nextLong();
+            this.processes = this.cpus * (20 + random.nextInt(40));
+            this.io = random.nextInt(3) == 0;
+            boolean costs = random.nextInt(3) == 0;
+            this.switchCost = costs ? random.nextInt(3) : 0;
+            this.warmWindow = costs ? random.nextInt(20) : 0;
+            this.coldPenalty = costs ? random.nextInt(5) : 0;
+            // drawn last, so the runs drawn before periodic processes came in stay the same
+            this.periodic = random.nextInt(3) == 0;
+        }
+
+        Platform platform(int parallelism) {
+            Platform platform = new Platform(this.cpus);
+            platform.setContextSwitchCost(this.switchCost);
+            platform.setCacheAffinity(this.warmWindow, this.coldPenalty);
+            platform.setParallelism(parallelism);
+            return platform;
+        }
+
+        Scheduler scheduler(Platform platform) {
+            if (this.perCpu) {
+                return new MultiQueueScheduler(platform, p -> Assign4.createScheduler(this.scheduler, p));
+            }
+            return Assign4.createScheduler(this.scheduler, platform);
+        }
+
+        ArrivalStream workload() {
+            WorkloadGenerator processes = new WorkloadGenerator(this.workloadSeed, this.processes);
+            processes.setPoissonArrivals(6.0 / this.cpus);
+            processes.setBimodalBursts(3, 30, 0.2);
+            processes.setMeanBurstsPerProcess(3);
+            processes.setPriorityMix(1, 2, 2);
+            if (this.io) {
+                processes.setExponentialIo(20, 0.5);
+            }
+            if (this.periodic) {
+                processes.setPeriodic(10, 0.5);
+            }
+            return processes;
+        }
+
+        /**
+         * Simulates the whole workload from the start.
+         */
+        Recording simulate(boolean eventDriven, int parallelism) {
+            Platform platform = platform(parallelism);
+            Scheduler scheduler = scheduler(platform);
+            Recording recording = new Recording();
+            platform.setEventSink(recording);
+            if (eventDriven) {
+                platform.simulateEventDriven(scheduler, workload());
+            }
+            else {
+                platform.simulate(scheduler, workload());
+            }
+            recording.finish(platform, scheduler);
+            return recording;
+        }
+
+        /**
+         * Simulates the workload, writing checkpoints, until the given event is logged, when the
+         * simulation fails as if its process had been killed.
+         * @return the clock at the last checkpoint, -1 if there wasn't one by then
+         */
+        int crash(boolean eventDriven, Path checkpoint, int interval, int event) throws IOException {
+            Files.delete(checkpoint);
+            Platform platform = platform(1);
+            platform.setCheckpoint(checkpoint, interval);
+            Scheduler scheduler = scheduler(platform);
+            platform.setEventSink(new Recording() {
+                @Override
+                void add(int tick, String line) {
+                    if (size() == event) {
+                        throw new Crash();
+                    }
+                    super.add(tick, line);
+                }
+            });
+            try {
+                if (eventDriven) {
+                    platform.simulateEventDriven(scheduler, workload());
+                }
+                else {
+                    platform.simulate(scheduler, workload());
+                }
+            }
+            catch (Crash e) {
+                // what is being checked is picking up from here
+            }
+            if (!Files.exists(checkpoint)) {
+                return -1;
+            }
+            // the clock follows the magic number, version, scheduler class and engine in the header
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(checkpoint))) {
+                in.readInt();
+                in.readInt();
+                in.readUTF();
+                in.readBoolean();
+                return in.readInt();
+            }
+        }
+
+        /**
+         * Carries on the simulation from a checkpoint, with the whole workload generated again.
+         */
+        Recording resume(Path checkpoint) throws IOException {
+            Platform platform = platform(1);
+            Scheduler scheduler = scheduler(platform);
+            Recording recording = new Recording();
+            platform.setEventSink(recording);
+            platform.resume(scheduler, workload(), checkpoint);
+            recording.finish(platform, scheduler);
+            return recording;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("seed %d run %d: %s%s on %d cpus, %d processes%s%s, switch cost %d, cache %d/%d", this.seed,
+                    this.run, this.scheduler, this.perCpu ? " per cpu" : "", this.cpus, this.processes,
+                    this.io ? " with I/O" : "", this.periodic ? ", periodic" : "", this.switchCost, this.warmWindow,
+                    this.coldPenalty);
+        }
+    }
+
+    /**
+     * Everything a simulation reported, one line per event, and once it is finished how it ended.
+     */
+    private static class Recording implements EventSink {
+        private final List<Integer> ticks = new ArrayList<>();
+        private final List<String> lines = new ArrayList<>();
+        private String summary = "";
+        private int clock = 0;
+
+        @Override
+        public void onEvent(SchedulingEvent event, int tick, int cpu, int processId, String processName) {
+            add(tick, tick + " cpu " + cpu + " " + event + " " + processId + " " + processName);
+        }
+
+        @Override
+        public void onMessage(int tick, String message) {
+            add(tick, tick + " " + message);
+        }
+
+        void add(int tick, String line) {
+            this.ticks.add(tick);
+            this.lines.add(line);
+        }
+
+        void finish(Platform platform, Scheduler scheduler) {
+            this.clock = platform.getClockCounter();
+            ByteArrayOutputStream metrics = new ByteArrayOutputStream();
+            PrintStream out = new PrintStream(metrics);
+            out.printf("context switches %d, steals %d, migrations %d, clock %d\n", scheduler.getNumberOfContextSwitches(),
+                    scheduler.getNumberOfSteals(), scheduler.getNumberOfMigrations(), platform.getClockCounter());
+            platform.getMetrics().print("check", out);
+            out.flush();
+            this.summary = metrics.toString();
+        }
+
+        int size() { return this.lines.size(); }
+
+        /**
+         * @return index of the first line logged after the given tick, size if there isn't one
+         */
+        int firstAfter(int tick) {
+            int i = 0;
+            while (i < this.ticks.size() && this.ticks.get(i) <= tick) {
+                i++;
+            }
+            return i;
+        }
+
+        /**
+         * @return the clock when the simulation finished
+         */
+        int getClock() { return this.clock; }
+
+        /**
+         * @return the log from the given tick on, followed by the summary
+         */
+        String from(int tick) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < this.lines.size(); i++) {
+                if (this.ticks.get(i) >= tick) {
+                    text.append(this.lines.get(i)).append('\n');
+                }
+            }
+            return text.append(this.summary).toString();
+        }
+
+        @Override
+        public String toString() {
+            return from(Integer.MIN_VALUE);
+        }
+    }
+
+    /**
+     * Thrown from the log to stop a simulation part way through, or one that won't finish.
+     */
+    private static class Crash extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,122 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and gauges of a Platform's simulation that can be read from any thread while it runs,
+ * unlike SimulationMetrics, which is only meant to be read once it is over.  Rather than being
+ * updated as things happen, they are a sample the Platform publishes every so many ticks and at
+ * the end, of figures it mostly keeps anyway.  So they cost the simulation next to nothing, can
+ * be left on, and a reader never contends with the threads simulating.  The counters can be
+ * registered as an MBean and watched over JMX.
+ */
+public class SimulationCounters implements SimulationCountersMBean {
+    private final int cpuCount;
+    private final AtomicLongArray busyTicks;    // Per CPU, ticks spent running a process
+    private volatile int clock = 0;
+    private volatile long decisions = 0;
+    private volatile long preemptions = 0;
+    private volatile long arrivals = 0;
+    private volatile int readyDepth = 0;
+    private volatile int blocked = 0;
+    private volatile long startNanos = 0;       // When the simulation started
+    private volatile long endNanos = -1;        // When it ended, -1 while it is running
+    private ObjectName name;                    // Under which the counters are registered, null if they aren't
+
+    public SimulationCounters(int cpuCount) {
+        this.cpuCount = cpuCount;
+        this.busyTicks = new AtomicLongArray(cpuCount);
+    }
+
+    /**
+     * Registers the counters with the platform MBean server, as Simulation:type=Platform,name=...
+     * @return the name they are registered under
+     */
+    public synchronized ObjectName register(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = ObjectName.getInstance("Simulation:type=Platform,name=" + ObjectName.quote(name));
+        server.registerMBean(this, objectName);
+        this.name = objectName;
+        return objectName;
+    }
+
+    /**
+     * Takes the counters back out of the platform MBean server, if they were registered.
+     */
+    public synchronized void unregister() throws JMException {
+        if (this.name != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.name);
+            this.name = null;
+        }
+    }
+
+    /**
+     * Called by the Platform as a simulation starts.
+     */
+    void start() {
+        this.endNanos = -1;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Called by the Platform every so many ticks and once the simulation is over, with the
+     * figures as they are then.
+     */
+    void sample(int clock, long decisions, long preemptions, long arrivals, int readyDepth, int blocked, SimulationMetrics metrics) {
+        for (int cpu = 0; cpu < this.cpuCount; cpu++) {
+            this.busyTicks.set(cpu, metrics.getBusyTicks(cpu));
+        }
+        this.decisions = decisions;
+        this.preemptions = preemptions;
+        this.arrivals = arrivals;
+        this.readyDepth = readyDepth;
+        this.blocked = blocked;
+        this.clock = clock;
+    }
+
+    /**
+     * Called by the Platform once the simulation is over, so the rate stops falling.
+     */
+    void finish() {
+        this.endNanos = System.nanoTime();
+    }
+
+    @Override
+    public int getCpuCount() { return this.cpuCount; }
+    @Override
+    public int getClock() { return this.clock; }
+    @Override
+    public boolean isRunning() { return this.startNanos != 0 && this.endNanos == -1; }
+    @Override
+    public int getReadyQueueDepth() { return this.readyDepth; }
+    @Override
+    public int getBlocked() { return this.blocked; }
+    @Override
+    public long getDecisions() { return this.decisions; }
+    @Override
+    public long getPreemptions() { return this.preemptions; }
+    @Override
+    public long getArrivals() { return this.arrivals; }
+
+    @Override
+    public double getDecisionsPerSecond() {
+        long start = this.startNanos;
+        if (start == 0) {
+            return 0;
+        }
+        long end = this.endNanos;
+        long nanos = (end == -1 ? System.nanoTime() : end) - start;
+        return nanos > 0 ? this.decisions * 1e9 / nanos : 0;
+    }
+
+    @Override
+    public long[] getBusyTicks() {
+        long[] ticks = new long[this.cpuCount];
+        for (int cpu = 0; cpu < this.cpuCount; cpu++) {
+            ticks[cpu] = this.busyTicks.get(cpu);
+        }
+        return ticks;
+    }
+}
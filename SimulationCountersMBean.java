@@ -0,0 +1,58 @@
+/**
+ * The management interface of SimulationCounters, so a simulation can be watched over JMX,
+ * e.g. from JConsole, while it runs.  The figures are of the simulation that is running, or of
+ * the last one, and are sampled every few ticks, so may be a little behind.
+ */
+public interface SimulationCountersMBean {
+    /**
+     * @return the number of CPUs on the platform
+     */
+    int getCpuCount();
+
+    /**
+     * @return the clock count when the figures were last sampled
+     */
+    int getClock();
+
+    /**
+     * @return whether a simulation is running now
+     */
+    boolean isRunning();
+
+    /**
+     * @return processes waiting in the scheduler's ready queues when last sampled
+     */
+    int getReadyQueueDepth();
+
+    /**
+     * @return processes blocked for I/O when last sampled
+     */
+    int getBlocked();
+
+    /**
+     * @return times the scheduler has been updated for a CPU, since the simulation started or
+     *         was resumed from a checkpoint
+     */
+    long getDecisions();
+
+    /**
+     * @return decisions per second of wall clock time the simulation has been running
+     */
+    double getDecisionsPerSecond();
+
+    /**
+     * @return times a process was taken off a CPU before its burst completed, since the
+     *         simulation started or was resumed from a checkpoint
+     */
+    long getPreemptions();
+
+    /**
+     * @return processes that have arrived
+     */
+    long getArrivals();
+
+    /**
+     * @return per CPU, ticks spent running a process
+     */
+    long[] getBusyTicks();
+}
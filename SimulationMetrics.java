@@ -0,0 +1,383 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Latency and utilization figures for a simulation, kept up to date by the Platform as the
+ * clock advances rather than worked out from the log afterwards.
+ *
+ *   response time    first time running on a CPU, once any switch to it is paid for, minus arrival
+ *   turnaround time  completion minus arrival
+ *   waiting time     turnaround minus the time actually spent running or blocked for I/O
+ *
+ * Each is recorded in a LatencyHistogram for every priority class, so percentiles are
+ * available without keeping anything per process.  Processes with deadlines also have each
+ * job checked against its deadline as it completes, counting the misses and how late they were.
+ *
+ * Each CPU's time is split four ways: busy running a process, switching to a process (when the
+ * Platform charges for context switches and cold caches), waiting on I/O (idle while some
+ * process is blocked for I/O, so it might have had work otherwise), and otherwise idle.
+ */
+public class SimulationMetrics {
+
+    /**
+     * The histograms for one priority class.
+     */
+    public static class ClassMetrics {
+        private final LatencyHistogram response = new LatencyHistogram();
+        private final LatencyHistogram turnaround = new LatencyHistogram();
+        private final LatencyHistogram waiting = new LatencyHistogram();
+
+        public LatencyHistogram getResponse() { return this.response; }
+        public LatencyHistogram getTurnaround() { return this.turnaround; }
+        public LatencyHistogram getWaiting() { return this.waiting; }
+
+        void add(ClassMetrics other) {
+            this.response.add(other.response);
+            this.turnaround.add(other.turnaround);
+            this.waiting.add(other.waiting);
+        }
+    }
+
+    private static final int MAX_CLASSES = 256;     // Priorities above this share the last class
+
+    private long[] busyTicks;       // Per CPU, ticks spent running a process
+    private long[] ioWaitTicks;     // Per CPU, ticks spent idle while some process was blocked for I/O
+    private long[] overheadTicks;   // Per CPU, ticks spent switching processes and warming caches
+    private long ticks = 0;         // Length of the simulation so far
+    private ClassMetrics[] classes = new ClassMetrics[0];   // Indexed by priority
+    private long deadlineJobs = 0;      // Jobs completed that had a deadline
+    private long deadlineMisses = 0;    // Of those, the ones that completed after it
+    private final LatencyHistogram lateness = new LatencyHistogram();  // Ticks past the deadline, 0 if on time
+    private long ioOperations = 0;      // Times a process blocked for I/O
+    private long ioTicks = 0;           // Ticks blocked, over all of those
+    private long switches = 0;          // Times a CPU was given a different process
+    private long coldStarts = 0;        // Of those, the ones where the process's cache had gone cold
+
+    public SimulationMetrics(int cpuCount) {
+        this.busyTicks = new long[cpuCount];
+        this.ioWaitTicks = new long[cpuCount];
+        this.overheadTicks = new long[cpuCount];
+    }
+
+    /**
+     * Called by the Platform for every tick a CPU spends running a process.
+     */
+    void recordBusy(int cpu, long ticks) {
+        this.busyTicks[cpu] += ticks;
+    }
+
+    /**
+     * Called by the Platform for every tick a CPU is idle while some process is blocked for I/O.
+     */
+    void recordIoWait(int cpu, long ticks) {
+        this.ioWaitTicks[cpu] += ticks;
+    }
+
+    /**
+     * Called by the Platform for every tick a CPU spends switching to a process rather than
+     * running it.
+     */
+    void recordOverhead(int cpu, long ticks) {
+        this.overheadTicks[cpu] += ticks;
+    }
+
+    /**
+     * Called by the Platform every time a CPU is given a different process.
+     */
+    void recordSwitch(boolean cold) {
+        this.switches++;
+        if (cold) {
+            this.coldStarts++;
+        }
+    }
+
+    /**
+     * Called by the Platform when a process blocks for I/O.
+     */
+    void recordIo(int ticks) {
+        this.ioOperations++;
+        this.ioTicks += ticks;
+    }
+
+    /**
+     * Called by the Platform when the clock moves on.
+     */
+    void recordTicks(long ticks) {
+        this.ticks += ticks;
+    }
+
+    /**
+     * Called by the Platform the first time a process runs on a CPU.
+     */
+    void recordFirstRun(Process p, int clock) {
+        classOf(p.getPriority()).response.record(clock - p.getStartTime());
+    }
+
+    /**
+     * Called by the Platform when a process completes execution.  Every burst but the last was
+     * followed by the process's I/O.
+     */
+    void recordCompletion(Process p, int clock) {
+        long io = (long) p.getIoTime() * ((p.getTotalTime() - 1) / p.getBurstTime());
+        recordCompletion(p, clock, p.getElapsedTotal() + io);
+    }
+
+    /**
+     * Called when a process completes that actually took the given time running or blocked,
+     * rather than what it says it needed, like a real task run by SchedulerExecutor.
+     */
+    void recordCompletion(Process p, int clock, long used) {
+        ClassMetrics metrics = classOf(p.getPriority());
+        long turnaround = clock - p.getStartTime();
+        metrics.turnaround.record(turnaround);
+        metrics.waiting.record(turnaround - used);
+    }
+
+    /**
+     * Called by the Platform when a running process completes a burst or its execution.  For a
+     * periodic process every burst is a job with its own deadline; otherwise the deadline is for
+     * the whole execution.
+     */
+    void recordBurstComplete(Process p, int clock) {
+        if (!p.hasDeadline() || (p.getPeriod() == 0 && !p.isExecutionComplete())) {
+            return;
+        }
+        long job = (p.getElapsedTotal() - 1) / p.getBurstTime();
+        long deadline = p.getStartTime() + job * p.getPeriod() + p.getRelativeDeadline();
+        this.deadlineJobs++;
+        if (clock > deadline) {
+            this.deadlineMisses++;
+        }
+        this.lateness.record(clock - deadline);
+    }
+
+    /**
+     * Writes everything recorded so far for a checkpoint.
+     */
+    void save(DataOutput out) throws IOException {
+        out.writeInt(this.busyTicks.length);
+        for (int cpu = 0; cpu < this.busyTicks.length; cpu++) {
+            out.writeLong(this.busyTicks[cpu]);
+            out.writeLong(this.ioWaitTicks[cpu]);
+            out.writeLong(this.overheadTicks[cpu]);
+        }
+        out.writeLong(this.ticks);
+        out.writeInt(this.classes.length);
+        for (ClassMetrics metrics : this.classes) {
+            out.writeBoolean(metrics != null);
+            if (metrics != null) {
+                metrics.response.save(out);
+                metrics.turnaround.save(out);
+                metrics.waiting.save(out);
+            }
+        }
+        out.writeLong(this.deadlineJobs);
+        out.writeLong(this.deadlineMisses);
+        this.lateness.save(out);
+        out.writeLong(this.ioOperations);
+        out.writeLong(this.ioTicks);
+        out.writeLong(this.switches);
+        out.writeLong(this.coldStarts);
+    }
+
+    /**
+     * @return the metrics as they were when save wrote them
+     */
+    static SimulationMetrics restore(DataInput in) throws IOException {
+        SimulationMetrics m = new SimulationMetrics(in.readInt());
+        for (int cpu = 0; cpu < m.busyTicks.length; cpu++) {
+            m.busyTicks[cpu] = in.readLong();
+            m.ioWaitTicks[cpu] = in.readLong();
+            m.overheadTicks[cpu] = in.readLong();
+        }
+        m.ticks = in.readLong();
+        m.classes = new ClassMetrics[in.readInt()];
+        for (int priority = 0; priority < m.classes.length; priority++) {
+            if (in.readBoolean()) {
+                ClassMetrics metrics = new ClassMetrics();
+                metrics.response.restore(in);
+                metrics.turnaround.restore(in);
+                metrics.waiting.restore(in);
+                m.classes[priority] = metrics;
+            }
+        }
+        m.deadlineJobs = in.readLong();
+        m.deadlineMisses = in.readLong();
+        m.lateness.restore(in);
+        m.ioOperations = in.readLong();
+        m.ioTicks = in.readLong();
+        m.switches = in.readLong();
+        m.coldStarts = in.readLong();
+        return m;
+    }
+
+    public int getCpuCount() { return this.busyTicks.length; }
+    public long getTicks() { return this.ticks; }
+    public long getBusyTicks(int cpu) { return this.busyTicks[cpu]; }
+    public long getIoWaitTicks(int cpu) { return this.ioWaitTicks[cpu]; }
+    public long getIoOperations() { return this.ioOperations; }
+    public long getIoTicks() { return this.ioTicks; }
+    public long getOverheadTicks(int cpu) { return this.overheadTicks[cpu]; }
+    public long getSwitches() { return this.switches; }
+    public long getColdStarts() { return this.coldStarts; }
+
+    /**
+     * @return fraction of the simulation the CPU spent running a process, between 0 and 1
+     */
+    public double getUtilization(int cpu) {
+        return this.ticks == 0 ? 0 : (double) this.busyTicks[cpu] / this.ticks;
+    }
+
+    /**
+     * @return utilization averaged over all the CPUs
+     */
+    public double getUtilization() {
+        double total = 0;
+        for (int cpu = 0; cpu < this.busyTicks.length; cpu++) {
+            total += getUtilization(cpu);
+        }
+        return this.busyTicks.length == 0 ? 0 : total / this.busyTicks.length;
+    }
+
+    /**
+     * @return fraction of the simulation the CPU spent idle while some process was blocked for
+     *         I/O, between 0 and 1
+     */
+    public double getIoWait(int cpu) {
+        return this.ticks == 0 ? 0 : (double) this.ioWaitTicks[cpu] / this.ticks;
+    }
+
+    /**
+     * @return I/O wait averaged over all the CPUs
+     */
+    public double getIoWait() {
+        double total = 0;
+        for (int cpu = 0; cpu < this.ioWaitTicks.length; cpu++) {
+            total += getIoWait(cpu);
+        }
+        return this.ioWaitTicks.length == 0 ? 0 : total / this.ioWaitTicks.length;
+    }
+
+    /**
+     * @return fraction of the simulation the CPUs spent switching processes and warming caches,
+     *         averaged over all of them
+     */
+    public double getOverhead() {
+        long total = 0;
+        for (long overhead : this.overheadTicks) {
+            total += overhead;
+        }
+        return this.ticks == 0 || this.overheadTicks.length == 0 ? 0 : (double) total / this.ticks / this.overheadTicks.length;
+    }
+
+    /**
+     * @return processes completed per tick
+     */
+    public double getThroughput() {
+        return this.ticks == 0 ? 0 : (double) getOverall().getTurnaround().getCount() / this.ticks;
+    }
+
+    public long getDeadlineJobs() { return this.deadlineJobs; }
+    public long getDeadlineMisses() { return this.deadlineMisses; }
+
+    /**
+     * @return how late each job with a deadline completed, early and on time jobs counting as 0
+     */
+    public LatencyHistogram getLateness() { return this.lateness; }
+
+    /**
+     * @return the highest priority number seen, plus one
+     */
+    public int getPriorityClassCount() { return this.classes.length; }
+
+    /**
+     * @return the histograms for one priority class, null if no process of that priority was seen
+     */
+    public ClassMetrics getPriorityClass(int priority) {
+        return priority >= 0 && priority < this.classes.length ? this.classes[priority] : null;
+    }
+
+    /**
+     * @return the histograms of every priority class added together
+     */
+    public ClassMetrics getOverall() {
+        ClassMetrics overall = new ClassMetrics();
+        for (ClassMetrics metrics : this.classes) {
+            if (metrics != null) {
+                overall.add(metrics);
+            }
+        }
+        return overall;
+    }
+
+    /**
+     * Prints utilization and the latency percentiles, overall and for each priority class.
+     */
+    public void print(String scheduler, PrintStream out) {
+        out.printf("%s CPU utilization: %.1f%%", scheduler, getUtilization() * 100);
+        for (int cpu = 0; cpu < this.busyTicks.length; cpu++) {
+            out.printf("%scpu %d %.1f%%", cpu == 0 ? " (" : ", ", cpu, getUtilization(cpu) * 100);
+        }
+        out.println(this.busyTicks.length > 0 ? ")" : "");
+        double overhead = getOverhead();
+        if (this.ioOperations > 0 || overhead > 0) {
+            out.printf("%s CPU time: %.1f%% busy, %.1f%% switching, %.1f%% I/O wait, %.1f%% idle\n", scheduler,
+                    getUtilization() * 100, overhead * 100, getIoWait() * 100,
+                    (1 - getUtilization() - overhead - getIoWait()) * 100);
+        }
+        if (overhead > 0) {
+            out.printf("%s switches: %d, %d with a cold cache (%.1f%%), throughput %.2f processes per 1000 ticks\n",
+                    scheduler, this.switches, this.coldStarts, this.switches == 0 ? 0 : 100.0 * this.coldStarts / this.switches,
+                    getThroughput() * 1000);
+        }
+        if (this.ioOperations > 0) {
+            out.printf("%s I/O: %d operations, mean %.1f ticks, mean %.1f processes blocked\n", scheduler,
+                    this.ioOperations, (double) this.ioTicks / this.ioOperations,
+                    this.ticks == 0 ? 0 : (double) this.ioTicks / this.ticks);
+        }
+        if (this.deadlineJobs > 0) {
+            out.printf("%s deadline misses: %d of %d jobs (%.1f%%), lateness p99 %d, max %d\n", scheduler,
+                    this.deadlineMisses, this.deadlineJobs, 100.0 * this.deadlineMisses / this.deadlineJobs,
+                    this.lateness.getPercentile(99), this.lateness.getMax());
+        }
+        out.printf("%-10s %-10s %10s %10s %10s %10s %10s %10s\n",
+                "Class", "Metric", "Count", "Mean", "p50", "p99", "p99.9", "Max");
+        printClass("all", getOverall(), out);
+        for (int priority = 0; priority < this.classes.length; priority++) {
+            if (this.classes[priority] != null && this.classes.length > 1) {
+                printClass("priority " + priority, this.classes[priority], out);
+            }
+        }
+    }
+
+    private static void printClass(String name, ClassMetrics metrics, PrintStream out) {
+        printHistogram(name, "response", metrics.response, out);
+        printHistogram(name, "turnaround", metrics.turnaround, out);
+        printHistogram(name, "waiting", metrics.waiting, out);
+    }
+
+    private static void printHistogram(String name, String metric, LatencyHistogram h, PrintStream out) {
+        out.printf("%-10s %-10s %10d %10.1f %10d %10d %10d %10d\n", name, metric, h.getCount(), h.getMean(),
+                h.getPercentile(50), h.getPercentile(99), h.getPercentile(99.9), h.getMax());
+    }
+
+    /**
+     * Priorities are small numbers, so the classes are an array indexed by priority; anything
+     * negative shares the class of priority 0, and anything too big shares the last class.
+     */
+    private ClassMetrics classOf(int priority) {
+        priority = Math.max(0, Math.min(priority, MAX_CLASSES - 1));
+        if (priority >= this.classes.length) {
+            this.classes = Arrays.copyOf(this.classes, priority + 1);
+        }
+        ClassMetrics metrics = this.classes[priority];
+        if (metrics == null) {
+            metrics = new ClassMetrics();
+            this.classes[priority] = metrics;
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * A Process that keeps its state in fields of its own, the usual way to describe a workload
+ * before it is simulated.
+ */
+public class StandaloneProcess extends Process {
+    private String name;        // A name used to unique identify the process for reporting during the simulation
+    private int startTime;      // The arrival time, from the start of the simulation, of this process
+    private int burstTime;      // Length of the CPU burst
+    private int totalTime;      // Total execution time for the process
+    private int elapsedBurst = 0;   // How long the current burst has executed
+    private int elapsedTotal = 0;   // How long, in total, the process has executed
+    private int priority = 0;       // Priority of the process, smaller number is higher priority
+    private int id = -1;            // Id given by the Platform when the process arrives
+    private int lastCpu = -1;       // The CPU the process was last scheduled on, -1 if it hasn't run yet
+    private byte state = ProcessTable.NEW;  // One of the ProcessTable states, kept up to date by the Platform
+    private long virtualTime = 0;   // Position in a fair share scheduler's virtual time, e.g. CFS vruntime
+    private int shares = 0;         // Proportional share schedulers' tickets, 0 to derive them from the priority
+    private int relativeDeadline = 0;   // Ticks from release a job must complete within, 0 for no deadline
+    private int period = 0;         // Ticks between releases of successive bursts, 0 if the deadline is for the whole execution
+    private int ioTime = 0;         // Ticks of I/O after each CPU burst but the last, 0 if the process never blocks
+    private int wakeTime = 0;       // Tick the I/O the process is blocked on completes
+    private int cacheCpu = -1;      // The CPU whose cache last held the process's working set, -1 for none
+    private int leftCpuTime = 0;    // Tick the process last came off a CPU
+    private int firstRunTime = -1;  // Tick the process first ran from, -1 until it has run
+
+    public StandaloneProcess(String name,int startTime, int burstTime, int totalTime) {
+        this.name = name;
+        this.startTime = startTime;
+        this.burstTime = burstTime;
+        this.totalTime = totalTime;
+    }
+
+    /**
+     * Overloaded constructor that also accepts priority; needed by the priority scheduling simulation
+     */
+    public StandaloneProcess(String name,int startTime, int burstTime, int totalTime, int priority) {
+        this(name, startTime, burstTime, totalTime);
+        this.priority = priority;
+    }
+
+    @Override
+    public void setId(int id) { this.id = id; }
+    @Override
+    public void setLastCpu(int cpu) { this.lastCpu = cpu; }
+    @Override
+    public void setState(byte state) { this.state = state; }
+    @Override
+    public void setVirtualTime(long virtualTime) { this.virtualTime = virtualTime; }
+    @Override
+    public void setShares(int shares) { this.shares = Process.checkShares(shares); }
+    @Override
+    public void setIoTime(int ioTime) { this.ioTime = ioTime; }
+    @Override
+    void setWakeTime(int wakeTime) { this.wakeTime = wakeTime; }
+
+    @Override
+    public void setDeadline(int period, int relativeDeadline) {
+        this.relativeDeadline = relativeDeadline;
+        this.period = period;
+    }
+
+    @Override
+    void setCache(int cpu, int leftCpuTime) {
+        this.cacheCpu = cpu;
+        this.leftCpuTime = leftCpuTime;
+    }
+
+    @Override
+    void setFirstRunTime(int firstRunTime) { this.firstRunTime = firstRunTime; }
+
+    @Override
+    void setElapsed(int elapsedBurst, int elapsedTotal) {
+        this.elapsedBurst = elapsedBurst;
+        this.elapsedTotal = elapsedTotal;
+    }
+
+    @Override
+    public String getName() { return this.name; }
+    @Override
+    public int getId() { return this.id; }
+    @Override
+    public int getLastCpu() { return this.lastCpu; }
+    @Override
+    public byte getState() { return this.state; }
+    @Override
+    public long getVirtualTime() { return this.virtualTime; }
+    @Override
+    public int getShares() { return this.shares; }
+    @Override
+    public int getRelativeDeadline() { return this.relativeDeadline; }
+    @Override
+    public int getPeriod() { return this.period; }
+    @Override
+    public int getIoTime() { return this.ioTime; }
+    @Override
+    public int getWakeTime() { return this.wakeTime; }
+    @Override
+    public int getCacheCpu() { return this.cacheCpu; }
+    @Override
+    public int getLeftCpuTime() { return this.leftCpuTime; }
+    @Override
+    public int getFirstRunTime() { return this.firstRunTime; }
+    @Override
+    public int getStartTime() { return this.startTime; }
+    @Override
+    public int getBurstTime() { return this.burstTime; }
+    @Override
+    public int getTotalTime() { return this.totalTime; }
+    @Override
+    public int getElapsedTotal() { return this.elapsedTotal; }
+    @Override
+    public int getPriority() { return this.priority; }
+    @Override
+    public int getElapsedBurst() { return this.elapsedBurst; }
+}
@@ -0,0 +1,290 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs every combination of scheduler, workload and CPU count as its own simulation, spread
+ * over a fork-join pool.  Each run gets a fresh Platform, Scheduler and workload, so runs share
+ * nothing and the results come back in the same order no matter how the pool splits the work.
+ */
+public class SweepRunner {
+
+    /**
+     * A named way of building a scheduler for a platform, e.g. RR with a particular quantum.
+     */
+    public static class SchedulerConfig {
+        private final String name;
+        private final Function<Platform, Scheduler> factory;
+
+        public SchedulerConfig(String name, Function<Platform, Scheduler> factory) {
+            this.name = name;
+            this.factory = factory;
+        }
+
+        public String getName() { return this.name; }
+        public Scheduler create(Platform platform) { return this.factory.apply(platform); }
+    }
+
+    /**
+     * A named workload, either a queue or a stream.  The supplier must build new Process objects
+     * every time it is called, because processes keep their execution state.
+     */
+    public static class Workload {
+        private final String name;
+        private final Supplier<Queue<Process>> queue;   // Whichever of these isn't null builds the workload
+        private final Supplier<ArrivalStream> stream;
+
+        public Workload(String name, Supplier<Queue<Process>> source) {
+            this(name, source, null);
+        }
+
+        private Workload(String name, Supplier<Queue<Process>> queue, Supplier<ArrivalStream> stream) {
+            this.name = name;
+            this.queue = queue;
+            this.stream = stream;
+        }
+
+        /**
+         * A workload read from a stream as the clock reaches it.
+         */
+        public static Workload ofStream(String name, Supplier<ArrivalStream> source) {
+            return new Workload(name, null, source);
+        }
+
+        public String getName() { return this.name; }
+
+        /**
+         * Builds the workload and simulates it.
+         */
+        public void simulate(Platform platform, Scheduler scheduler, boolean eventDriven) {
+            if (this.stream != null) {
+                ArrivalStream processes = this.stream.get();
+                if (eventDriven) {
+                    platform.simulateEventDriven(scheduler, processes);
+                }
+                else {
+                    platform.simulate(scheduler, processes);
+                }
+                return;
+            }
+            Queue<Process> processes = this.queue.get();
+            if (eventDriven) {
+                platform.simulateEventDriven(scheduler, processes);
+            }
+            else {
+                platform.simulate(scheduler, processes);
+            }
+        }
+    }
+
+    /**
+     * The outcome of one simulation in the sweep.
+     */
+    public static class Result {
+        private final String scheduler;
+        private final String workload;
+        private final int cpuCount;
+        private final int contextSwitches;
+        private final int steals;
+        private final int migrations;
+        private final int ticks;            // Clock count when the simulation finished
+        private final long elapsedNanos;    // Wall clock time the simulation took
+        private final SimulationMetrics metrics;
+
+        public Result(String scheduler, String workload, int cpuCount, int contextSwitches, int steals,
+                      int migrations, int ticks, long elapsedNanos, SimulationMetrics metrics) {
+            this.scheduler = scheduler;
+            this.workload = workload;
+            this.cpuCount = cpuCount;
+            this.contextSwitches = contextSwitches;
+            this.steals = steals;
+            this.migrations = migrations;
+            this.ticks = ticks;
+            this.elapsedNanos = elapsedNanos;
+            this.metrics = metrics;
+        }
+
+        public String getScheduler() { return this.scheduler; }
+        public String getWorkload() { return this.workload; }
+        public int getCpuCount() { return this.cpuCount; }
+        public int getContextSwitches() { return this.contextSwitches; }
+        public int getSteals() { return this.steals; }
+        public int getMigrations() { return this.migrations; }
+        public int getTicks() { return this.ticks; }
+        public long getElapsedNanos() { return this.elapsedNanos; }
+        public SimulationMetrics getMetrics() { return this.metrics; }
+        public double getTicksPerSecond() {
+            return this.elapsedNanos == 0 ? 0 : this.ticks * 1e9 / this.elapsedNanos;
+        }
+    }
+
+    private final List<SchedulerConfig> schedulers = new ArrayList<>();
+    private final List<Workload> workloads = new ArrayList<>();
+    private int[] cpuCounts = { 1 };
+    private boolean eventDriven = false;
+    private int switchCost = 0;         // Passed on to every Platform, see Platform.setContextSwitchCost
+    private int warmWindow = 0;         // See Platform.setCacheAffinity
+    private int coldPenalty = 0;
+
+    public void addScheduler(String name, Function<Platform, Scheduler> factory) {
+        this.schedulers.add(new SchedulerConfig(name, factory));
+    }
+
+    public void addWorkload(String name, Supplier<Queue<Process>> source) {
+        this.workloads.add(new Workload(name, source));
+    }
+
+    public void addStream(String name, Supplier<ArrivalStream> source) {
+        this.workloads.add(Workload.ofStream(name, source));
+    }
+
+    public void setCpuCounts(int... cpuCounts) {
+        this.cpuCounts = cpuCounts.clone();
+    }
+
+    /**
+     * Use Platform.simulateEventDriven instead of the tick by tick simulation
+     */
+    public void setEventDriven(boolean eventDriven) {
+        this.eventDriven = eventDriven;
+    }
+
+    /**
+     * Charges every simulation for context switches, see Platform.setContextSwitchCost
+     */
+    public void setContextSwitchCost(int ticks) {
+        this.switchCost = ticks;
+    }
+
+    /**
+     * Gives every simulation a cache model, see Platform.setCacheAffinity
+     */
+    public void setCacheAffinity(int warmWindow, int coldPenalty) {
+        this.warmWindow = warmWindow;
+        this.coldPenalty = coldPenalty;
+    }
+
+    /**
+     * @return number of simulations a call to run performs
+     */
+    public int size() {
+        return this.schedulers.size() * this.workloads.size() * this.cpuCounts.length;
+    }
+
+    /**
+     * Runs the sweep on the common fork-join pool.
+     */
+    public List<Result> run() {
+        return run(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Runs every configuration of the sweep on the given pool and waits for all of them.
+     * @return one result per configuration, ordered by scheduler, then workload, then CPU count
+     */
+    public List<Result> run(ForkJoinPool pool) {
+        Result[] results = new Result[size()];
+        pool.invoke(new SweepTask(results, 0, results.length));
+
+        List<Result> table = new ArrayList<>(results.length);
+        for (Result r : results) {
+            table.add(r);
+        }
+        return table;
+    }
+
+    /**
+     * Runs the configuration at the given position in the grid.
+     */
+    private Result runOne(int index) {
+        int cpus = this.cpuCounts[index % this.cpuCounts.length];
+        index /= this.cpuCounts.length;
+        Workload workload = this.workloads.get(index % this.workloads.size());
+        SchedulerConfig config = this.schedulers.get(index / this.workloads.size());
+
+        Platform platform = new Platform(cpus);
+        // runs are silent; they would only interleave on the console anyway
+        platform.setEventSink(null);
+        platform.setContextSwitchCost(this.switchCost);
+        platform.setCacheAffinity(this.warmWindow, this.coldPenalty);
+        Scheduler scheduler = config.create(platform);
+
+        long start = System.nanoTime();
+        workload.simulate(platform, scheduler, this.eventDriven);
+        long elapsed = System.nanoTime() - start;
+
+        return new Result(config.getName(), workload.getName(), cpus,
+                scheduler.getNumberOfContextSwitches(), scheduler.getNumberOfSteals(),
+                scheduler.getNumberOfMigrations(), platform.getClockCounter(), elapsed, platform.getMetrics());
+    }
+
+    /**
+     * Splits a range of the grid in half until it is down to a single simulation.
+     */
+    private class SweepTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;     // ForkJoinTask is Serializable; a sweep task never is
+        private final Result[] results;
+        private final int from;
+        private final int to;
+
+        SweepTask(Result[] results, int from, int to) {
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= 1) {
+                if (this.from < this.to) {
+                    this.results[this.from] = runOne(this.from);
+                }
+                return;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new SweepTask(this.results, this.from, middle), new SweepTask(this.results, middle, this.to));
+        }
+    }
+
+    /**
+     * Prints the results as a single table, with utilization and the waiting and response time
+     * percentiles over all the processes of each run.
+     */
+    public static void printTable(List<Result> results, PrintStream out) {
+        out.printf("%-12s %-12s %5s %10s %8s %10s %10s %6s %8s %8s %8s %12s %14s\n",
+                "Scheduler", "Workload", "CPUs", "Switches", "Steals", "Migrations", "Ticks",
+                "Util%", "Wait p50", "Wait p99", "Resp p99", "Time (us)", "Ticks/sec");
+        for (Result r : results) {
+            SimulationMetrics.ClassMetrics all = r.getMetrics().getOverall();
+            out.printf("%-12s %-12s %5d %10d %8d %10d %10d %6.1f %8d %8d %8d %12.1f %14.0f\n",
+                    r.getScheduler(), r.getWorkload(), r.getCpuCount(), r.getContextSwitches(),
+                    r.getSteals(), r.getMigrations(), r.getTicks(), r.getMetrics().getUtilization() * 100,
+                    all.getWaiting().getPercentile(50), all.getWaiting().getPercentile(99),
+                    all.getResponse().getPercentile(99), r.getElapsedNanos() / 1e3, r.getTicksPerSecond());
+        }
+    }
+
+    /**
+     * Prints what switching cost each run: the time the CPUs spent on switches and cold caches,
+     * and the throughput and turnaround that was left.
+     */
+    public static void printCosts(List<Result> results, PrintStream out) {
+        out.printf("%-12s %-12s %5s %10s %6s %10s %10s %10s %10s %10s\n",
+                "Scheduler", "Workload", "CPUs", "Switches", "Cold%", "Overhead%", "Util%",
+                "Done/1000", "Turn mean", "Turn p99");
+        for (Result r : results) {
+            SimulationMetrics m = r.getMetrics();
+            LatencyHistogram turnaround = m.getOverall().getTurnaround();
+            out.printf("%-12s %-12s %5d %10d %6.1f %10.1f %10.1f %10.2f %10.1f %10d\n",
+                    r.getScheduler(), r.getWorkload(), r.getCpuCount(), m.getSwitches(),
+                    m.getSwitches() == 0 ? 0 : 100.0 * m.getColdStarts() / m.getSwitches(),
+                    m.getOverhead() * 100, m.getUtilization() * 100, m.getThroughput() * 1000,
+                    turnaround.getMean(), turnaround.getPercentile(99));
+        }
+    }
+}
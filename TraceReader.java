@@ -0,0 +1,208 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Streams a workload from a trace file, for traces too big to build as an in-memory queue.
+ * The file is memory-mapped a window at a time and each record is only turned into a Process
+ * when the Platform peeks at it, so memory use doesn't depend on the length of the trace.
+ *
+ * Two formats are understood, picked by file extension:
+ *   .csv  one process per line: name,start,burst,total[,priority]; a header line and lines
+ *         starting with # are skipped
+ *   other the binary format written by TraceWriter
+ *
+ * Records need only be in order of start time to within the Platform's stream look-ahead, so
+ * traces merged from several hosts don't have to be sorted first.
+ */
+public class TraceReader implements ArrivalStream, AutoCloseable {
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;  // How much of the file is mapped at once
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final boolean csv;
+    private MappedByteBuffer window;
+    private long windowStart;       // File offset of the start of the mapped window
+    private long position;          // File offset of the next record
+    private long remaining;         // Number of records not yet handed out
+    private Process head = null;    // Record already read by peek but not yet taken
+    private byte[] line = new byte[256];    // Bytes of the CSV line being read
+
+    /**
+     * Opens a trace file, picking the format from the extension.
+     */
+    public static TraceReader open(Path path) throws IOException {
+        return new TraceReader(path, path.toString().toLowerCase().endsWith(".csv"));
+    }
+
+    public TraceReader(Path path, boolean csv) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileSize = this.channel.size();
+        this.csv = csv;
+        map(0);
+        if (csv) {
+            this.remaining = countCsvRecords();
+        }
+        else {
+            ensure(TraceWriter.HEADER_SIZE);
+            if (this.window.getInt() != TraceWriter.MAGIC) {
+                throw new IOException(path + " is not a binary trace file");
+            }
+            int version = this.window.getInt();
+            if (version != TraceWriter.VERSION) {
+                throw new IOException("Unsupported trace version " + version);
+            }
+            this.remaining = this.window.getLong();
+            this.position = TraceWriter.HEADER_SIZE;
+        }
+    }
+
+    @Override
+    public Process peek() {
+        if (this.head == null && this.remaining > 0) {
+            try {
+                this.head = this.csv ? readCsv() : readBinary();
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return this.head;
+    }
+
+    @Override
+    public Process poll() {
+        Process p = peek();
+        if (p != null) {
+            this.head = null;
+            this.remaining--;
+        }
+        return p;
+    }
+
+    /**
+     * @return number of records not yet handed out; can't be more than Integer.MAX_VALUE
+     */
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, this.remaining);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    private Process readBinary() throws IOException {
+        ensure(TraceWriter.RECORD_FIXED_SIZE);
+        int start = this.window.getInt();
+        int burst = this.window.getInt();
+        int total = this.window.getInt();
+        int priority = this.window.getInt();
+        int nameLength = this.window.getShort() & 0xFFFF;
+        this.position += TraceWriter.RECORD_FIXED_SIZE;
+
+        ensure(nameLength);
+        byte[] name = new byte[nameLength];
+        this.window.get(name);
+        this.position += nameLength;
+        return new StandaloneProcess(new String(name, StandardCharsets.UTF_8), start, burst, total, priority);
+    }
+
+    private Process readCsv() throws IOException {
+        while (true) {
+            String line = nextLine();
+            if (line == null) {
+                throw new IOException("Trace ended before all records were read");
+            }
+            if (isCsvRecord(line)) {
+                String[] fields = line.split(",");
+                if (fields.length < 4) {
+                    throw new IOException("Expected name,start,burst,total[,priority] but got: " + line);
+                }
+                int priority = fields.length > 4 ? Integer.parseInt(fields[4].trim()) : 0;
+                return new StandaloneProcess(fields[0].trim(), Integer.parseInt(fields[1].trim()),
+                        Integer.parseInt(fields[2].trim()), Integer.parseInt(fields[3].trim()), priority);
+            }
+        }
+    }
+
+    /**
+     * Counts the data lines of a CSV trace without keeping any of them.
+     */
+    private long countCsvRecords() throws IOException {
+        long count = 0;
+        String line;
+        while ((line = nextLine()) != null) {
+            if (isCsvRecord(line)) {
+                count++;
+            }
+        }
+        this.position = 0;
+        map(0);
+        return count;
+    }
+
+    /**
+     * Blank lines, comments and the header, whose start column isn't a number, are not records.
+     */
+    private static boolean isCsvRecord(String line) {
+        if (line.isEmpty() || line.charAt(0) == '#') {
+            return false;
+        }
+        int comma = line.indexOf(',');
+        if (comma < 0) {
+            return false;
+        }
+        String start = line.substring(comma + 1).trim();
+        return !start.isEmpty() && (Character.isDigit(start.charAt(0)) || start.charAt(0) == '-');
+    }
+
+    /**
+     * @return the next line of the file without its line ending, or null at the end of the file
+     */
+    private String nextLine() throws IOException {
+        if (this.position >= this.fileSize) {
+            return null;
+        }
+        int length = 0;
+        while (this.position < this.fileSize) {
+            ensure(1);
+            byte b = this.window.get();
+            this.position++;
+            if (b == '\n') {
+                break;
+            }
+            if (length == this.line.length) {
+                this.line = Arrays.copyOf(this.line, length * 2);
+            }
+            this.line[length++] = b;
+        }
+        if (length > 0 && this.line[length - 1] == '\r') {
+            length--;
+        }
+        return new String(this.line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Makes sure the next bytes are inside the mapped window, moving the window if they aren't.
+     */
+    private void ensure(int bytes) throws IOException {
+        if (this.position + bytes > this.fileSize) {
+            throw new IOException("Trace ended in the middle of a record");
+        }
+        if (this.position + bytes > this.windowStart + this.window.limit()) {
+            map(this.position);
+        }
+    }
+
+    private void map(long start) throws IOException {
+        this.windowStart = start;
+        long size = Math.min(WINDOW_SIZE, this.fileSize - start);
+        this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+    }
+}
@@ -0,0 +1,110 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a workload trace that TraceReader can stream back.  A ".csv" path gets one
+ * name,start,burst,total,priority line per process; anything else gets the binary format:
+ *
+ *   header  int magic, int version, long number of records
+ *   record  int start, int burst, int total, int priority, unsigned short name length, name in UTF-8
+ *
+ * Processes should be written in order of start time, or close to it: TraceReader streams them
+ * back, and the Platform only reads a stream a bounded number of processes ahead.
+ */
+public class TraceWriter implements AutoCloseable {
+    static final int MAGIC = 0x43505554;        // "CPUT"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_FIXED_SIZE = 18;    // Everything in a record except the name itself
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final FileChannel channel;
+    private final boolean csv;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long count = 0;
+
+    /**
+     * Creates the trace file, replacing any file already there, and picks the format from the extension.
+     */
+    public TraceWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.csv = path.toString().toLowerCase().endsWith(".csv");
+        if (this.csv) {
+            put("name,start,burst,total,priority\n".getBytes(StandardCharsets.UTF_8));
+        }
+        else {
+            // the record count is filled in by close
+            this.buffer.putInt(MAGIC).putInt(VERSION).putLong(-1);
+        }
+    }
+
+    public void write(Process p) throws IOException {
+        write(p.getName(), p.getStartTime(), p.getBurstTime(), p.getTotalTime(), p.getPriority());
+    }
+
+    public void write(String name, int startTime, int burstTime, int totalTime, int priority) throws IOException {
+        if (this.csv) {
+            put((name + "," + startTime + "," + burstTime + "," + totalTime + "," + priority + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        else {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                throw new IOException("Process name is too long for the trace format: " + name);
+            }
+            if (this.buffer.remaining() < RECORD_FIXED_SIZE) {
+                flush();
+            }
+            this.buffer.putInt(startTime).putInt(burstTime).putInt(totalTime).putInt(priority)
+                    .putShort((short) bytes.length);
+            put(bytes);
+        }
+        this.count++;
+    }
+
+    /**
+     * @return number of processes written so far
+     */
+    public long getCount() { return this.count; }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            if (!this.csv) {
+                ByteBuffer total = ByteBuffer.allocate(8).putLong(this.count);
+                total.flip();
+                this.channel.write(total, 8);
+            }
+        }
+        finally {
+            this.channel.close();
+        }
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!this.buffer.hasRemaining()) {
+                flush();
+            }
+            int length = Math.min(bytes.length - offset, this.buffer.remaining());
+            this.buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    private void flush() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+}
@@ -0,0 +1,261 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Generates a synthetic workload as a stream.  Processes are made one at a time, when the
+ * Platform peeks at the next arrival, so any number of them can be simulated without the
+ * workload ever being in memory.  The same seed and settings always give the same workload.
+ *
+ * Arrivals, burst lengths, priorities, I/O times and periods each follow a configurable
+ * distribution; the total time of each process is a whole number of bursts, as the schedulers
+ * expect.
+ */
+public class WorkloadGenerator implements ArrivalStream {
+
+    /**
+     * How arrival times are spread out.
+     */
+    public enum Arrivals {
+        POISSON,    // Exponential gaps between arrivals
+        BURSTY      // Clusters of processes arriving together, with exponential gaps between clusters
+    }
+
+    /**
+     * How CPU burst lengths are distributed.
+     */
+    public enum Bursts {
+        EXPONENTIAL,    // Mostly short, occasionally long
+        PARETO,         // Heavy tailed; a few very long bursts dominate
+        BIMODAL         // A mix of short interactive and long batch bursts
+    }
+
+    private final SplittableRandom random;
+    private final long count;
+    private long generated = 0;
+    private double clock = 0;           // Arrival time of the last process, kept fractional
+    private int clusterLeft = 0;        // Processes still to arrive in the current cluster
+    private Process head = null;        // Process already made by peek but not yet taken
+
+    private Arrivals arrivals = Arrivals.POISSON;
+    private double meanInterArrival = 10;
+    private double meanClusterSize = 8;
+    private Bursts bursts = Bursts.EXPONENTIAL;
+    private double meanBurst = 8;
+    private double paretoShape = 1.5;
+    private double longBurst = 100;         // Mean of the long mode of the bimodal distribution
+    private double longFraction = 0.1;      // How many bursts come from the long mode
+    private double meanBurstsPerProcess = 2;
+    private int[] priorityWeights = { 1 };
+    private double meanIo = 0;              // Mean I/O time of the I/O bound processes
+    private double ioBoundFraction = 0;     // How many processes do I/O between bursts
+    private double meanSlack = 0;           // Mean ticks a periodic process's period is longer than its burst
+    private double periodicFraction = 0;    // How many processes are periodic
+
+    /**
+     * @param seed everything the generator produces follows from the seed
+     * @param count number of processes to generate
+     */
+    public WorkloadGenerator(long seed, long count) {
+        this.random = new SplittableRandom(seed);
+        this.count = count;
+    }
+
+    /**
+     * Poisson arrivals with the given mean number of ticks between processes.
+     */
+    public void setPoissonArrivals(double meanInterArrival) {
+        this.arrivals = Arrivals.POISSON;
+        this.meanInterArrival = meanInterArrival;
+    }
+
+    /**
+     * Clusters of processes arriving on the same tick.  Cluster sizes are geometric with the given
+     * mean and the gaps between clusters keep the overall mean time between processes.
+     */
+    public void setBurstyArrivals(double meanInterArrival, double meanClusterSize) {
+        this.arrivals = Arrivals.BURSTY;
+        this.meanInterArrival = meanInterArrival;
+        this.meanClusterSize = Math.max(1, meanClusterSize);
+    }
+
+    public void setExponentialBursts(double meanBurst) {
+        this.bursts = Bursts.EXPONENTIAL;
+        this.meanBurst = meanBurst;
+    }
+
+    /**
+     * @param shape tail index of the distribution, must be greater than 1 for the mean to exist
+     */
+    public void setParetoBursts(double meanBurst, double shape) {
+        if (shape <= 1) {
+            throw new IllegalArgumentException("Pareto shape must be greater than 1");
+        }
+        this.bursts = Bursts.PARETO;
+        this.meanBurst = meanBurst;
+        this.paretoShape = shape;
+    }
+
+    /**
+     * @param shortBurst mean of the short bursts
+     * @param longBurst mean of the long bursts
+     * @param longFraction fraction of bursts that are long
+     */
+    public void setBimodalBursts(double shortBurst, double longBurst, double longFraction) {
+        this.bursts = Bursts.BIMODAL;
+        this.meanBurst = shortBurst;
+        this.longBurst = longBurst;
+        this.longFraction = longFraction;
+    }
+
+    /**
+     * Each process runs a geometrically distributed number of bursts with this mean.
+     */
+    public void setMeanBurstsPerProcess(double mean) {
+        this.meanBurstsPerProcess = Math.max(1, mean);
+    }
+
+    /**
+     * Relative weights of the priorities 0, 1, 2, ...; e.g. {1, 4, 5} makes 10% priority 0,
+     * 40% priority 1 and 50% priority 2.
+     */
+    public void setPriorityMix(int... weights) {
+        this.priorityWeights = weights.clone();
+    }
+
+    /**
+     * Makes a fraction of the processes I/O bound: each of them blocks for I/O between its
+     * bursts, for a time drawn once per process from an exponential distribution with the given
+     * mean.  The rest never block.
+     */
+    public void setExponentialIo(double meanIo, double ioBoundFraction) {
+        this.meanIo = meanIo;
+        this.ioBoundFraction = ioBoundFraction;
+    }
+
+    /**
+     * Makes a fraction of the processes periodic, each burst released a period after the one
+     * before and due by the next release.  The period is the burst length plus a slack drawn
+     * once per process from an exponential distribution with the given mean.  The rest have no
+     * deadline.
+     */
+    public void setPeriodic(double meanSlack, double periodicFraction) {
+        this.meanSlack = meanSlack;
+        this.periodicFraction = periodicFraction;
+    }
+
+    @Override
+    public Process peek() {
+        if (this.head == null && this.generated < this.count) {
+            this.head = next();
+        }
+        return this.head;
+    }
+
+    @Override
+    public Process poll() {
+        Process p = peek();
+        if (p != null) {
+            this.head = null;
+            this.generated++;
+        }
+        return p;
+    }
+
+    /**
+     * @return number of processes still to come; can't be more than Integer.MAX_VALUE
+     */
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, this.count - this.generated);
+    }
+
+    /**
+     * Writes everything still to come to a trace file that TraceReader can replay.
+     */
+    public void writeTrace(Path path) throws IOException {
+        try (TraceWriter writer = new TraceWriter(path)) {
+            Process p;
+            while ((p = poll()) != null) {
+                writer.write(p);
+            }
+        }
+    }
+
+    private Process next() {
+        int burst = burstLength();
+        int bursts = 1 + geometric(this.meanBurstsPerProcess - 1);
+        long total = Math.min((long) burst * bursts, Integer.MAX_VALUE / burst * (long) burst);
+        Process p = new StandaloneProcess("P" + this.generated, arrivalTime(), burst, (int) total, priority());
+        // only drawn when turned on, so workloads without I/O come out as they always have
+        if (this.ioBoundFraction > 0 && this.random.nextDouble() < this.ioBoundFraction) {
+            p.setIoTime((int) Math.max(1, Math.min(Math.ceil(exponential(this.meanIo)), Integer.MAX_VALUE)));
+        }
+        if (this.periodicFraction > 0 && this.random.nextDouble() < this.periodicFraction) {
+            int period = (int) Math.min(burst + Math.ceil(exponential(this.meanSlack)), Integer.MAX_VALUE);
+            p.setDeadline(period, period);
+        }
+        return p;
+    }
+
+    private int arrivalTime() {
+        if (this.arrivals == Arrivals.POISSON) {
+            this.clock += exponential(this.meanInterArrival);
+        }
+        else {
+            if (this.clusterLeft == 0) {
+                this.clock += exponential(this.meanInterArrival * this.meanClusterSize);
+                this.clusterLeft = 1 + geometric(this.meanClusterSize - 1);
+            }
+            this.clusterLeft--;
+        }
+        return (int) Math.min(this.clock, Integer.MAX_VALUE);
+    }
+
+    private int burstLength() {
+        double length;
+        switch (this.bursts) {
+            case PARETO:
+                // smallest value that gives the requested mean
+                double scale = this.meanBurst * (this.paretoShape - 1) / this.paretoShape;
+                length = scale / Math.pow(1 - this.random.nextDouble(), 1 / this.paretoShape);
+                break;
+            case BIMODAL:
+                length = exponential(this.random.nextDouble() < this.longFraction ? this.longBurst : this.meanBurst);
+                break;
+            default:
+                length = exponential(this.meanBurst);
+                break;
+        }
+        return (int) Math.max(1, Math.min(Math.ceil(length), Integer.MAX_VALUE));
+    }
+
+    private int priority() {
+        int total = 0;
+        for (int weight : this.priorityWeights) {
+            total += weight;
+        }
+        int pick = this.random.nextInt(Math.max(1, total));
+        for (int priority = 0; priority < this.priorityWeights.length; priority++) {
+            pick -= this.priorityWeights[priority];
+            if (pick < 0) {
+                return priority;
+            }
+        }
+        return 0;
+    }
+
+    private double exponential(double mean) {
+        return -mean * Math.log(1 - this.random.nextDouble());
+    }
+
+    /**
+     * @return number of failures before the first success, with the given mean
+     */
+    private int geometric(double mean) {
+        if (mean <= 0) {
+            return 0;
+        }
+        double p = 1 / (1 + mean);
+        return (int) Math.min(Math.floor(Math.log(1 - this.random.nextDouble()) / Math.log(1 - p)), Integer.MAX_VALUE);
+    }
+}
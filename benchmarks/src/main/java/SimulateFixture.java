@@ -0,0 +1,64 @@
+import java.util.function.LongSupplier;
+
+/**
+ * A complete simulation of a generated workload, run once per call.  See UpdateFixture for why
+ * this sits in the default package.
+ */
+public class SimulateFixture implements LongSupplier {
+    private static final long SEED = 3100;
+
+    private final String scheduler;
+    private final boolean eventDriven;
+    private final int processes;
+
+    public SimulateFixture(String scheduler, boolean eventDriven, int processes) {
+        this.scheduler = scheduler;
+        this.eventDriven = eventDriven;
+        this.processes = processes;
+    }
+
+    /**
+     * @return number of clock ticks the simulation took
+     */
+    @Override
+    public long getAsLong() {
+        WorkloadGenerator workload = new WorkloadGenerator(SEED, this.processes);
+        workload.setPoissonArrivals(20);
+        workload.setExponentialBursts(8);
+        workload.setMeanBurstsPerProcess(2);
+        workload.setPriorityMix(1, 1, 1, 1);
+
+        Platform platform = new Platform(1);
+        platform.setEventSink(null);
+        Scheduler s = create(this.scheduler, platform, 4);
+        if (this.eventDriven) {
+            platform.simulateEventDriven(s, workload);
+        }
+        else {
+            platform.simulate(s, workload);
+        }
+        return platform.getClockCounter();
+    }
+
+    /**
+     * Builds a scheduler by the name used in the benchmark parameters.  MLFQ gets three levels
+     * with the quantum doubling down the levels.
+     */
+    static Scheduler create(String name, Platform platform, int quantum) {
+        switch (name) {
+            case "FCFS": return new SchedulerFCFS(platform);
+            case "SJF": return new SchedulerSJF(platform);
+            case "SRTF": return new SchedulerSRTF(platform);
+            case "Priority": return new SchedulerPriority(platform);
+            case "RR": return new SchedulerRR(platform, quantum);
+            case "MLFQ":
+                int[] quanta = { quantum, (int) Math.min(2L * quantum, Integer.MAX_VALUE), (int) Math.min(4L * quantum, Integer.MAX_VALUE) };
+                return new SchedulerMLFQ(platform, quanta, SchedulerMLFQ.DEFAULT_BOOST_INTERVAL);
+            case "CFS": return new SchedulerCFS(platform);
+            case "Stride": return new SchedulerStride(platform, quantum);
+            case "Lottery": return new SchedulerLottery(platform, quantum, SchedulerLottery.DEFAULT_SEED);
+            case "EDF": return new SchedulerEDF(platform);
+            default: throw new IllegalArgumentException("Unknown scheduler " + name);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+import java.util.function.IntSupplier;
+
+/**
+ * One CPU of a platform with a ready queue of a given depth, stepped one tick per call.
+ * Lives in the default package next to the simulator; JMH needs its benchmarks in a named
+ * package, which can only reach this class through the IntSupplier interface.
+ *
+ * In steady mode the running process never finishes its burst and everything waiting is
+ * worse, so each call is the "nothing changes" path.  In churn mode every burst is one tick
+ * long, so each call puts the running process back in the queue and picks another one.
+ */
+public class UpdateFixture implements IntSupplier {
+    private static final int LONG_BURST = 2_000_000_000;
+
+    private final Scheduler scheduler;
+    private Process cpu;
+
+    public UpdateFixture(String scheduler, int depth, boolean churn) {
+        Platform platform = new Platform(1);
+        platform.setEventSink(null);
+        this.scheduler = SimulateFixture.create(scheduler, platform, churn ? 1 : Integer.MAX_VALUE);
+
+        // notified first, and better than everything after it, so it is scheduled first; ids are
+        // given as the Platform would, some schedulers use them to break ties
+        int burst = churn ? 1 : LONG_BURST;
+        Process first = new StandaloneProcess("P0", 0, burst, LONG_BURST, 0);
+        first.setId(0);
+        this.scheduler.notifyNewProcess(first);
+        for (int i = 1; i <= depth; i++) {
+            int waitingBurst = churn ? 1 : LONG_BURST + i;
+            Process p = new StandaloneProcess("P" + i, 0, waitingBurst, LONG_BURST + i, 1 + i % 8);
+            p.setId(i);
+            this.scheduler.notifyNewProcess(p);
+        }
+        this.cpu = this.scheduler.update(null);
+    }
+
+    /**
+     * A single clock tick: the running process runs and the scheduler makes its decision.
+     */
+    @Override
+    public int getAsInt() {
+        if (this.cpu != null) {
+            this.cpu.update();
+        }
+        this.cpu = this.scheduler.update(this.cpu);
+        return this.cpu == null ? -1 : this.cpu.getElapsedTotal();
+    }
+}
@@ -0,0 +1,20 @@
+package simbench;
+
+/**
+ * The simulator lives in the default package, which a named package can't import from, so
+ * the benchmarks create their fixtures by name and use them through JDK interfaces.
+ */
+final class Fixtures {
+    private Fixtures() {
+    }
+
+    static <T> T create(Class<T> type, String className, Class<?>[] parameterTypes, Object... arguments) {
+        try {
+            Object fixture = Class.forName(className).getConstructor(parameterTypes).newInstance(arguments);
+            return type.cast(fixture);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to create " + className, e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package simbench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End to end Platform.simulate throughput on a generated workload, with both the tick by tick
+ * and the event driven engine.  The ticks and processes counters are reported per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PlatformSimulateBenchmark {
+
+    @Param({ "FCFS", "SJF", "SRTF", "Priority", "RR", "MLFQ", "CFS", "Stride", "Lottery", "EDF" })
+    public String scheduler;
+
+    @Param({ "tick", "event" })
+    public String engine;
+
+    @Param({ "10000" })
+    public int processes;
+
+    private LongSupplier simulation;
+
+    /**
+     * Simulated clock ticks and processes completed, reported as rates.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long ticks;
+        public long processes;
+    }
+
+    @Setup
+    public void setup() {
+        Class<?>[] types = { String.class, boolean.class, int.class };
+        this.simulation = Fixtures.create(LongSupplier.class, "SimulateFixture", types,
+                this.scheduler, this.engine.equals("event"), this.processes);
+    }
+
+    @Benchmark
+    public long simulate(Counters counters) {
+        long ticks = this.simulation.getAsLong();
+        counters.ticks += ticks;
+        counters.processes += this.processes;
+        return ticks;
+    }
+}
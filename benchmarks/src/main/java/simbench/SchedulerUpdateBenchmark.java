@@ -0,0 +1,58 @@
+package simbench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of a single Scheduler.update call, for each scheduler and ready queue depth.
+ * steady is a tick where the running process keeps the CPU; churn is a tick where it finishes
+ * its burst and the scheduler has to requeue it and pick another.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SchedulerUpdateBenchmark {
+
+    @Param({ "FCFS", "SJF", "SRTF", "Priority", "RR", "MLFQ", "CFS", "Stride", "Lottery", "EDF" })
+    public String scheduler;
+
+    @Param({ "10", "1000", "100000" })
+    public int depth;
+
+    private IntSupplier steady;
+    private IntSupplier churn;
+
+    // rebuilt every iteration so the long running process never reaches the end of its burst
+    @Setup(Level.Iteration)
+    public void setup() {
+        Class<?>[] types = { String.class, int.class, boolean.class };
+        this.steady = Fixtures.create(IntSupplier.class, "UpdateFixture", types, this.scheduler, this.depth, false);
+        this.churn = Fixtures.create(IntSupplier.class, "UpdateFixture", types, this.scheduler, this.depth, true);
+    }
+
+    @Benchmark
+    public int steady() {
+        return this.steady.getAsInt();
+    }
+
+    @Benchmark
+    public int churn() {
+        return this.churn.getAsInt();
+    }
+}